@@ -0,0 +1,60 @@
+package uk.gov.digital.ho.hocs.document;
+
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.impl.DefaultExchange;
+import org.apache.http.HttpEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import uk.gov.digital.ho.hocs.document.dto.camel.S3Document;
+
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds and writes out the multipart body sent to the converter and malware scanner, streaming the file part from an
+ * in-memory source in place of S3. The entity is written to a null stream because building it alone does not touch the
+ * document bytes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class HttpProcessorsBenchmark {
+
+    @Param({"10240", "1048576", "10485760", "104857600"})
+    private int fileSize;
+
+    private CamelContext camelContext;
+    private Processor processor;
+    private S3Document document;
+
+    @Setup
+    public void setUp() {
+        byte[] data = new byte[fileSize];
+        new Random(42).nextBytes(data);
+        camelContext = new DefaultCamelContext();
+        processor = HttpProcessors.buildMultipartEntity(sent -> new ByteArrayInputStream(data));
+        document = new S3Document("someUUID.docx", "sample.docx", null, "docx",
+                "application/vnd.openxmlformats-officedocument.wordprocessingml.document", null);
+    }
+
+    @Benchmark
+    public HttpEntity buildMultipartEntity() throws Exception {
+        Exchange exchange = new DefaultExchange(camelContext);
+        exchange.getIn().setBody(document);
+        processor.process(exchange);
+        HttpEntity entity = exchange.getOut().getBody(HttpEntity.class);
+        entity.writeTo(OutputStream.nullOutputStream());
+        return entity;
+    }
+}
@@ -0,0 +1,111 @@
+package uk.gov.digital.ho.hocs.document.aws;
+
+import com.adobe.testing.s3mock.S3MockApplication;
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.AnonymousAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import software.amazon.awssdk.auth.credentials.AnonymousCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3Configuration;
+import uk.gov.digital.ho.hocs.document.dto.camel.S3Document;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Downloads and hashes a document through getFileDigestFromUntrustedS3, the malware check's first step when
+ * clamav.signatureVersion turns on the scan result lookup, against an in-process S3Mock over plain HTTP. The scratch
+ * store is off, so every invocation reads the object from S3. The mock serves from the same JVM, so the gc profiler's
+ * allocation figures include its side of each request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class S3DocumentServiceBenchmark {
+
+    private static final String UNTRUSTED_BUCKET = "untrusted-bucket";
+    private static final String TRUSTED_BUCKET = "trusted-bucket";
+    private static final String KEY = "someUUID.docx";
+
+    @Param({"10240", "1048576", "10485760", "104857600"})
+    private int fileSize;
+
+    private S3MockApplication s3Mock;
+    private AmazonS3 s3Client;
+    private S3AsyncClient s3AsyncClient;
+    private S3DocumentService service;
+
+    @Setup
+    public void setUp() throws IOException {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(S3MockApplication.PROP_HTTPS_PORT, S3MockApplication.RANDOM_PORT);
+        properties.put(S3MockApplication.PROP_HTTP_PORT, S3MockApplication.RANDOM_PORT);
+        properties.put(S3MockApplication.PROP_SECURE_CONNECTION, false);
+        properties.put(S3MockApplication.PROP_INITIAL_BUCKETS, UNTRUSTED_BUCKET + "," + TRUSTED_BUCKET);
+        properties.put(S3MockApplication.PROP_SILENT, true);
+        // S3Mock is a Spring Boot app on the service's classpath, so keep the service's database and Camel setup out of it
+        properties.put("spring.autoconfigure.exclude", String.join(",",
+                "org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration",
+                "org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration",
+                "org.springframework.boot.autoconfigure.flyway.FlywayAutoConfiguration",
+                "org.apache.camel.spring.boot.CamelAutoConfiguration"));
+        s3Mock = S3MockApplication.start(properties);
+
+        s3Client = AmazonS3ClientBuilder.standard()
+                .withEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration("http://localhost:" + s3Mock.getHttpPort(), "eu-west-2"))
+                .withPathStyleAccessEnabled(true)
+                .withCredentials(new AWSStaticCredentialsProvider(new AnonymousAWSCredentials()))
+                .build();
+        s3AsyncClient = S3AsyncClient.builder()
+                .region(Region.EU_WEST_2)
+                .credentialsProvider(AnonymousCredentialsProvider.create())
+                .serviceConfiguration(S3Configuration.builder().pathStyleAccessEnabled(true).build())
+                .endpointOverride(URI.create("http://localhost:" + s3Mock.getHttpPort()))
+                .build();
+
+        byte[] data = new byte[fileSize];
+        new Random(42).nextBytes(data);
+        ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(fileSize);
+        metadata.setContentType("application/vnd.openxmlformats-officedocument.wordprocessingml.document");
+        metadata.addUserMetadata("originalName", "sample.docx");
+        s3Client.putObject(UNTRUSTED_BUCKET, KEY, new ByteArrayInputStream(data), metadata);
+
+        service = new S3DocumentService(UNTRUSTED_BUCKET, TRUSTED_BUCKET, s3Client, s3Client, s3AsyncClient, s3AsyncClient, "",
+                new S3DocumentCache(false, 0, 0, new SimpleMeterRegistry()),
+                new DocumentScratchStore(false, "unused", 0, 0, 60, new SimpleMeterRegistry()),
+                false, 16 * 1024 * 1024, 8 * 1024 * 1024, 2);
+    }
+
+    @TearDown
+    public void tearDown() {
+        s3AsyncClient.close();
+        s3Client.shutdown();
+        s3Mock.stop();
+    }
+
+    @Benchmark
+    public S3Document getFileDigestFromUntrustedS3() throws IOException {
+        return service.getFileDigestFromUntrustedS3(KEY, UUID.randomUUID());
+    }
+}
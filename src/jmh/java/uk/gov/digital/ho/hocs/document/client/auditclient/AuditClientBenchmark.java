@@ -0,0 +1,60 @@
+package uk.gov.digital.ho.hocs.document.client.auditclient;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.camel.CamelContext;
+import org.apache.camel.ProducerTemplate;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import uk.gov.digital.ho.hocs.document.application.RequestData;
+import uk.gov.digital.ho.hocs.document.application.SpringConfiguration;
+import uk.gov.digital.ho.hocs.document.model.DocumentData;
+import uk.gov.digital.ho.hocs.document.model.DocumentType;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds, serialises and sends one document audit event. The buffer's flusher thread is never started and each
+ * invocation flushes on the benchmark thread, so the whole cost is measured; the events go to a Camel log endpoint
+ * that is switched off.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AuditClientBenchmark {
+
+    private CamelContext camelContext;
+    private ProducerTemplate producerTemplate;
+    private AuditClient auditClient;
+    private DocumentData documentData;
+
+    @Setup
+    public void setUp() throws Exception {
+        camelContext = new DefaultCamelContext();
+        camelContext.start();
+        producerTemplate = camelContext.createProducerTemplate();
+        auditClient = new AuditClient(producerTemplate, "log:audit?level=OFF", "hocs-docs", "benchmark",
+                SpringConfiguration.initialiseObjectMapper(), new RequestData(), 100, 10, 200, "", Optional.empty(), 3, 1, new SimpleMeterRegistry());
+        documentData = new DocumentData(UUID.randomUUID(), DocumentType.ORIGINAL, "document.docx");
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        producerTemplate.stop();
+        camelContext.stop();
+    }
+
+    @Benchmark
+    public void createDocumentAudit() {
+        auditClient.createDocumentAudit(documentData);
+        auditClient.flush();
+    }
+}
@@ -0,0 +1,72 @@
+package uk.gov.digital.ho.hocs.document.dto;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import uk.gov.digital.ho.hocs.document.application.SpringConfiguration;
+import uk.gov.digital.ho.hocs.document.model.DocumentData;
+import uk.gov.digital.ho.hocs.document.model.DocumentStatus;
+import uk.gov.digital.ho.hocs.document.model.DocumentType;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping and rendering of the document list returned by GET /document/reference/{uuid}, for a case with
+ * documentCount documents.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DocumentDtoBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int documentCount;
+
+    private ObjectWriter responseWriter;
+    private List<DocumentData> documents;
+    private Set<DocumentDto> documentDtos;
+
+    @Setup
+    public void setUp() {
+        responseWriter = SpringConfiguration.initialiseObjectMapper().writerFor(GetDocumentsResponse.class);
+        UUID externalReferenceUUID = UUID.randomUUID();
+        documents = new ArrayList<>(documentCount);
+        for (int i = 0; i < documentCount; i++) {
+            DocumentData document = new DocumentData(externalReferenceUUID, DocumentType.ORIGINAL, String.format("document %d.docx", i));
+            document.update(String.format("%s/%s.docx", externalReferenceUUID, UUID.randomUUID()),
+                    String.format("%s/%s.pdf", externalReferenceUUID, UUID.randomUUID()), DocumentStatus.UPLOADED);
+            documents.add(document);
+        }
+        documentDtos = mapDocuments();
+    }
+
+    @Benchmark
+    public Set<DocumentDto> documentDtoFrom() {
+        return mapDocuments();
+    }
+
+    @Benchmark
+    public byte[] getDocumentsResponseFrom() throws IOException {
+        return responseWriter.writeValueAsBytes(GetDocumentsResponse.from(documentDtos));
+    }
+
+    private Set<DocumentDto> mapDocuments() {
+        Set<DocumentDto> dtos = new HashSet<>(documentCount * 2);
+        for (DocumentData document : documents) {
+            dtos.add(DocumentDto.from(document));
+        }
+        return dtos;
+    }
+}
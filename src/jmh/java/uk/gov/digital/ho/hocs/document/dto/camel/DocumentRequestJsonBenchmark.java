@@ -0,0 +1,64 @@
+package uk.gov.digital.ho.hocs.document.dto.camel;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import uk.gov.digital.ho.hocs.document.application.SpringConfiguration;
+import uk.gov.digital.ho.hocs.document.model.DocumentStatus;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson handling of the queue messages that drive the pipeline, using the application's ObjectMapper settings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DocumentRequestJsonBenchmark {
+
+    private ObjectReader processDocumentReader;
+    private ObjectWriter processDocumentWriter;
+    private ObjectWriter updateDocumentWriter;
+    private byte[] processDocumentJson;
+    private ProcessDocumentRequest processDocumentRequest;
+    private UpdateDocumentRequest updateDocumentRequest;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = SpringConfiguration.initialiseObjectMapper();
+        processDocumentReader = objectMapper.readerFor(ProcessDocumentRequest.class);
+        processDocumentWriter = objectMapper.writerFor(ProcessDocumentRequest.class);
+        updateDocumentWriter = objectMapper.writerFor(UpdateDocumentRequest.class);
+
+        UUID documentUUID = UUID.randomUUID();
+        String fileLink = String.format("%s/%s.docx", UUID.randomUUID(), documentUUID);
+        processDocumentRequest = new ProcessDocumentRequest(documentUUID.toString(), fileLink);
+        processDocumentJson = processDocumentWriter.writeValueAsBytes(processDocumentRequest);
+        updateDocumentRequest = new UpdateDocumentRequest(documentUUID, DocumentStatus.UPLOADED, fileLink,
+                String.format("%s/%s.pdf", UUID.randomUUID(), documentUUID));
+    }
+
+    @Benchmark
+    public ProcessDocumentRequest readProcessDocumentRequest() throws IOException {
+        return processDocumentReader.readValue(processDocumentJson);
+    }
+
+    @Benchmark
+    public byte[] writeProcessDocumentRequest() throws IOException {
+        return processDocumentWriter.writeValueAsBytes(processDocumentRequest);
+    }
+
+    @Benchmark
+    public byte[] writeUpdateDocumentRequest() throws IOException {
+        return updateDocumentWriter.writeValueAsBytes(updateDocumentRequest);
+    }
+}
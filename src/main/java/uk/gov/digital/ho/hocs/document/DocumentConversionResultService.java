@@ -0,0 +1,73 @@
+package uk.gov.digital.ho.hocs.document;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import uk.gov.digital.ho.hocs.document.model.DocumentConversionResult;
+import uk.gov.digital.ho.hocs.document.repository.DocumentConversionResultRepository;
+
+import static net.logstash.logback.argument.StructuredArguments.value;
+import static uk.gov.digital.ho.hocs.document.application.LogEvent.*;
+
+/**
+ * Remembers the trusted bucket PDF produced for each source content hash, so identical files are
+ * only sent to the converter once per hocsconverter.version. A blank version turns the lookup off.
+ */
+@Service
+@Slf4j
+public class DocumentConversionResultService {
+
+    private final DocumentConversionResultRepository documentConversionResultRepository;
+    private final String converterVersion;
+
+    @Autowired
+    public DocumentConversionResultService(DocumentConversionResultRepository documentConversionResultRepository,
+                                           @Value("${hocsconverter.version}") String converterVersion) {
+        this.documentConversionResultRepository = documentConversionResultRepository;
+        this.converterVersion = converterVersion;
+    }
+
+    public String getPdfLink(String contentHash) {
+        if (!isEnabled(contentHash)) {
+            return null;
+        }
+        DocumentConversionResult result = documentConversionResultRepository.findByContentHashAndConverterVersion(contentHash, converterVersion);
+        if (result == null) {
+            return null;
+        }
+        log.info("Content {} already converted to {} by converter {}", contentHash, result.getPdfLink(), converterVersion, value(EVENT, DOCUMENT_CONVERSION_SKIPPED));
+        return result.getPdfLink();
+    }
+
+    public void recordConversion(String contentHash, String pdfLink) {
+        if (!isEnabled(contentHash) || documentConversionResultRepository.findByContentHashAndConverterVersion(contentHash, converterVersion) != null) {
+            return;
+        }
+        try {
+            documentConversionResultRepository.save(new DocumentConversionResult(contentHash, converterVersion, pdfLink));
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Conversion result for {} already recorded", contentHash);
+        }
+    }
+
+    public void forgetConversion(String contentHash) {
+        if (!isEnabled(contentHash)) {
+            return;
+        }
+        DocumentConversionResult result = documentConversionResultRepository.findByContentHashAndConverterVersion(contentHash, converterVersion);
+        if (result != null) {
+            documentConversionResultRepository.delete(result);
+        }
+    }
+
+    public boolean isEnabled() {
+        return StringUtils.hasText(converterVersion);
+    }
+
+    private boolean isEnabled(String contentHash) {
+        return isEnabled() && StringUtils.hasText(contentHash);
+    }
+}
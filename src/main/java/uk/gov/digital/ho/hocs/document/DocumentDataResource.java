@@ -1,28 +1,59 @@
 package uk.gov.digital.ho.hocs.document;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ByteArrayResource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import uk.gov.digital.ho.hocs.document.application.SpringConfiguration;
 import uk.gov.digital.ho.hocs.document.dto.CreateDocumentRequest;
+import uk.gov.digital.ho.hocs.document.dto.CreateDocumentsRequest;
+import uk.gov.digital.ho.hocs.document.dto.CreateDocumentsResponse;
+import uk.gov.digital.ho.hocs.document.dto.DocumentCursor;
 import uk.gov.digital.ho.hocs.document.dto.DocumentDto;
+import uk.gov.digital.ho.hocs.document.dto.DocumentLookupRequest;
+import uk.gov.digital.ho.hocs.document.dto.DocumentLookupResponse;
+import uk.gov.digital.ho.hocs.document.dto.GetDocumentsPageResponse;
 import uk.gov.digital.ho.hocs.document.dto.GetDocumentsResponse;
-import uk.gov.digital.ho.hocs.document.dto.camel.S3Document;
+import uk.gov.digital.ho.hocs.document.dto.GetPendingDocumentsResponse;
+import uk.gov.digital.ho.hocs.document.dto.camel.S3DocumentMetadata;
+import uk.gov.digital.ho.hocs.document.dto.camel.S3DocumentStream;
+import uk.gov.digital.ho.hocs.document.exception.ApplicationExceptions;
 import uk.gov.digital.ho.hocs.document.model.DocumentData;
 
-import java.util.HashSet;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 import static org.springframework.http.MediaType.APPLICATION_JSON_UTF8_VALUE;
+import static uk.gov.digital.ho.hocs.document.application.LogEvent.DOCUMENT_QUERY_INVALID;
 
 @Slf4j
 @RestController
 class DocumentDataResource {
 
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_RANGES = 10;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_LOOKUP_SIZE = 5000;
+    private static final int MAX_BULK_CREATE_SIZE = 5000;
+    private static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    private static final ObjectMapper NDJSON_MAPPER = SpringConfiguration.initialiseObjectMapper().disable(SerializationFeature.INDENT_OUTPUT);
+
     private final DocumentDataService documentDataService;
 
     @Autowired
@@ -36,21 +67,63 @@ class DocumentDataResource {
         return ResponseEntity.ok(documentData.getUuid());
     }
 
+    @PostMapping(value = "/documents", consumes = APPLICATION_JSON_UTF8_VALUE, produces = APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<CreateDocumentsResponse> createDocuments(@RequestBody CreateDocumentsRequest request) {
+        if (request.getDocuments() == null || request.getDocuments().isEmpty() || request.getDocuments().size() > MAX_BULK_CREATE_SIZE) {
+            throw new ApplicationExceptions.BadRequestException("documents must contain between 1 and %d documents", DOCUMENT_QUERY_INVALID, MAX_BULK_CREATE_SIZE);
+        }
+        List<DocumentData> documents = documentDataService.createDocuments(request.getDocuments());
+        return ResponseEntity.ok(CreateDocumentsResponse.from(documents));
+    }
+
     @GetMapping(value = "/document/reference/{externalReferenceUUID}", produces = APPLICATION_JSON_UTF8_VALUE)
     public ResponseEntity<GetDocumentsResponse> getDocumentsForCaseForType(@PathVariable UUID externalReferenceUUID, @RequestParam(name = "type", required = false) String type) {
-        Set<DocumentData> documents = new HashSet<>();
-        if(type == null) {
-            documents.addAll(documentDataService.getDocumentsByReference(externalReferenceUUID));
-        } else {
-           documents.addAll(documentDataService.getDocumentsByReferenceForType(externalReferenceUUID, type));
-        }
+        Set<DocumentDto> documents = type == null
+                ? documentDataService.getDocumentsByReference(externalReferenceUUID)
+                : documentDataService.getDocumentsByReferenceForType(externalReferenceUUID, type);
         return ResponseEntity.ok(GetDocumentsResponse.from(documents));
     }
 
+    @GetMapping(value = "/document/reference/{externalReferenceUUID}", params = "limit", produces = APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<GetDocumentsPageResponse> getDocumentsPageForCaseForType(@PathVariable UUID externalReferenceUUID,
+                                                                                   @RequestParam(name = "type", required = false) String type,
+                                                                                   @RequestParam(name = "limit") int limit,
+                                                                                   @RequestParam(name = "cursor", required = false) String cursor) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ApplicationExceptions.BadRequestException("limit must be between 1 and %d", DOCUMENT_QUERY_INVALID, MAX_PAGE_SIZE);
+        }
+        List<DocumentDto> documents = documentDataService.getDocumentsByReference(externalReferenceUUID, type, DocumentCursor.decode(cursor), limit + 1);
+        return ResponseEntity.ok(GetDocumentsPageResponse.from(documents, limit));
+    }
+
+    @GetMapping(value = "/document/reference/{externalReferenceUUID}/stream", produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamDocumentsForCaseForType(@PathVariable UUID externalReferenceUUID, @RequestParam(name = "type", required = false) String type) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE))
+                .body(outputStream -> {
+                    documentDataService.streamDocumentsByReference(externalReferenceUUID, type, documentData -> writeLine(documentData, outputStream));
+                    outputStream.flush();
+                });
+    }
+
     @GetMapping(value = "/document/{documentUUID}", produces = APPLICATION_JSON_UTF8_VALUE)
     public ResponseEntity<DocumentDto> getDocumentResourceLocation(@PathVariable UUID documentUUID) {
-        DocumentData document = documentDataService.getDocumentData(documentUUID);
-        return ResponseEntity.ok(DocumentDto.from(document));
+        return ResponseEntity.ok(documentDataService.getDocumentDto(documentUUID));
+    }
+
+    @PostMapping(value = "/documents/lookup", consumes = APPLICATION_JSON_UTF8_VALUE, produces = APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<DocumentLookupResponse> lookupDocuments(@RequestBody DocumentLookupRequest request) {
+        if (request.getUuids() == null || request.getUuids().isEmpty() || request.getUuids().size() > MAX_LOOKUP_SIZE) {
+            throw new ApplicationExceptions.BadRequestException("uuids must contain between 1 and %d document UUIDs", DOCUMENT_QUERY_INVALID, MAX_LOOKUP_SIZE);
+        }
+        Set<UUID> documentUUIDs = new LinkedHashSet<>(request.getUuids());
+        List<DocumentDto> documents = documentDataService.getDocumentDtos(documentUUIDs);
+        return ResponseEntity.ok(DocumentLookupResponse.from(documentUUIDs, documents));
+    }
+
+    @GetMapping(value = "/documents/pending", produces = APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<GetPendingDocumentsResponse> getPendingDocuments() {
+        return ResponseEntity.ok(documentDataService.getPendingDocuments());
     }
 
     @DeleteMapping(value = "/document/{documentUUID}")
@@ -60,31 +133,171 @@ class DocumentDataResource {
     }
 
     @GetMapping(value = "/document/{documentUUID}/file", produces = APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<ByteArrayResource> getDocumentFile(@PathVariable UUID documentUUID) {
-        S3Document document = documentDataService.getDocumentFile(documentUUID);
+    public ResponseEntity<StreamingResponseBody> getDocumentFile(@PathVariable UUID documentUUID, @RequestHeader HttpHeaders requestHeaders) {
+        return streamDocument(documentDataService.getDocumentFileMetadata(documentUUID), requestHeaders);
+    }
 
-        ByteArrayResource resource = new ByteArrayResource(document.getData());
-        MediaType mediaType = MediaType.valueOf(document.getMimeType());
+    @GetMapping(value = "/document/{documentUUID}/pdf", produces = APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<StreamingResponseBody> getDocumentPdf(@PathVariable UUID documentUUID, @RequestHeader HttpHeaders requestHeaders) {
+        return streamDocument(documentDataService.getDocumentPdfMetadata(documentUUID), requestHeaders);
+    }
 
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=" + document.getOriginalFilename())
+    private static void writeLine(DocumentData documentData, OutputStream outputStream) {
+        try {
+            outputStream.write(NDJSON_MAPPER.writeValueAsBytes(DocumentDto.from(documentData)));
+            outputStream.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Headers come from the metadata and the object is only opened once the body is written, so a request that
+     * fails or is abandoned before then never holds an S3 connection.
+     */
+    private ResponseEntity<StreamingResponseBody> streamDocument(S3DocumentMetadata metadata) {
+        MediaType mediaType = MediaType.valueOf(metadata.getMimeType());
+
+        return documentHeaders(ResponseEntity.ok(), metadata)
                 .contentType(mediaType)
-                .contentLength(document.getData().length)
-                .body(resource);
+                .contentLength(metadata.getContentLength())
+                .body(outputStream -> writeInChunks(documentDataService.getDocumentContent(metadata), outputStream));
     }
 
-    @GetMapping(value = "/document/{documentUUID}/pdf", produces = APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<ByteArrayResource> getDocumentPdf(@PathVariable UUID documentUUID) {
-        S3Document document = documentDataService.getDocumentPdf(documentUUID);
+    private ResponseEntity<StreamingResponseBody> streamDocument(S3DocumentMetadata metadata, HttpHeaders requestHeaders) {
+        if (isNotModified(metadata, requestHeaders)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(metadata.getETag())
+                    .lastModified(metadata.getLastModified().getTime())
+                    .build();
+        }
+        if (!requestHeaders.containsKey(HttpHeaders.RANGE)) {
+            return streamDocument(metadata);
+        }
+        return streamDocumentRanges(metadata, requestHeaders);
+    }
 
-        ByteArrayResource resource = new ByteArrayResource(document.getData());
-        MediaType mediaType = MediaType.valueOf(document.getMimeType());
+    private ResponseEntity<StreamingResponseBody> streamDocumentRanges(S3DocumentMetadata metadata, HttpHeaders requestHeaders) {
+        List<HttpRange> requestedRanges;
+        try {
+            requestedRanges = requestHeaders.getRange();
+        } catch (IllegalArgumentException e) {
+            return rangeNotSatisfiable(metadata);
+        }
 
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=" + document.getOriginalFilename())
-                .contentType(mediaType)
-                .contentLength(document.getData().length)
-                .body(resource);
+        if (requestedRanges.size() > MAX_RANGES || !isIfRangeSatisfied(metadata, requestHeaders)) {
+            return streamDocument(metadata);
+        }
+
+        // RFC 7233 4.4: only answer 416 when none of the ranges can be served, otherwise serve the ones that can
+        long length = metadata.getContentLength();
+        List<HttpRange> ranges = requestedRanges.stream()
+                .filter(range -> range.getRangeStart(length) < length)
+                .collect(Collectors.toList());
+        if (ranges.isEmpty()) {
+            return rangeNotSatisfiable(metadata);
+        }
+
+        ResponseEntity.BodyBuilder response = documentHeaders(ResponseEntity.status(HttpStatus.PARTIAL_CONTENT), metadata);
+
+        if (ranges.size() == 1) {
+            long start = ranges.get(0).getRangeStart(length);
+            long end = ranges.get(0).getRangeEnd(length);
+            return response
+                    .header(HttpHeaders.CONTENT_RANGE, contentRange(start, end, length))
+                    .contentType(MediaType.valueOf(metadata.getMimeType()))
+                    .contentLength(end - start + 1)
+                    .body(outputStream -> writeInChunks(documentDataService.getDocumentContent(metadata, start, end), outputStream));
+        }
+
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        return response
+                .contentType(MediaType.parseMediaType("multipart/byteranges; boundary=" + boundary))
+                .body(outputStream -> writeMultipartByteRanges(metadata, ranges, boundary, outputStream));
+    }
+
+    private void writeMultipartByteRanges(S3DocumentMetadata metadata, List<HttpRange> ranges, String boundary, OutputStream outputStream) throws IOException {
+        long length = metadata.getContentLength();
+        for (HttpRange range : ranges) {
+            long start = range.getRangeStart(length);
+            long end = range.getRangeEnd(length);
+            String partHeaders = "\r\n--" + boundary + "\r\n" +
+                    HttpHeaders.CONTENT_TYPE + ": " + metadata.getMimeType() + "\r\n" +
+                    HttpHeaders.CONTENT_RANGE + ": " + contentRange(start, end, length) + "\r\n\r\n";
+            outputStream.write(partHeaders.getBytes(StandardCharsets.US_ASCII));
+            writeInChunks(documentDataService.getDocumentContent(metadata, start, end), outputStream);
+        }
+        outputStream.write(("\r\n--" + boundary + "--").getBytes(StandardCharsets.US_ASCII));
+        outputStream.flush();
+    }
+
+    private static ResponseEntity.BodyBuilder documentHeaders(ResponseEntity.BodyBuilder response, S3DocumentMetadata metadata) {
+        response.header(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=" + metadata.getOriginalFilename())
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (metadata.getETag() != null) {
+            response.eTag(metadata.getETag());
+        }
+        if (metadata.getLastModified() != null) {
+            response.lastModified(metadata.getLastModified().getTime());
+        }
+        return response;
+    }
+
+    private static boolean isNotModified(S3DocumentMetadata metadata, HttpHeaders requestHeaders) {
+        if (metadata.getETag() == null || metadata.getLastModified() == null) {
+            return false;
+        }
+        if (requestHeaders.containsKey(HttpHeaders.IF_NONE_MATCH)) {
+            String eTag = "\"" + metadata.getETag() + "\"";
+            return requestHeaders.getIfNoneMatch().stream()
+                    .map(tag -> tag.startsWith("W/") ? tag.substring(2) : tag)
+                    .anyMatch(tag -> tag.equals("*") || tag.equals(eTag));
+        }
+        try {
+            long ifModifiedSince = requestHeaders.getIfModifiedSince();
+            return ifModifiedSince != -1 && metadata.getLastModified().getTime() / 1000 <= ifModifiedSince / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static boolean isIfRangeSatisfied(S3DocumentMetadata metadata, HttpHeaders requestHeaders) {
+        String ifRange = requestHeaders.getFirst(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"")) {
+            return metadata.getETag() != null && ifRange.equals("\"" + metadata.getETag() + "\"");
+        }
+        if (ifRange.startsWith("W/") || metadata.getLastModified() == null) {
+            return false;
+        }
+        try {
+            return requestHeaders.getFirstDate(HttpHeaders.IF_RANGE) / 1000 == metadata.getLastModified().getTime() / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static ResponseEntity<StreamingResponseBody> rangeNotSatisfiable(S3DocumentMetadata metadata) {
+        return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                .header(HttpHeaders.CONTENT_RANGE, "bytes */" + metadata.getContentLength())
+                .build();
+    }
+
+    private static String contentRange(long start, long end, long length) {
+        return String.format("bytes %d-%d/%d", start, end, length);
+    }
+
+    private static void writeInChunks(S3DocumentStream document, OutputStream outputStream) throws IOException {
+        try (InputStream content = document.getContent()) {
+            byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+            int bytesRead;
+            while ((bytesRead = content.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, bytesRead);
+            }
+            outputStream.flush();
+        }
     }
 
 }
\ No newline at end of file
@@ -1,22 +1,44 @@
 package uk.gov.digital.ho.hocs.document;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import uk.gov.digital.ho.hocs.document.aws.S3DocumentService;
 import uk.gov.digital.ho.hocs.document.client.auditclient.AuditClient;
 import uk.gov.digital.ho.hocs.document.client.documentclient.DocumentClient;
-import uk.gov.digital.ho.hocs.document.dto.camel.S3Document;
+import uk.gov.digital.ho.hocs.document.client.documentclient.dto.ProcessDocumentRequest;
+import uk.gov.digital.ho.hocs.document.dto.CreateDocumentRequest;
+import uk.gov.digital.ho.hocs.document.dto.DocumentCursor;
+import uk.gov.digital.ho.hocs.document.dto.DocumentDto;
+import uk.gov.digital.ho.hocs.document.dto.GetPendingDocumentsResponse;
+import uk.gov.digital.ho.hocs.document.dto.camel.S3DocumentMetadata;
+import uk.gov.digital.ho.hocs.document.dto.camel.S3DocumentStream;
 import uk.gov.digital.ho.hocs.document.exception.ApplicationExceptions;
 import uk.gov.digital.ho.hocs.document.model.DocumentData;
 import uk.gov.digital.ho.hocs.document.model.DocumentStatus;
 import uk.gov.digital.ho.hocs.document.model.DocumentType;
 import uk.gov.digital.ho.hocs.document.repository.DocumentRepository;
 
-import java.io.IOException;
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import static net.logstash.logback.argument.StructuredArguments.value;
 import static uk.gov.digital.ho.hocs.document.application.LogEvent.*;
@@ -25,16 +47,25 @@ import static uk.gov.digital.ho.hocs.document.application.LogEvent.*;
 @Slf4j
 public class DocumentDataService {
 
+    private static final int BULK_CREATE_CHUNK_SIZE = 500;
+    private static final Duration[] PROCESSING_SLOS = {Duration.ofSeconds(10), Duration.ofSeconds(30), Duration.ofMinutes(1),
+            Duration.ofMinutes(2), Duration.ofMinutes(5), Duration.ofMinutes(10), Duration.ofMinutes(30), Duration.ofHours(1)};
+    private static final Duration[] PENDING_AGES = {Duration.ofMinutes(5), Duration.ofMinutes(15), Duration.ofHours(1), Duration.ofHours(24)};
+
     private final DocumentRepository documentRepository;
     private final S3DocumentService s3DocumentService;
     private final AuditClient auditClient;
     private final DocumentClient documentClient;
+    private final EntityManager entityManager;
+    private final MeterRegistry meterRegistry;
     private boolean auditActive;
 
 
     @Autowired
-    public DocumentDataService(DocumentRepository documentRepository, S3DocumentService s3DocumentService, AuditClient auditClient, DocumentClient documentClient, @Value("${audit.active:true}") boolean auditActive){
+    public DocumentDataService(DocumentRepository documentRepository, S3DocumentService s3DocumentService, AuditClient auditClient, DocumentClient documentClient, EntityManager entityManager, MeterRegistry meterRegistry, @Value("${audit.active:true}") boolean auditActive){
         this.documentRepository = documentRepository;
+        this.entityManager = entityManager;
+        this.meterRegistry = meterRegistry;
         this.s3DocumentService = s3DocumentService;
         this.auditClient = auditClient;
         this.documentClient = documentClient;
@@ -51,15 +82,89 @@ public class DocumentDataService {
         return documentData;
     }
 
+    /**
+     * Inserts all of the documents in one transaction, flushing in chunks so that Hibernate can batch the
+     * inserts, then queues them for processing once the transaction has committed. Either every document
+     * is created or none are, but queueing is best effort: a message that cannot be sent is counted in
+     * documents.dispatch.failed and its document is left PENDING (see /documents/pending) to be requeued.
+     */
+    @Transactional
+    public List<DocumentData> createDocuments(List<CreateDocumentRequest> requests) {
+        log.debug("Creating {} Documents", requests.size());
+        List<DocumentData> documents = new ArrayList<>(requests.size());
+        for (CreateDocumentRequest request : requests) {
+            documents.add(new DocumentData(request.getExternalReferenceUUID(), request.getType(), request.getName()));
+        }
+
+        for (int start = 0; start < documents.size(); start += BULK_CREATE_CHUNK_SIZE) {
+            documentRepository.saveAll(documents.subList(start, Math.min(start + BULK_CREATE_CHUNK_SIZE, documents.size())));
+            entityManager.flush();
+            entityManager.clear();
+        }
+
+        afterCommit(() -> queueDocuments(documents, requests));
+        log.info("Created {} Documents", documents.size(), value(EVENT, DOCUMENT_CREATED));
+        return documents;
+    }
+
+    private void queueDocuments(List<DocumentData> documents, List<CreateDocumentRequest> requests) {
+        for (int start = 0; start < documents.size(); start += BULK_CREATE_CHUNK_SIZE) {
+            int end = Math.min(start + BULK_CREATE_CHUNK_SIZE, documents.size());
+            List<ProcessDocumentRequest> processRequests = new ArrayList<>(end - start);
+            for (int i = start; i < end; i++) {
+                processRequests.add(new ProcessDocumentRequest(documents.get(i).getUuid(), requests.get(i).getFileLink()));
+            }
+            documentClient.processDocuments(processRequests);
+        }
+        if(auditActive) {documents.forEach(auditClient::createDocumentAudit);}
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
     public void updateDocument(UUID documentUUID, DocumentStatus status, String fileLink, String pdfLink) {
         log.debug("Updating Document: {}", documentUUID);
         DocumentData documentData = getDocumentData(documentUUID);
+        DocumentStatus previousStatus = documentData.getStatus();
         documentData.update(fileLink, pdfLink, status);
         auditClient.updateDocumentAudit(documentData);
         documentRepository.save(documentData);
+        if (previousStatus == DocumentStatus.PENDING && status != DocumentStatus.PENDING) {
+            recordProcessingTime(documentData);
+        }
         log.info("Updated Document: {} to status {}", documentData.getUuid(), documentData.getStatus(), value(EVENT, DOCUMENT_UPDATED));
     }
 
+    private void recordProcessingTime(DocumentData documentData) {
+        Timer.builder("documents.processing")
+                .description("Time from document creation to leaving PENDING")
+                .tags("type", documentData.getType().toString(), "status", documentData.getStatus().toString())
+                .sla(PROCESSING_SLOS)
+                .register(meterRegistry)
+                .record(Duration.between(documentData.getCreated(), documentData.getUpdated()));
+    }
+
+    @Transactional(readOnly = true)
+    public GetPendingDocumentsResponse getPendingDocuments() {
+        String pending = DocumentStatus.PENDING.toString();
+        LocalDateTime now = LocalDateTime.now();
+        Map<String, Long> olderThan = new LinkedHashMap<>();
+        for (Duration age : PENDING_AGES) {
+            olderThan.put(age.toString(), documentRepository.countByStatusAndCreatedBefore(pending, now.minus(age)));
+        }
+        return new GetPendingDocumentsResponse(documentRepository.countByStatus(pending), documentRepository.findOldestCreatedByStatus(pending), olderThan);
+    }
+
     public DocumentData getDocumentData(String documentUUID) {
         return getDocumentData(UUID.fromString(documentUUID));
     }
@@ -73,12 +178,52 @@ public class DocumentDataService {
         }
     }
 
-    public Set<DocumentData> getDocumentsByReference(UUID externalReferenceUUID) {
-        return documentRepository.findAllByExternalReferenceUUID(externalReferenceUUID);
+    @Transactional(readOnly = true)
+    public DocumentDto getDocumentDto(UUID documentUUID) {
+        DocumentDto documentDto = documentRepository.findDtoByUuid(documentUUID);
+        if (documentDto != null) {
+            return documentDto;
+        } else {
+            throw new ApplicationExceptions.EntityNotFoundException(String.format("Document UUID: %s not found!", documentUUID), DOCUMENT_NOT_FOUND);
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public List<DocumentDto> getDocumentDtos(Collection<UUID> documentUUIDs) {
+        log.debug("Looking up {} Documents", documentUUIDs.size());
+        return documentRepository.findAllDtosByUuidIn(documentUUIDs);
     }
 
-    public Set<DocumentData> getDocumentsByReferenceForType(UUID externalReferenceUUID, String type) {
-        return documentRepository.findAllByExternalReferenceUUIDAndType(externalReferenceUUID,type);
+    @Transactional(readOnly = true)
+    public Set<DocumentDto> getDocumentsByReference(UUID externalReferenceUUID) {
+        return documentRepository.findAllDtosByExternalReferenceUUID(externalReferenceUUID);
+    }
+
+    @Transactional(readOnly = true)
+    public Set<DocumentDto> getDocumentsByReferenceForType(UUID externalReferenceUUID, String type) {
+        return documentRepository.findAllDtosByExternalReferenceUUIDAndType(externalReferenceUUID,type);
+    }
+
+    @Transactional(readOnly = true)
+    public List<DocumentDto> getDocumentsByReference(UUID externalReferenceUUID, String type, DocumentCursor after, int limit) {
+        Pageable page = PageRequest.of(0, limit);
+        if (type == null) {
+            return documentRepository.findPageByExternalReferenceUUID(externalReferenceUUID, after.getCreated(), after.getId(), page);
+        }
+        return documentRepository.findPageByExternalReferenceUUIDAndType(externalReferenceUUID, type, after.getCreated(), after.getId(), page);
+    }
+
+    @Transactional(readOnly = true)
+    public void streamDocumentsByReference(UUID externalReferenceUUID, String type, Consumer<DocumentData> consumer) {
+        try (Stream<DocumentData> documents = type == null
+                ? documentRepository.streamAllByExternalReferenceUUID(externalReferenceUUID)
+                : documentRepository.streamAllByExternalReferenceUUIDAndType(externalReferenceUUID, type)) {
+            documents.forEach(documentData -> {
+                consumer.accept(documentData);
+                // keep the persistence context from growing with every row read
+                entityManager.detach(documentData);
+            });
+        }
     }
 
     public void deleteDocument(UUID documentUUID) {
@@ -89,23 +234,24 @@ public class DocumentDataService {
         log.info("Set Document to deleted: {}", documentUUID, value(EVENT, DOCUMENT_DELETED));
     }
 
-    public S3Document getDocumentFile(UUID documentUUID) {
+    public S3DocumentMetadata getDocumentFileMetadata(UUID documentUUID) {
         DocumentData documentData = getDocumentData(documentUUID);
-        try {
-            log.debug("Getting Document File: {}", documentUUID);
-            return s3DocumentService.getFileFromTrustedS3(documentData.getFileLink());
-        } catch (IOException e) {
-            throw new ApplicationExceptions.EntityNotFoundException(e.getMessage(),DOCUMENT_NOT_FOUND);
-        }
+        log.debug("Getting Document File metadata: {}", documentUUID);
+        return s3DocumentService.getFileMetadataFromTrustedS3(documentData.getFileLink());
     }
 
-    public S3Document getDocumentPdf(UUID documentUUID) {
+    public S3DocumentMetadata getDocumentPdfMetadata(UUID documentUUID) {
         DocumentData documentData = getDocumentData(documentUUID);
-        try{
-            log.debug("Getting Document PDF: {}", documentUUID);
-            return s3DocumentService.getFileFromTrustedS3(documentData.getPdfLink());
-        } catch (IOException e) {
-            throw new ApplicationExceptions.EntityNotFoundException(e.getMessage(), DOCUMENT_NOT_FOUND);
-        }
+        log.debug("Getting Document PDF metadata: {}", documentUUID);
+        return s3DocumentService.getFileMetadataFromTrustedS3(documentData.getPdfLink());
+    }
+
+    public S3DocumentStream getDocumentContent(S3DocumentMetadata metadata) {
+        return s3DocumentService.getFileStreamFromTrustedS3(metadata.getKey());
+    }
+
+    public S3DocumentStream getDocumentContent(S3DocumentMetadata metadata, long start, long end) {
+        log.debug("Getting bytes {}-{} of {}", start, end, metadata.getKey());
+        return s3DocumentService.getFileStreamFromTrustedS3(metadata.getKey(), start, end);
     }
 }
\ No newline at end of file
@@ -6,10 +6,10 @@ import org.apache.camel.Processor;
 import org.apache.http.entity.mime.HttpMultipartMode;
 import org.apache.http.entity.mime.MultipartEntityBuilder;
 import org.apache.http.entity.mime.content.ContentBody;
-import org.apache.http.entity.mime.content.InputStreamBody;
 import uk.gov.digital.ho.hocs.document.dto.camel.S3Document;
 
-import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.function.Function;
 
 import static org.apache.camel.builder.Builder.header;
 
@@ -18,10 +18,14 @@ public class HttpProcessors {
     private HttpProcessors() {
     }
 
-    public static Processor buildMultipartEntity() {
+    /**
+     * Builds the multipart request for the document in the body, streaming the file part from contentSource when the
+     * request is sent rather than from the document's data.
+     */
+    public static Processor buildMultipartEntity(Function<Exchange, InputStream> contentSource) {
         return exchange -> {
             S3Document response = exchange.getIn().getBody(S3Document.class);
-            ContentBody content = new InputStreamBody(new ByteArrayInputStream(response.getData()), response.getFilename());
+            ContentBody content = new StreamingContentBody(() -> contentSource.apply(exchange), response.getFilename());
             MultipartEntityBuilder multipartEntityBuilder = MultipartEntityBuilder.create()
                     .setMode(HttpMultipartMode.BROWSER_COMPATIBLE)
                     .addPart("file", content)
@@ -0,0 +1,63 @@
+package uk.gov.digital.ho.hocs.document;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import uk.gov.digital.ho.hocs.document.model.MalwareScanResult;
+import uk.gov.digital.ho.hocs.document.repository.MalwareScanResultRepository;
+
+import static net.logstash.logback.argument.StructuredArguments.value;
+import static uk.gov.digital.ho.hocs.document.application.LogEvent.*;
+
+/**
+ * Remembers the SHA-256 of content ClamAV has passed as clean, so repeat uploads can skip the scan.
+ * Results only count for the signature database they were scanned against; leaving
+ * clamav.signatureVersion blank turns the lookup off and every file is scanned.
+ */
+@Service
+@Slf4j
+public class MalwareScanResultService {
+
+    private final MalwareScanResultRepository malwareScanResultRepository;
+    private final String signatureVersion;
+
+    @Autowired
+    public MalwareScanResultService(MalwareScanResultRepository malwareScanResultRepository,
+                                    @Value("${clamav.signatureVersion}") String signatureVersion) {
+        this.malwareScanResultRepository = malwareScanResultRepository;
+        this.signatureVersion = signatureVersion;
+    }
+
+    public boolean isKnownClean(String contentHash) {
+        if (!isEnabled(contentHash)) {
+            return false;
+        }
+        boolean knownClean = malwareScanResultRepository.existsByContentHashAndSignatureVersion(contentHash, signatureVersion);
+        if (knownClean) {
+            log.info("Content {} already scanned clean against signatures {}", contentHash, signatureVersion, value(EVENT, MALWARE_SCAN_SKIPPED));
+        }
+        return knownClean;
+    }
+
+    public void recordClean(String contentHash) {
+        if (!isEnabled(contentHash) || malwareScanResultRepository.existsByContentHashAndSignatureVersion(contentHash, signatureVersion)) {
+            return;
+        }
+        try {
+            malwareScanResultRepository.save(new MalwareScanResult(contentHash, signatureVersion));
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Scan result for {} already recorded", contentHash);
+        }
+    }
+
+    public boolean isEnabled() {
+        return StringUtils.hasText(signatureVersion);
+    }
+
+    private boolean isEnabled(String contentHash) {
+        return isEnabled() && StringUtils.hasText(contentHash);
+    }
+}
@@ -0,0 +1,55 @@
+package uk.gov.digital.ho.hocs.document;
+
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.mime.MIME;
+import org.apache.http.entity.mime.content.AbstractContentBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.function.Supplier;
+
+/**
+ * Multipart file part that opens its content only when the request body is written and copies it through a fixed
+ * buffer. The length is unknown up front so the request goes out chunked, and each write opens a fresh stream so a
+ * redelivered exchange sends the whole document again.
+ */
+class StreamingContentBody extends AbstractContentBody {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Supplier<InputStream> content;
+    private final String filename;
+
+    StreamingContentBody(Supplier<InputStream> content, String filename) {
+        super(ContentType.DEFAULT_BINARY);
+        this.content = content;
+        this.filename = filename;
+    }
+
+    @Override
+    public String getFilename() {
+        return filename;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        try (InputStream in = content.get()) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        }
+    }
+
+    @Override
+    public String getTransferEncoding() {
+        return MIME.ENC_BINARY;
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+}
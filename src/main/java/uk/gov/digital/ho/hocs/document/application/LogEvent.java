@@ -4,11 +4,14 @@ public enum LogEvent {
     DOCUMENT_CREATED,
     DOCUMENT_CREATION_FAILURE,
     DOCUMENT_CONVERSION_FAILURE,
+    DOCUMENT_CONVERSION_SKIPPED,
     DOCUMENT_DELETED,
     DOCUMENT_UPDATED,
     DOCUMENT_UDPATE_FAILURE,
     DOCUMENT_NOT_FOUND,
+    DOCUMENT_QUERY_INVALID,
     DOCUMENT_VIRUS_SCAN_FAILURE,
+    MALWARE_SCAN_SKIPPED,
     DOCUMENT_CLIENT_PROCESS_SUCCESS,
     DOCUMENT_CLIENT_FAILURE,
 
@@ -19,6 +22,7 @@ public enum LogEvent {
 
     AUDIT_EVENT_CREATED,
     AUDIT_FAILED,
+    AUDIT_EVENT_DROPPED,
 
     UNCAUGHT_EXCEPTION;
     
@@ -1,20 +1,101 @@
 package uk.gov.digital.ho.hocs.document.application;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.AsyncConfigurer;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
+import java.util.Optional;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
+@Slf4j
 @Configuration
 public class SpringAsyncConfig implements AsyncConfigurer {
 
-    @Override
-    public Executor getAsyncExecutor() {
+    private static final String DOCUMENT_DISPATCH = "document-dispatch";
+
+    private final MeterRegistry meterRegistry;
+    private final int corePoolSize;
+    private final int maxPoolSize;
+    private final int queueCapacity;
+    private final int awaitTerminationSeconds;
+    private final boolean virtualThreads;
+    private final Optional<VirtualThreadLimit> virtualThreadLimit;
+
+    public SpringAsyncConfig(MeterRegistry meterRegistry,
+                             @Value("${docs.async.dispatch.corePoolSize}") int corePoolSize,
+                             @Value("${docs.async.dispatch.maxPoolSize}") int maxPoolSize,
+                             @Value("${docs.async.dispatch.queueCapacity}") int queueCapacity,
+                             @Value("${docs.async.dispatch.awaitTerminationSeconds}") int awaitTerminationSeconds,
+                             @Value("${docs.threads.virtual}") boolean virtualThreads,
+                             Optional<VirtualThreadLimit> virtualThreadLimit) {
+        this.meterRegistry = meterRegistry;
+        this.corePoolSize = corePoolSize;
+        this.maxPoolSize = maxPoolSize;
+        this.queueCapacity = queueCapacity;
+        this.awaitTerminationSeconds = awaitTerminationSeconds;
+        this.virtualThreads = virtualThreads;
+        this.virtualThreadLimit = virtualThreadLimit;
+    }
+
+    /**
+     * Bounded pool for @Async document dispatch. When the queue is full the caller runs the task itself,
+     * which slows callers down instead of letting work pile up; on shutdown queued tasks are drained and
+     * anything dispatched after shutdown has started also runs on the caller rather than being dropped.
+     * On virtual threads each task also holds a permit from the limit shared with the Camel pools.
+     * Defining this bean stops Spring Boot creating applicationTaskExecutor, so MVC async support gets its own
+     * executor in StreamingResponseConfig.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor documentDispatchExecutor() {
+        Counter rejected = meterRegistry.counter("executor.rejected", Tags.of("name", DOCUMENT_DISPATCH));
+        Timer latency = meterRegistry.timer("executor.latency", Tags.of("name", DOCUMENT_DISPATCH));
+
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setThreadNamePrefix("ContextAwareExecutor-");
+        if (virtualThreads) {
+            executor.setThreadFactory(VirtualThreads.threadFactory("ContextAwareExecutor-"));
+        }
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(maxPoolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setRejectedExecutionHandler((task, pool) -> {
+            rejected.increment();
+            if (pool.isShutdown()) {
+                log.warn("Document dispatch executor is shutting down, running dispatch on the calling thread");
+            }
+            task.run();
+        });
+        executor.setTaskDecorator(task -> {
+            long submitted = System.nanoTime();
+            Runnable limited = virtualThreadLimit.map(limit -> limit.decorate(task)).orElse(task);
+            return () -> {
+                try {
+                    limited.run();
+                } finally {
+                    latency.record(System.nanoTime() - submitted, TimeUnit.NANOSECONDS);
+                }
+            };
+        });
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(awaitTerminationSeconds);
         executor.initialize();
-        return new ContextAwareExecutorDecorator(executor);
+        return executor;
+    }
+
+    @Override
+    public Executor getAsyncExecutor() {
+        ThreadPoolTaskExecutor executor = documentDispatchExecutor();
+        return new ContextAwareExecutorDecorator(
+                ExecutorServiceMetrics.monitor(meterRegistry, executor.getThreadPoolExecutor(), DOCUMENT_DISPATCH));
     }
-     
-}
\ No newline at end of file
+
+}
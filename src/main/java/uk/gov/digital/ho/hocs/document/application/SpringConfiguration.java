@@ -4,7 +4,9 @@ import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.camel.CamelContext;
+import org.apache.camel.component.micrometer.routepolicy.MicrometerRoutePolicyFactory;
 import org.apache.camel.component.jackson.JacksonDataFormat;
 import org.apache.camel.spring.boot.CamelContextConfiguration;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
@@ -38,7 +40,7 @@ public class SpringConfiguration implements WebMvcConfigurer {
             @Override
             public void beforeApplicationStart(CamelContext context) {
                 context.setUseMDCLogging(true);
-                context.setStreamCaching(true);
+                // stream caching and its spool policy are set by the camel.springboot.streamCaching* properties
             }
 
             @Override
@@ -48,6 +50,16 @@ public class SpringConfiguration implements WebMvcConfigurer {
         };
     }
 
+    /**
+     * Times every route (document-queue, malware-queue, conversion-queue, ...) tagged by routeId.
+     */
+    @Bean
+    public MicrometerRoutePolicyFactory routePolicyFactory(MeterRegistry meterRegistry) {
+        MicrometerRoutePolicyFactory factory = new MicrometerRoutePolicyFactory();
+        factory.setMeterRegistry(meterRegistry);
+        return factory;
+    }
+
     @Bean
     public RestTemplate createRestTemplate() {
         return new RestTemplate();
@@ -0,0 +1,80 @@
+package uk.gov.digital.ho.hocs.document.application;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * StreamingResponseBody downloads are written on the MVC async executor. Spring Boot only provides one when the
+ * context has no other Executor bean, and documentDispatchExecutor is one, so without this MVC would fall back
+ * to a SimpleAsyncTaskExecutor that starts an unbounded thread per download.
+ */
+@Slf4j
+@Configuration
+public class StreamingResponseConfig implements WebMvcConfigurer {
+
+    private static final String STREAMING_RESPONSE = "streaming-response";
+
+    private final MeterRegistry meterRegistry;
+    private final int corePoolSize;
+    private final int maxPoolSize;
+    private final int queueCapacity;
+    private final long timeoutMillis;
+    private final boolean virtualThreads;
+
+    public StreamingResponseConfig(MeterRegistry meterRegistry,
+                                   @Value("${docs.async.streaming.corePoolSize}") int corePoolSize,
+                                   @Value("${docs.async.streaming.maxPoolSize}") int maxPoolSize,
+                                   @Value("${docs.async.streaming.queueCapacity}") int queueCapacity,
+                                   @Value("${docs.async.streaming.timeoutMillis}") long timeoutMillis,
+                                   @Value("${docs.threads.virtual}") boolean virtualThreads) {
+        this.meterRegistry = meterRegistry;
+        this.corePoolSize = corePoolSize;
+        this.maxPoolSize = maxPoolSize;
+        this.queueCapacity = queueCapacity;
+        this.timeoutMillis = timeoutMillis;
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * Bounded pool for writing response bodies. When it is saturated the request thread writes the body itself,
+     * so a burst of downloads slows down instead of starting a thread each.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor streamingResponseExecutor() {
+        Counter rejected = meterRegistry.counter("executor.rejected", Tags.of("name", STREAMING_RESPONSE));
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("streaming-response-");
+        if (virtualThreads) {
+            executor.setThreadFactory(VirtualThreads.threadFactory("streaming-response-"));
+        }
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(maxPoolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setRejectedExecutionHandler((task, pool) -> {
+            rejected.increment();
+            if (pool.isShutdown()) {
+                log.warn("Streaming response executor is shutting down, writing response on the request thread");
+            }
+            task.run();
+        });
+        executor.initialize();
+        ExecutorServiceMetrics.monitor(meterRegistry, executor.getThreadPoolExecutor(), STREAMING_RESPONSE);
+        return executor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(streamingResponseExecutor());
+        configurer.setDefaultTimeout(timeoutMillis);
+    }
+}
@@ -0,0 +1,155 @@
+package uk.gov.digital.ho.hocs.document.application;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.camel.CamelContext;
+import org.apache.camel.impl.DefaultThreadPoolFactory;
+import org.apache.camel.spi.ThreadPoolFactory;
+import org.apache.camel.util.concurrent.RejectableThreadPoolExecutor;
+import org.apache.camel.spi.ThreadPoolProfile;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.undertow.UndertowServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opt-in mode (docs.threads.virtual=true, JDK 21+) that runs Undertow servlet requests, Camel worker pools and
+ * @Async dispatch on virtual threads. Pool sizes and queue bounds are unchanged, so concurrency is still capped by
+ * configuration rather than by how many platform threads fit in memory.
+ * <p>
+ * Every virtual thread runs on the same carrier pool, one carrier per core unless jdk.virtualThreadScheduler.parallelism
+ * says otherwise, and a task blocked in synchronized SDK code pins its carrier whichever pool it came from. Pipeline
+ * stage and dispatch tasks therefore share a {@link VirtualThreadLimit} kept below the carrier count; raise
+ * jdk.virtualThreadScheduler.parallelism (and maxPoolSize with it) in JAVA_OPTS to let more of them block at once.
+ * Camel's scheduled pools, which hold the SQS long polls, stay on platform threads.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "docs.threads.virtual", havingValue = "true")
+public class VirtualThreadConfiguration {
+
+    @Bean
+    public static VirtualThreadLimit virtualThreadLimit(@Value("${docs.threads.virtual.maxBlockingTasks}") int maxBlockingTasks) {
+        if (!VirtualThreads.isSupported()) {
+            throw new BeanCreationException(String.format("docs.threads.virtual is set but virtual threads need JDK 21 or later, running on %s", System.getProperty("java.version")));
+        }
+        return VirtualThreadLimit.forCarriers(maxBlockingTasks);
+    }
+
+    @Bean
+    public static BeanPostProcessor virtualThreadCamelPools(VirtualThreadLimit virtualThreadLimit) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // before RoutesCollector adds the routes, so the pipeline stage pools are covered too
+                if (bean instanceof CamelContext) {
+                    ((CamelContext) bean).getExecutorServiceManager().setThreadPoolFactory(new VirtualThreadPoolFactory(VirtualThreads.threadFactory("camel-"), virtualThreadLimit));
+                    log.info("Camel thread pools will use virtual threads");
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public WebServerFactoryCustomizer<UndertowServletWebServerFactory> virtualThreadUndertow(@Value("${docs.threads.virtual.maxRequests}") int maxRequests) {
+        Executor executor = requestExecutor(VirtualThreads.threadFactory("undertow-"), new VirtualThreadLimit(maxRequests));
+        return factory -> factory.addDeploymentInfoCustomizers(deploymentInfo -> deploymentInfo.setExecutor(executor));
+    }
+
+    /**
+     * Starts a virtual thread per request, but at most maxRequests of them handle a request at once; the rest park
+     * waiting for a permit, in arrival order, which keeps Undertow's IO threads free to accept work.
+     */
+    static Executor requestExecutor(ThreadFactory threadFactory, VirtualThreadLimit requestLimit) {
+        return task -> threadFactory.newThread(requestLimit.decorate(task)).start();
+    }
+
+    /**
+     * Builds the same pools as Camel's default factory but with virtual threads in place of Camel's thread factory.
+     * Tasks in pools whose profile is marked as limited hold a permit from the shared limit while they run; other
+     * pools, such as seda consumers that poll for as long as the route is up, are left alone.
+     */
+    static class VirtualThreadPoolFactory implements ThreadPoolFactory {
+
+        private final ThreadPoolFactory delegate = new DefaultThreadPoolFactory();
+        private final ThreadFactory threadFactory;
+        private final VirtualThreadLimit limit;
+
+        VirtualThreadPoolFactory(ThreadFactory threadFactory, VirtualThreadLimit limit) {
+            this.threadFactory = threadFactory;
+            this.limit = limit;
+        }
+
+        @Override
+        public ExecutorService newCachedThreadPool(ThreadFactory ignored) {
+            return delegate.newCachedThreadPool(threadFactory);
+        }
+
+        @Override
+        public ExecutorService newThreadPool(ThreadPoolProfile profile, ThreadFactory ignored) {
+            ExecutorService executor = delegate.newThreadPool(profile, threadFactory);
+            return VirtualThreadLimit.isLimited(profile) ? limited(executor) : executor;
+        }
+
+        @Override
+        public ScheduledExecutorService newScheduledThreadPool(ThreadPoolProfile profile, ThreadFactory camelThreadFactory) {
+            return delegate.newScheduledThreadPool(profile, camelThreadFactory);
+        }
+
+        private ExecutorService limited(ExecutorService executor) {
+            if (!(executor instanceof ThreadPoolExecutor)) {
+                return executor;
+            }
+            // Camel sizes and configures the pool, the copy only adds the permit around each task
+            ThreadPoolExecutor template = (ThreadPoolExecutor) executor;
+            ThreadPoolExecutor pool = new LimitedThreadPoolExecutor(template.getCorePoolSize(), template.getMaximumPoolSize(),
+                    template.getKeepAliveTime(TimeUnit.NANOSECONDS), template.getQueue(), template.getThreadFactory(),
+                    template.getRejectedExecutionHandler(), limit);
+            pool.allowCoreThreadTimeOut(template.allowsCoreThreadTimeOut());
+            template.shutdown();
+            return pool;
+        }
+    }
+
+    static class LimitedThreadPoolExecutor extends RejectableThreadPoolExecutor {
+
+        private final VirtualThreadLimit limit;
+
+        LimitedThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveNanos, BlockingQueue<Runnable> queue,
+                                  ThreadFactory threadFactory, RejectedExecutionHandler handler, VirtualThreadLimit limit) {
+            super(corePoolSize, maximumPoolSize, keepAliveNanos, TimeUnit.NANOSECONDS, queue, threadFactory, handler);
+            this.limit = limit;
+        }
+
+        @Override
+        protected void beforeExecute(Thread thread, Runnable task) {
+            super.beforeExecute(thread, task);
+            try {
+                limit.acquire();
+            } catch (InterruptedException e) {
+                // only shutdownNow interrupts a worker here, and it has already discarded the queue
+                thread.interrupt();
+                throw new IllegalStateException("Interrupted waiting to run on a virtual thread", e);
+            }
+        }
+
+        @Override
+        protected void afterExecute(Runnable task, Throwable failure) {
+            limit.release();
+            super.afterExecute(task, failure);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package uk.gov.digital.ho.hocs.document.application;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.camel.spi.ThreadPoolProfile;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Caps how many pipeline stage and dispatch tasks run at once on virtual threads. All virtual threads share one carrier pool sized by
+ * jdk.virtualThreadScheduler.parallelism (one carrier per core by default), and a task blocked on I/O inside
+ * synchronized SDK code pins its carrier for the length of the call. Keeping the permits below the carrier count
+ * means pinned tasks can never take every carrier, so Undertow requests always have one to run on. Tasks waiting
+ * for a permit park without pinning.
+ */
+@Slf4j
+public class VirtualThreadLimit {
+
+    /**
+     * Camel thread pool profiles with this prefix get the limit; the rest of Camel's pools do not.
+     */
+    public static final String LIMITED_PROFILE_PREFIX = "limited-";
+
+    static final String PARALLELISM_PROPERTY = "jdk.virtualThreadScheduler.parallelism";
+
+    private final Semaphore permits;
+    private final int maxTasks;
+
+    public VirtualThreadLimit(int maxTasks) {
+        this.maxTasks = maxTasks;
+        this.permits = new Semaphore(maxTasks, true);
+    }
+
+    /**
+     * @param configured docs.threads.virtual.maxBlockingTasks, where 0 leaves one carrier free
+     */
+    public static VirtualThreadLimit forCarriers(int configured) {
+        int carriers = carriers();
+        int maxTasks = configured > 0 ? configured : Math.max(1, carriers - 1);
+        if (maxTasks >= carriers) {
+            log.warn("{} blocking tasks can pin all {} virtual thread carriers, raise {} to keep one free for requests",
+                    maxTasks, carriers, PARALLELISM_PROPERTY);
+        } else {
+            log.info("Running at most {} blocking tasks on {} virtual thread carriers", maxTasks, carriers);
+        }
+        return new VirtualThreadLimit(maxTasks);
+    }
+
+    static boolean isLimited(ThreadPoolProfile profile) {
+        return profile.getId() != null && profile.getId().startsWith(LIMITED_PROFILE_PREFIX);
+    }
+
+    static int carriers() {
+        return Integer.getInteger(PARALLELISM_PROPERTY, Runtime.getRuntime().availableProcessors());
+    }
+
+    public int getMaxTasks() {
+        return maxTasks;
+    }
+
+    public void acquire() throws InterruptedException {
+        permits.acquire();
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public Runnable decorate(Runnable task) {
+        return () -> {
+            try {
+                acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted waiting to run on a virtual thread", e);
+            }
+            try {
+                task.run();
+            } finally {
+                release();
+            }
+        };
+    }
+}
@@ -0,0 +1,301 @@
+package uk.gov.digital.ho.hocs.document.aws;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.gov.digital.ho.hocs.document.dto.camel.S3DocumentMetadata;
+import uk.gov.digital.ho.hocs.document.dto.camel.S3DocumentStream;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Node-local copies of in-flight documents, keyed by document UUID, so the malware scan, the copy to the trusted
+ * bucket and the conversion can share one download instead of each going back to S3.
+ *
+ * Copies are written to docs.scratch.directory and read back with positional channel reads through a fixed buffer, so
+ * repeated reads come from the page cache rather than the heap. A copy is only handed out for the S3 key it was
+ * downloaded from, or for a key it was later recorded as copied to. The total size on disk is bounded by docs.scratch.maxBytes and each copy
+ * is removed docs.scratch.ttlSeconds after it was written, when its document finishes or when it is pushed out by
+ * newer documents. A miss is always safe: callers fall back to reading from S3.
+ */
+@Slf4j
+@Component
+public class DocumentScratchStore {
+
+    private static final String FILE_SUFFIX = ".scratch";
+
+    private final boolean enabled;
+    private final Path directory;
+    private final long maxObjectBytes;
+    private final Cache<UUID, ScratchDocument> store;
+    private final ScheduledExecutorService cleaner;
+
+    @Autowired
+    public DocumentScratchStore(@Value("${docs.scratch.enabled}") boolean enabled,
+                                @Value("${docs.scratch.directory}") String directory,
+                                @Value("${docs.scratch.maxBytes}") long maxBytes,
+                                @Value("${docs.scratch.maxObjectBytes}") long maxObjectBytes,
+                                @Value("${docs.scratch.ttlSeconds}") long ttlSeconds,
+                                MeterRegistry meterRegistry) throws IOException {
+        this(enabled, Paths.get(directory), maxBytes, maxObjectBytes, ttlSeconds, Ticker.systemTicker(), meterRegistry);
+    }
+
+    DocumentScratchStore(boolean enabled, Path directory, long maxBytes, long maxObjectBytes, long ttlSeconds,
+                         Ticker ticker, MeterRegistry meterRegistry) throws IOException {
+        this.enabled = enabled;
+        this.directory = directory;
+        // the weigher counts each copy as an int
+        this.maxObjectBytes = Math.min(Math.min(maxObjectBytes, maxBytes), Integer.MAX_VALUE);
+        this.store = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((UUID documentUUID, ScratchDocument document) -> (int) Math.min(document.getSize(), Integer.MAX_VALUE))
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .ticker(ticker)
+                .executor(Runnable::run)
+                .removalListener((UUID documentUUID, ScratchDocument document, RemovalCause cause) -> delete(document))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, store, "scratchDocuments");
+        Gauge.builder("scratch.store.bytes", store, s -> s.policy().eviction().map(e -> e.weightedSize().orElse(0)).orElse(0L))
+                .description("Bytes of in-flight documents held on local disk")
+                .register(meterRegistry);
+
+        if (enabled) {
+            Files.createDirectories(directory);
+            deleteLeftoverFiles();
+            // expired copies are otherwise only removed when the store is next used
+            this.cleaner = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "scratch-store-cleaner");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = Math.max(1, ttlSeconds / 4);
+            cleaner.scheduleWithFixedDelay(this::cleanUp, interval, interval, TimeUnit.SECONDS);
+        } else {
+            this.cleaner = null;
+        }
+    }
+
+    public S3DocumentStream get(UUID documentUUID, String key) {
+        return get(documentUUID, key, 0, Long.MAX_VALUE - 1);
+    }
+
+    public S3DocumentStream get(UUID documentUUID, String key, long start, long end) {
+        ScratchDocument document = lookup(documentUUID, key);
+        if (document == null) {
+            return null;
+        }
+        try {
+            return document.stream(start, end);
+        } catch (IOException e) {
+            // evicted between the lookup and opening the file
+            log.debug("Scratch copy of document {} is no longer readable", documentUUID);
+            return null;
+        }
+    }
+
+    public S3DocumentMetadata getMetadata(UUID documentUUID, String key) {
+        ScratchDocument document = lookup(documentUUID, key);
+        return document != null ? document.getMetadata() : null;
+    }
+
+    /**
+     * Lets the copy of the document downloaded from key also be read for copyKey, an object now holding the same bytes.
+     */
+    public void addKey(UUID documentUUID, String key, String copyKey) {
+        ScratchDocument document = lookup(documentUUID, key);
+        if (document != null) {
+            document.addKey(copyKey);
+        }
+    }
+
+    /**
+     * Writes the document to local disk if it fits within the per-object limit and returns a stream over the local
+     * copy, otherwise returns the document untouched.
+     */
+    public S3DocumentStream store(UUID documentUUID, S3DocumentStream document) throws IOException {
+        S3DocumentMetadata metadata = document.getMetadata();
+        if (!enabled || documentUUID == null || metadata.getContentLength() > maxObjectBytes) {
+            return document;
+        }
+
+        Path file = Files.createTempFile(directory, documentUUID.toString() + "-", FILE_SUFFIX);
+        try (InputStream in = document.getContent()) {
+            Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+
+        ScratchDocument scratchDocument = new ScratchDocument(metadata, file, Files.size(file));
+        // open before publishing, the store may turn the copy away and delete it straight after the put
+        S3DocumentStream stream = scratchDocument.stream();
+        store.put(documentUUID, scratchDocument);
+        log.debug("Stored {} for document {} ({} bytes)", metadata.getKey(), documentUUID, scratchDocument.getSize());
+        return stream;
+    }
+
+    public void evict(UUID documentUUID) {
+        if (documentUUID != null) {
+            store.invalidate(documentUUID);
+        }
+    }
+
+    void cleanUp() {
+        store.cleanUp();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (cleaner != null) {
+            cleaner.shutdownNow();
+        }
+        store.invalidateAll();
+        store.cleanUp();
+    }
+
+    private ScratchDocument lookup(UUID documentUUID, String key) {
+        ScratchDocument document = enabled && documentUUID != null ? store.getIfPresent(documentUUID) : null;
+        return document != null && document.hasKey(key) ? document : null;
+    }
+
+    private void deleteLeftoverFiles() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + FILE_SUFFIX)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private static void delete(ScratchDocument document) {
+        // readers that already have the file open keep reading it after it is unlinked
+        try {
+            Files.deleteIfExists(document.getFile());
+        } catch (IOException e) {
+            log.warn("Failed to delete scratch copy {}", document.getFile());
+        }
+    }
+
+    private static class ScratchDocument {
+
+        private final S3DocumentMetadata metadata;
+        private final Path file;
+        private final long size;
+        private final Set<String> keys = ConcurrentHashMap.newKeySet();
+
+        ScratchDocument(S3DocumentMetadata metadata, Path file, long size) {
+            this.metadata = metadata;
+            this.file = file;
+            this.size = size;
+            this.keys.add(metadata.getKey());
+        }
+
+        S3DocumentMetadata getMetadata() {
+            return metadata;
+        }
+
+        Path getFile() {
+            return file;
+        }
+
+        long getSize() {
+            return size;
+        }
+
+        boolean hasKey(String key) {
+            return key != null && keys.contains(key);
+        }
+
+        void addKey(String key) {
+            keys.add(key);
+        }
+
+        S3DocumentStream stream() throws IOException {
+            return stream(0, size - 1);
+        }
+
+        S3DocumentStream stream(long start, long end) throws IOException {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+            return new S3DocumentStream(metadata, new ChannelRangeInputStream(channel, Math.min(start, size), Math.min(end + 1, size)));
+        }
+    }
+
+    /**
+     * Reads [position, end) of the channel without moving its position, closing the channel when the stream is closed.
+     */
+    private static class ChannelRangeInputStream extends InputStream {
+
+        private final FileChannel channel;
+        private final long end;
+        private long position;
+
+        ChannelRangeInputStream(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.position = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (position >= end) {
+                return -1;
+            }
+            int read = channel.read(ByteBuffer.wrap(buffer, offset, (int) Math.min(length, end - position)), position);
+            if (read == -1) {
+                return -1;
+            }
+            position += read;
+            return read;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = Math.max(0, Math.min(n, end - position));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(end - position, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
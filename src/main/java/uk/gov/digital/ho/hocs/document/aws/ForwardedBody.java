@@ -0,0 +1,53 @@
+package uk.gov.digital.ho.hocs.document.aws;
+
+import org.reactivestreams.Subscriber;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.core.async.SdkPublisher;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Turns a GET's response body into the request body of another call as soon as the response headers arrive, so the
+ * bytes go from one connection to the other as the event loop reads them, without being buffered. The body can only
+ * be read once, so a call sending it cannot be retried.
+ */
+class ForwardedBody implements AsyncResponseTransformer<GetObjectResponse, AsyncRequestBody> {
+
+    private final CompletableFuture<AsyncRequestBody> body = new CompletableFuture<>();
+    private volatile Long contentLength;
+
+    @Override
+    public CompletableFuture<AsyncRequestBody> prepare() {
+        return body;
+    }
+
+    @Override
+    public void onResponse(GetObjectResponse response) {
+        contentLength = response.contentLength();
+    }
+
+    @Override
+    public void onStream(SdkPublisher<ByteBuffer> publisher) {
+        body.complete(new AsyncRequestBody() {
+            @Override
+            public Optional<Long> contentLength() {
+                return Optional.ofNullable(contentLength);
+            }
+
+            @Override
+            public void subscribe(Subscriber<? super ByteBuffer> subscriber) {
+                publisher.subscribe(subscriber);
+            }
+        });
+    }
+
+    @Override
+    public void exceptionOccurred(Throwable error) {
+        // once the body has been handed on, the error reaches its reader through the publisher instead
+        body.completeExceptionally(error);
+    }
+}
@@ -7,7 +7,6 @@ import com.amazonaws.auth.AWSCredentialsProvider;
 import com.amazonaws.auth.BasicAWSCredentials;
 import com.amazonaws.client.builder.AwsClientBuilder;
 import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 import com.amazonaws.services.sns.AmazonSNS;
 import com.amazonaws.services.sns.AmazonSNSClientBuilder;
 import com.amazonaws.services.sqs.AmazonSQS;
@@ -17,6 +16,12 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+
+import java.net.URI;
 
 @Configuration
 @Profile({ "local"})
@@ -55,29 +60,49 @@ public class LocalStackConfiguration {
     }
 
     @Bean("Trusted")
-    public AmazonS3 trustedS3Client() {
-        return s3Client();
+    public AmazonS3 trustedS3Client(S3ClientFactory s3ClientFactory) {
+        return s3Client(s3ClientFactory, "trusted");
     }
 
     @Bean("UnTrusted")
-    public AmazonS3 untrustedS3Client() {
-        return s3Client();
+    public AmazonS3 untrustedS3Client(S3ClientFactory s3ClientFactory) {
+        return s3Client(s3ClientFactory, "untrusted");
+    }
+
+    @Bean(name = "TrustedAsync", destroyMethod = "close")
+    public S3AsyncClient trustedS3AsyncClient(S3ClientFactory s3ClientFactory) {
+        return s3AsyncClient(s3ClientFactory, "trusted");
+    }
+
+    @Bean(name = "UnTrustedAsync", destroyMethod = "close")
+    public S3AsyncClient untrustedS3AsyncClient(S3ClientFactory s3ClientFactory) {
+        return s3AsyncClient(s3ClientFactory, "untrusted");
     }
 
-    public AmazonS3 s3Client() {
+    public AmazonS3 s3Client(S3ClientFactory s3ClientFactory, String client) {
 
         String host = String.format("http://%s:4572/", awsHost);
 
         AwsClientBuilder.EndpointConfiguration endpoint = new AwsClientBuilder.EndpointConfiguration(host, "eu-west-2");
 
-        return AmazonS3ClientBuilder.standard()
-                .withClientConfiguration(new ClientConfiguration().withProtocol(Protocol.HTTP))
+        return s3ClientFactory.builder(client)
+                .withClientConfiguration(s3ClientFactory.clientConfiguration().withProtocol(Protocol.HTTP))
                 .withCredentials(awsCredentialsProvider)
                 .withPathStyleAccessEnabled(true)
                 .withEndpointConfiguration(endpoint)
                 .build();
     }
 
+    public S3AsyncClient s3AsyncClient(S3ClientFactory s3ClientFactory, String client) {
+        return s3ClientFactory.asyncBuilder(client)
+                .region(Region.EU_WEST_2)
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("test", "test")))
+                // the v2 SDK's S3Configuration, not this package's
+                .serviceConfiguration(software.amazon.awssdk.services.s3.S3Configuration.builder().pathStyleAccessEnabled(true).build())
+                .endpointOverride(URI.create(String.format("http://%s:4572/", awsHost)))
+                .build();
+    }
+
     private final AWSCredentialsProvider awsCredentialsProvider = new AWSCredentialsProvider() {
 
         @Override
@@ -0,0 +1,79 @@
+package uk.gov.digital.ho.hocs.document.aws;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.http.SdkHttpHeaders;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The async S3 clients' counterpart of {@link S3RequestMetrics}, recording s3.requests and s3.bytes under the same
+ * names and tags so both SDKs show up on the same dashboards.
+ */
+public class S3AsyncRequestMetrics implements ExecutionInterceptor {
+
+    private static final ExecutionAttribute<Long> START = new ExecutionAttribute<>("s3.requests.start");
+
+    private final MeterRegistry meterRegistry;
+    private final String client;
+
+    public S3AsyncRequestMetrics(MeterRegistry meterRegistry, String client) {
+        this.meterRegistry = meterRegistry;
+        this.client = client;
+    }
+
+    @Override
+    public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes executionAttributes) {
+        executionAttributes.putAttribute(START, System.nanoTime());
+    }
+
+    @Override
+    public void afterExecution(Context.AfterExecution context, ExecutionAttributes executionAttributes) {
+        String operation = executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME);
+        record(executionAttributes, operation, "success");
+
+        SdkHttpHeaders headers = "GetObject".equals(operation) ? context.httpResponse() : context.httpRequest();
+        long bytes = contentLength(headers);
+        if (bytes > 0) {
+            DistributionSummary.builder("s3.bytes")
+                    .baseUnit("bytes")
+                    .tags("client", client, "operation", operation)
+                    .register(meterRegistry)
+                    .record(bytes);
+        }
+    }
+
+    @Override
+    public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes executionAttributes) {
+        record(executionAttributes, executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME), "error");
+    }
+
+    private void record(ExecutionAttributes executionAttributes, String operation, String outcome) {
+        Long start = executionAttributes.getAttribute(START);
+        if (start != null) {
+            Timer.builder("s3.requests")
+                    .tags("client", client, "operation", operation, "outcome", outcome)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static long contentLength(SdkHttpHeaders headers) {
+        return headers.firstMatchingHeader("Content-Length")
+                .map(String::trim)
+                .map(value -> {
+                    try {
+                        return Long.parseLong(value);
+                    } catch (NumberFormatException e) {
+                        return 0L;
+                    }
+                })
+                .orElse(0L);
+    }
+}
@@ -0,0 +1,105 @@
+package uk.gov.digital.ho.hocs.document.aws;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.retry.PredefinedRetryPolicies;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3AsyncClientBuilder;
+
+import java.time.Duration;
+
+/**
+ * Starting point for the Trusted and UnTrusted S3 clients, and their TrustedAsync and UnTrustedAsync counterparts, so
+ * all of them share the same connection pool tuning and metrics whichever profile builds them. The pool is sized for the malware, conversion and multipart copy workers
+ * all holding connections at once; docs.s3client.requestTimeoutMillis is 0 (off) by default because a single
+ * request can be a large streamed download.
+ */
+@Component
+public class S3ClientFactory {
+
+    private final MeterRegistry meterRegistry;
+    private final int maxConnections;
+    private final long connectionTtlMillis;
+    private final long connectionMaxIdleMillis;
+    private final boolean tcpKeepAlive;
+    private final int connectionTimeoutMillis;
+    private final int socketTimeoutMillis;
+    private final int requestTimeoutMillis;
+    private final int maxErrorRetry;
+    private final boolean clientMetrics;
+
+    @Autowired
+    public S3ClientFactory(MeterRegistry meterRegistry,
+                           @Value("${docs.s3client.maxConnections}") int maxConnections,
+                           @Value("${docs.s3client.connectionTtlMillis}") long connectionTtlMillis,
+                           @Value("${docs.s3client.connectionMaxIdleMillis}") long connectionMaxIdleMillis,
+                           @Value("${docs.s3client.tcpKeepAlive}") boolean tcpKeepAlive,
+                           @Value("${docs.s3client.connectionTimeoutMillis}") int connectionTimeoutMillis,
+                           @Value("${docs.s3client.socketTimeoutMillis}") int socketTimeoutMillis,
+                           @Value("${docs.s3client.requestTimeoutMillis}") int requestTimeoutMillis,
+                           @Value("${docs.s3client.maxErrorRetry}") int maxErrorRetry,
+                           @Value("${docs.s3client.metrics}") boolean clientMetrics) {
+        this.meterRegistry = meterRegistry;
+        this.maxConnections = maxConnections;
+        this.connectionTtlMillis = connectionTtlMillis;
+        this.connectionMaxIdleMillis = connectionMaxIdleMillis;
+        this.tcpKeepAlive = tcpKeepAlive;
+        this.connectionTimeoutMillis = connectionTimeoutMillis;
+        this.socketTimeoutMillis = socketTimeoutMillis;
+        this.requestTimeoutMillis = requestTimeoutMillis;
+        this.maxErrorRetry = maxErrorRetry;
+        this.clientMetrics = clientMetrics;
+    }
+
+    public ClientConfiguration clientConfiguration() {
+        return new ClientConfiguration()
+                .withMaxConnections(maxConnections)
+                .withConnectionTTL(connectionTtlMillis)
+                .withConnectionMaxIdleMillis(connectionMaxIdleMillis)
+                .withTcpKeepAlive(tcpKeepAlive)
+                .withConnectionTimeout(connectionTimeoutMillis)
+                .withSocketTimeout(socketTimeoutMillis)
+                .withRequestTimeout(requestTimeoutMillis)
+                .withRetryPolicy(PredefinedRetryPolicies.getDefaultRetryPolicyWithCustomMaxRetries(maxErrorRetry))
+                .withThrottledRetries(true);
+    }
+
+    public AmazonS3ClientBuilder builder(String client) {
+        AmazonS3ClientBuilder builder = AmazonS3ClientBuilder.standard()
+                .withClientConfiguration(clientConfiguration())
+                .withRequestHandlers(new S3RequestMetrics(meterRegistry, client));
+        if (clientMetrics) {
+            builder.withMetricsCollector(new S3ClientMetrics(meterRegistry, client));
+        }
+        return builder;
+    }
+
+    /**
+     * The async clients run on a shared Netty event loop rather than a thread per connection, with the same connection
+     * limits and timeouts as the sync clients. The socket timeout applies to both reads and writes.
+     */
+    public S3AsyncClientBuilder asyncBuilder(String client) {
+        return S3AsyncClient.builder()
+                .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+                        .maxConcurrency(maxConnections)
+                        .connectionTimeToLive(Duration.ofMillis(connectionTtlMillis))
+                        .connectionMaxIdleTime(Duration.ofMillis(connectionMaxIdleMillis))
+                        .connectionTimeout(Duration.ofMillis(connectionTimeoutMillis))
+                        .readTimeout(Duration.ofMillis(socketTimeoutMillis))
+                        .writeTimeout(Duration.ofMillis(socketTimeoutMillis))
+                        .putChannelOption(ChannelOption.SO_KEEPALIVE, tcpKeepAlive))
+                .overrideConfiguration(configuration -> {
+                    configuration.retryPolicy(retryPolicy -> retryPolicy.numRetries(maxErrorRetry))
+                            .addExecutionInterceptor(new S3AsyncRequestMetrics(meterRegistry, client));
+                    if (requestTimeoutMillis > 0) {
+                        configuration.apiCallAttemptTimeout(Duration.ofMillis(requestTimeoutMillis));
+                    }
+                });
+    }
+}
@@ -0,0 +1,68 @@
+package uk.gov.digital.ho.hocs.document.aws;
+
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.metrics.RequestMetricCollector;
+import com.amazonaws.util.AWSRequestMetrics.Field;
+import com.amazonaws.util.TimingInfo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bridges the SDK's per-request metrics for an S3 client into Micrometer, tagged with the client (trusted or
+ * untrusted). The s3.client.pool.* gauges hold the connection pool's leased, available and pending counts as last
+ * seen when a request took a connection; s3.client.retries counts attempts after the first and s3.client.http
+ * times each attempt on the wire.
+ */
+public class S3ClientMetrics extends RequestMetricCollector {
+
+    private final AtomicLong leased = new AtomicLong();
+    private final AtomicLong available = new AtomicLong();
+    private final AtomicLong pending = new AtomicLong();
+    private final Counter retries;
+    private final Timer httpRequests;
+
+    public S3ClientMetrics(MeterRegistry meterRegistry, String client) {
+        Tags tags = Tags.of("client", client);
+        meterRegistry.gauge("s3.client.pool.leased", tags, leased);
+        meterRegistry.gauge("s3.client.pool.available", tags, available);
+        meterRegistry.gauge("s3.client.pool.pending", tags, pending);
+        this.retries = meterRegistry.counter("s3.client.retries", tags);
+        this.httpRequests = meterRegistry.timer("s3.client.http", tags);
+    }
+
+    @Override
+    public void collectMetrics(Request<?> request, Response<?> response) {
+        TimingInfo timingInfo = request.getAWSRequestMetrics().getTimingInfo();
+        update(leased, timingInfo.getCounter(Field.HttpClientPoolLeasedCount.name()));
+        update(available, timingInfo.getCounter(Field.HttpClientPoolAvailableCount.name()));
+        update(pending, timingInfo.getCounter(Field.HttpClientPoolPendingCount.name()));
+
+        Number attempts = timingInfo.getCounter(Field.RequestCount.name());
+        if (attempts != null && attempts.longValue() > 1) {
+            retries.increment(attempts.longValue() - 1);
+        }
+
+        List<TimingInfo> httpTimings = timingInfo.getAllSubMeasurements(Field.HttpRequestTime.name());
+        if (httpTimings != null) {
+            for (TimingInfo httpTiming : httpTimings) {
+                Double millis = httpTiming.getTimeTakenMillisIfKnown();
+                if (millis != null) {
+                    httpRequests.record((long) (millis * 1_000_000), TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+    }
+
+    private static void update(AtomicLong gauge, Number value) {
+        if (value != null) {
+            gauge.set(value.longValue());
+        }
+    }
+}
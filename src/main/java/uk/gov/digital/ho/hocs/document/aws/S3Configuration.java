@@ -1,16 +1,18 @@
 package uk.gov.digital.ho.hocs.document.aws;
 
-import com.amazonaws.ClientConfiguration;
 import com.amazonaws.auth.AWSStaticCredentialsProvider;
 import com.amazonaws.auth.BasicAWSCredentials;
 import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 import org.springframework.beans.factory.BeanCreationException;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
 import org.springframework.util.StringUtils;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 
 @Configuration
 @Profile({ "s3"})
@@ -19,18 +21,54 @@ public class S3Configuration {
     @Bean("Trusted")
     public AmazonS3 trustedS3Client(@Value("${trusted.aws.s3.access.key}") String accessKey,
                              @Value("${trusted.aws.s3.secret.key}") String secretKey,
-                             @Value("${aws.sqs.region}") String region) {
-        return s3Client(accessKey, secretKey, region);
+                             @Value("${aws.sqs.region}") String region,
+                             S3ClientFactory s3ClientFactory) {
+        return s3Client(accessKey, secretKey, region, s3ClientFactory, "trusted");
     }
 
     @Bean("UnTrusted")
     public AmazonS3 untrustedS3Client(@Value("${untrusted.aws.s3.access.key}") String accessKey,
                              @Value("${untrusted.aws.s3.secret.key}") String secretKey,
-                             @Value("${aws.sqs.region}") String region) {
-        return s3Client(accessKey, secretKey, region);
+                             @Value("${aws.sqs.region}") String region,
+                             S3ClientFactory s3ClientFactory) {
+        return s3Client(accessKey, secretKey, region, s3ClientFactory, "untrusted");
     }
 
-    private static AmazonS3 s3Client(String accessKey, String secretKey, String region) {
+    @Bean(name = "TrustedAsync", destroyMethod = "close")
+    public S3AsyncClient trustedS3AsyncClient(@Value("${trusted.aws.s3.access.key}") String accessKey,
+                             @Value("${trusted.aws.s3.secret.key}") String secretKey,
+                             @Value("${aws.sqs.region}") String region,
+                             S3ClientFactory s3ClientFactory) {
+        return s3AsyncClient(accessKey, secretKey, region, s3ClientFactory, "trusted");
+    }
+
+    @Bean(name = "UnTrustedAsync", destroyMethod = "close")
+    public S3AsyncClient untrustedS3AsyncClient(@Value("${untrusted.aws.s3.access.key}") String accessKey,
+                             @Value("${untrusted.aws.s3.secret.key}") String secretKey,
+                             @Value("${aws.sqs.region}") String region,
+                             S3ClientFactory s3ClientFactory) {
+        return s3AsyncClient(accessKey, secretKey, region, s3ClientFactory, "untrusted");
+    }
+
+    private static AmazonS3 s3Client(String accessKey, String secretKey, String region, S3ClientFactory s3ClientFactory, String client) {
+        validate(accessKey, secretKey, region);
+
+        return s3ClientFactory.builder(client)
+                .withRegion(region)
+                .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials(accessKey, secretKey)))
+                .build();
+    }
+
+    private static S3AsyncClient s3AsyncClient(String accessKey, String secretKey, String region, S3ClientFactory s3ClientFactory, String client) {
+        validate(accessKey, secretKey, region);
+
+        return s3ClientFactory.asyncBuilder(client)
+                .region(Region.of(region))
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey)))
+                .build();
+    }
+
+    private static void validate(String accessKey, String secretKey, String region) {
         if (StringUtils.isEmpty(accessKey)) {
             throw new BeanCreationException("Failed to create S3 client bean. Need non-blank value for access key");
         }
@@ -42,11 +80,5 @@ public class S3Configuration {
         if (StringUtils.isEmpty(region)) {
             throw new BeanCreationException("Failed to create S3 bean. Need non-blank values for region");
         }
-
-        return AmazonS3ClientBuilder.standard()
-                .withRegion(region)
-                .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials(accessKey, secretKey)))
-                .withClientConfiguration(new ClientConfiguration())
-                .build();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,163 @@
+package uk.gov.digital.ho.hocs.document.aws;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.stereotype.Component;
+import uk.gov.digital.ho.hocs.document.dto.camel.S3DocumentMetadata;
+import uk.gov.digital.ho.hocs.document.dto.camel.S3DocumentStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Byte-budgeted cache of trusted bucket objects, keyed by S3 key.
+ *
+ * Trusted objects are never overwritten (every upload and copy is written under a fresh UUID key),
+ * so entries never need to be invalidated. Bodies are held on the heap, so an evicted body is reclaimed
+ * by the next collection and -Xmx must allow for docs.trustedS3cache.maxBytes.
+ */
+@Slf4j
+@Component
+public class S3DocumentCache {
+
+    private static final DefaultDataBufferFactory BUFFER_FACTORY = new DefaultDataBufferFactory();
+
+    private final boolean enabled;
+    private final long maxObjectBytes;
+    private final Cache<String, CachedDocument> cache;
+    private final ConcurrentMap<String, CompletableFuture<CachedDocument>> loads = new ConcurrentHashMap<>();
+
+    @Autowired
+    public S3DocumentCache(@Value("${docs.trustedS3cache.enabled}") boolean enabled,
+                           @Value("${docs.trustedS3cache.maxBytes}") long maxBytes,
+                           @Value("${docs.trustedS3cache.maxObjectBytes}") long maxObjectBytes,
+                           MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.maxObjectBytes = Math.min(maxObjectBytes, Integer.MAX_VALUE);
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, CachedDocument document) -> document.getContent().capacity())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "trustedDocuments");
+    }
+
+    public S3DocumentStream get(String key) {
+        CachedDocument document = enabled ? cache.getIfPresent(key) : null;
+        return document != null ? document.stream() : null;
+    }
+
+    public S3DocumentStream get(String key, long start, long end) {
+        CachedDocument document = enabled ? cache.getIfPresent(key) : null;
+        return document != null ? document.stream(start, end) : null;
+    }
+
+    public S3DocumentMetadata getMetadata(String key) {
+        CachedDocument document = enabled ? cache.getIfPresent(key) : null;
+        return document != null ? document.getMetadata() : null;
+    }
+
+    /**
+     * Returns a stream over the cached copy of the document, fetching it into the cache on a miss.
+     * Concurrent misses for the same key wait for the one fetch rather than each downloading the
+     * object. The fetch runs on the calling thread outside the cache, so it never holds a cache lock
+     * while S3 responds. Documents over the per-object limit are not cached and the fetched stream
+     * is returned; a waiter whose shared fetch was not cached fetches its own copy.
+     */
+    public S3DocumentStream get(String key, Supplier<S3DocumentStream> fetch) throws IOException {
+        if (!enabled) {
+            return fetch.get();
+        }
+
+        CachedDocument document = cache.getIfPresent(key);
+        if (document != null) {
+            return document.stream();
+        }
+
+        CompletableFuture<CachedDocument> load = new CompletableFuture<>();
+        CompletableFuture<CachedDocument> inFlight = loads.putIfAbsent(key, load);
+        if (inFlight != null) {
+            document = inFlight.handle((loaded, failure) -> loaded).join();
+            return document != null ? document.stream() : fetch.get();
+        }
+
+        try {
+            document = cache.getIfPresent(key);
+            if (document == null) {
+                S3DocumentStream fetched = fetch.get();
+                if (fetched.getMetadata().getContentLength() > maxObjectBytes) {
+                    load.complete(null);
+                    return fetched;
+                }
+                document = read(fetched);
+                cache.put(key, document);
+            }
+            load.complete(document);
+            return document.stream();
+        } catch (IOException | RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loads.remove(key, load);
+        }
+    }
+
+    private static CachedDocument read(S3DocumentStream document) throws IOException {
+        S3DocumentMetadata metadata = document.getMetadata();
+        byte[] content = new byte[(int) metadata.getContentLength()];
+        int length;
+        try (InputStream in = document.getContent()) {
+            length = in.readNBytes(content, 0, content.length);
+        }
+        if (length != content.length) {
+            throw new IOException(String.format("Read %d of %d bytes of %s", length, content.length, metadata.getKey()));
+        }
+        log.debug("Cached {} ({} bytes)", metadata.getKey(), length);
+        return new CachedDocument(metadata, ByteBuffer.wrap(content).asReadOnlyBuffer());
+    }
+
+    private static class CachedDocument {
+
+        private final S3DocumentMetadata metadata;
+        private final ByteBuffer content;
+
+        CachedDocument(S3DocumentMetadata metadata, ByteBuffer content) {
+            this.metadata = metadata;
+            this.content = content;
+        }
+
+        S3DocumentMetadata getMetadata() {
+            return metadata;
+        }
+
+        ByteBuffer getContent() {
+            return content;
+        }
+
+        S3DocumentStream stream() {
+            return new S3DocumentStream(metadata, asInputStream(content.duplicate()));
+        }
+
+        S3DocumentStream stream(long start, long end) {
+            ByteBuffer range = content.duplicate();
+            range.position((int) Math.min(start, range.limit()));
+            range.limit((int) Math.min(end + 1, range.limit()));
+            return new S3DocumentStream(metadata, asInputStream(range.slice()));
+        }
+
+        private static InputStream asInputStream(ByteBuffer buffer) {
+            return BUFFER_FACTORY.wrap(buffer).asInputStream();
+        }
+    }
+}
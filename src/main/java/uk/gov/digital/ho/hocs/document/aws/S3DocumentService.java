@@ -1,23 +1,52 @@
 package uk.gov.digital.ho.hocs.document.aws;
 
+import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.model.*;
-import com.amazonaws.util.IOUtils;
+import com.amazonaws.util.BinaryUtils;
 import com.amazonaws.util.StringUtils;
+import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.MetadataDirective;
+import software.amazon.awssdk.services.s3.model.ServerSideEncryption;
+import software.amazon.awssdk.utils.http.SdkHttpUtils;
 import uk.gov.digital.ho.hocs.document.dto.camel.DocumentCopyRequest;
 import uk.gov.digital.ho.hocs.document.dto.camel.S3Document;
+import uk.gov.digital.ho.hocs.document.dto.camel.S3DocumentMetadata;
+import uk.gov.digital.ho.hocs.document.dto.camel.S3DocumentStream;
 import uk.gov.digital.ho.hocs.document.dto.camel.UploadDocument;
 import uk.gov.digital.ho.hocs.document.exception.ApplicationExceptions;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 import static net.logstash.logback.argument.StructuredArguments.value;
 import static uk.gov.digital.ho.hocs.document.application.LogEvent.*;
@@ -30,58 +59,208 @@ public class S3DocumentService {
     private AmazonS3 trustedS3Client;
     private String untrustedS3BucketName;
     private AmazonS3 untrustedS3Client;
+    private S3AsyncClient trustedS3AsyncClient;
+    private S3AsyncClient untrustedS3AsyncClient;
     private final String CONVERTED_DOCUMENT_EXTENSION = "pdf";
     private String trustedBucketKMSkeyId;
+    private S3DocumentCache trustedDocumentCache;
+    private DocumentScratchStore scratchStore;
+    private long multipartCopyThreshold;
+    private long multipartCopyPartSize;
+    private boolean serverSideCopy;
+    private int copyParallelism;
 
     public S3DocumentService( @Value("${docs.untrustedS3bucket}") String untrustedS3BucketName,
                               @Value("${docs.trustedS3bucket}") String trustedS3Bucket,
                               @Qualifier("Trusted") AmazonS3 trustedS3Client,
                               @Qualifier("UnTrusted") AmazonS3 untrustedS3Client,
-                              @Value("${docs.trustedS3bucketKMSKeyId}") String trustedBucketKMSkeyId) {
+                              @Qualifier("TrustedAsync") S3AsyncClient trustedS3AsyncClient,
+                              @Qualifier("UnTrustedAsync") S3AsyncClient untrustedS3AsyncClient,
+                              @Value("${docs.trustedS3bucketKMSKeyId}") String trustedBucketKMSkeyId,
+                              S3DocumentCache trustedDocumentCache,
+                              DocumentScratchStore scratchStore,
+                              @Value("${docs.trustedS3copy.serverSide}") boolean serverSideCopy,
+                              @Value("${docs.trustedS3copy.multipartThreshold}") long multipartCopyThreshold,
+                              @Value("${docs.trustedS3copy.partSize}") long multipartCopyPartSize,
+                              @Value("${docs.trustedS3copy.parallelism}") int copyParallelism) {
 
         this.untrustedS3BucketName = untrustedS3BucketName;
         this.trustedS3BucketName = trustedS3Bucket;
         this.untrustedS3Client = untrustedS3Client;
         this.trustedS3Client = trustedS3Client;
+        this.untrustedS3AsyncClient = untrustedS3AsyncClient;
+        this.trustedS3AsyncClient = trustedS3AsyncClient;
         this.trustedBucketKMSkeyId = trustedBucketKMSkeyId;
+        this.trustedDocumentCache = trustedDocumentCache;
+        this.scratchStore = scratchStore;
+        this.multipartCopyThreshold = multipartCopyThreshold;
+        this.multipartCopyPartSize = multipartCopyPartSize;
+        // Server side copies read the untrusted bucket with the trusted client, so only enable when both share credentials
+        this.serverSideCopy = serverSideCopy;
+        this.copyParallelism = copyParallelism;
     }
 
-    public S3Document getFileFromUntrustedS3(String key) throws IOException {
-        return getFileFromS3Bucket(key, untrustedS3Client, untrustedS3BucketName);
+    /**
+     * Returns the document's metadata without its data or SHA-256, for when nothing will look the hash up. Only the
+     * object's headers are fetched, so the content is downloaded once, when it is sent on.
+     */
+    public S3Document getFileDetailsFromUntrustedS3(String key) {
+        try {
+            return getFileDetails(getMetadata(key, untrustedS3Client.getObjectMetadata(untrustedS3BucketName, key)));
+        } catch (AmazonS3Exception ex) {
+            throw translateS3Exception(ex);
+        }
     }
 
-    public S3Document getFileFromTrustedS3(String key) throws IOException {
-        return getFileFromS3Bucket(key, trustedS3Client, trustedS3BucketName);
+    public S3Document getFileDetailsFromTrustedS3(String key) {
+        return getFileDetails(getFileMetadataFromTrustedS3(key));
     }
 
-    public S3Document copyToTrustedBucket(DocumentCopyRequest copyRequest) throws IOException {
-            String destinationKey = String.format("%s/%s.%s", copyRequest.getExternalReferenceUUID(), UUID.randomUUID().toString(), copyRequest.getFileType());
-            log.info(String.format("Copying %s from untrusted %s to %s trusted bucket %s", copyRequest.getFileLink(),
-                    untrustedS3BucketName, destinationKey, trustedS3BucketName),value(EVENT, S3_TRUSTED_COPY_REQUEST));
+    /**
+     * Returns the document's metadata and SHA-256 without its data, reading the content through a fixed buffer. The
+     * download is kept in the scratch store so the scan and the copy to the trusted bucket can reuse it.
+     */
+    public S3Document getFileDigestFromUntrustedS3(String key, UUID documentUUID) throws IOException {
+        S3DocumentStream scratchCopy = scratchStore.get(documentUUID, key);
+        if (scratchCopy != null) {
+            return getFileDigest(scratchCopy);
+        }
+        return getFileDigest(scratchStore.store(documentUUID, getFileStreamFromS3Bucket(new GetObjectRequest(untrustedS3BucketName, key), untrustedS3Client)));
+    }
 
-           S3Document copyDocument = getFileFromUntrustedS3(copyRequest.getFileLink());
+    public S3Document getFileDigestFromTrustedS3(String key, UUID documentUUID) throws IOException {
+        return getFileDigest(getFileStreamFromTrustedS3(key, documentUUID));
+    }
 
-            ObjectMetadata metaData = new ObjectMetadata();
-            metaData.setContentType(copyDocument.getMimeType());
-            metaData.addUserMetadata("externalReferenceUUID", copyRequest.getExternalReferenceUUID());
-            metaData.addUserMetadata("filename", destinationKey);
-            metaData.addUserMetadata("originalName", copyDocument.getOriginalFilename());
-            metaData.setContentLength(copyDocument.getData().length);
+    public S3DocumentStream getFileStreamFromUntrustedS3(String key, UUID documentUUID) {
+        S3DocumentStream scratchCopy = scratchStore.get(documentUUID, key);
+        if (scratchCopy != null) {
+            return scratchCopy;
+        }
+        return getFileStreamFromS3Bucket(new GetObjectRequest(untrustedS3BucketName, key), untrustedS3Client);
+    }
 
-            PutObjectRequest uploadRequest = new PutObjectRequest(trustedS3BucketName, destinationKey, new ByteArrayInputStream(copyDocument.getData()), metaData);
+    /**
+     * Streams a trusted document, reading it from the scratch copy of its upload while this node still has one. The
+     * copy is only used for the key copyToTrustedBucket wrote that upload to, any other key is read from S3. This is
+     * the pipeline's read, so it bypasses the trusted document cache, which is kept for documents served over REST.
+     */
+    public S3DocumentStream getFileStreamFromTrustedS3(String key, UUID documentUUID) {
+        S3DocumentStream scratchCopy = scratchStore.get(documentUUID, key);
+        if (scratchCopy != null) {
+            S3DocumentMetadata upload = scratchCopy.getMetadata();
+            return new S3DocumentStream(new S3DocumentMetadata(key, key, upload.getOriginalFilename(), upload.getFileType(),
+                    upload.getMimeType(), upload.getContentLength(), null, upload.getLastModified()), scratchCopy.getContent());
+        }
+        return getFileStreamFromS3Bucket(new GetObjectRequest(trustedS3BucketName, key), trustedS3Client);
+    }
 
-            if(StringUtils.hasValue(trustedBucketKMSkeyId)) {
-                uploadRequest = uploadRequest.withSSEAwsKeyManagementParams(new SSEAwsKeyManagementParams(trustedBucketKMSkeyId));
-            }
+    public void evictScratchCopy(UUID documentUUID) {
+        scratchStore.evict(documentUUID);
+    }
 
-            try {
-                trustedS3Client.putObject(uploadRequest);
+    public S3DocumentStream getFileStreamFromTrustedS3(String key) {
+        try {
+            return trustedDocumentCache.get(key, () -> getFileStreamFromS3Bucket(new GetObjectRequest(trustedS3BucketName, key), trustedS3Client));
+        } catch (IOException | AmazonClientException ex) {
+            throw new ApplicationExceptions.S3Exception("Error retrieving document from S3", S3_DOWNLOAD_FAILURE, ex);
+        }
+    }
+
+    public S3DocumentStream getFileStreamFromTrustedS3(String key, long start, long end) {
+        S3DocumentStream cached = trustedDocumentCache.get(key, start, end);
+        if (cached != null) {
+            return cached;
+        }
+        return getFileStreamFromS3Bucket(new GetObjectRequest(trustedS3BucketName, key).withRange(start, end), trustedS3Client);
+    }
+
+    public S3DocumentMetadata getFileMetadataFromTrustedS3(String key) {
+        S3DocumentMetadata cached = trustedDocumentCache.getMetadata(key);
+        if (cached != null) {
+            return cached;
+        }
+        try {
+            return getMetadata(key, trustedS3Client.getObjectMetadata(trustedS3BucketName, key));
+        } catch (AmazonS3Exception ex) {
+            throw translateS3Exception(ex);
+        }
+    }
+
+    /**
+     * Blocking form of {@link #copyToTrustedBucketAsync} for the Camel route. An interrupted caller stops waiting but
+     * the copy carries on, and a failed multipart copy is still aborted.
+     */
+    public S3Document copyToTrustedBucket(DocumentCopyRequest copyRequest) throws IOException {
+        CompletableFuture<S3Document> copy = copyToTrustedBucketAsync(copyRequest);
+        try {
+            return copy.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(String.format("Interrupted copying %s to the trusted bucket", copyRequest.getFileLink()));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
             }
-            catch(AmazonServiceException e) {
-                    throw new ApplicationExceptions.S3Exception(String.format("Unable to upload file %s to S3 bucket %s",destinationKey,trustedS3BucketName), S3_UPLOAD_FAILURE, e);
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Copies the document to the trusted bucket on the async clients, so no thread waits on S3 while it runs. The
+     * content comes from the scratch copy when this node has one, otherwise each object or part is streamed from its
+     * untrusted GET straight into its trusted upload. Documents over docs.trustedS3copy.multipartThreshold are copied
+     * in parts, docs.trustedS3copy.parallelism of them at a time.
+     */
+    public CompletableFuture<S3Document> copyToTrustedBucketAsync(DocumentCopyRequest copyRequest) {
+        String destinationKey = String.format("%s/%s.%s", copyRequest.getExternalReferenceUUID(), UUID.randomUUID().toString(), copyRequest.getFileType());
+        log.info(String.format("Copying %s from untrusted %s to %s trusted bucket %s", copyRequest.getFileLink(),
+                untrustedS3BucketName, destinationKey, trustedS3BucketName),value(EVENT, S3_TRUSTED_COPY_REQUEST));
+
+        S3DocumentMetadata scratchMetadata = scratchStore.getMetadata(copyRequest.getDocumentUUID(), copyRequest.getFileLink());
+        UUID documentUUID = scratchMetadata != null ? copyRequest.getDocumentUUID() : null;
+        CompletableFuture<S3DocumentMetadata> source = scratchMetadata != null
+                ? CompletableFuture.completedFuture(scratchMetadata)
+                : untrustedS3AsyncClient.headObject(request -> request.bucket(untrustedS3BucketName).key(copyRequest.getFileLink()))
+                        .handle((response, e) -> {
+                            if (e != null) {
+                                throw translateS3Exception(e);
+                            }
+                            return getMetadata(copyRequest.getFileLink(), response);
+                        });
+
+        return source.thenCompose(copyDocument -> {
+            Map<String, String> metaData = new HashMap<>();
+            metaData.put("externalReferenceUUID", copyRequest.getExternalReferenceUUID());
+            metaData.put("filename", destinationKey);
+            metaData.put("originalName", copyDocument.getOriginalFilename());
+
+            CompletableFuture<Void> copy;
+            if (copyDocument.getContentLength() > multipartCopyThreshold) {
+                copy = new MultipartCopy(copyDocument, documentUUID, destinationKey, metaData).start();
+            } else if (serverSideCopy) {
+                copy = copyWithinS3(copyDocument, destinationKey, metaData);
+            } else {
+                copy = streamCopy(copyDocument, documentUUID, destinationKey, metaData);
             }
 
-            return new S3Document(destinationKey,copyDocument.getOriginalFilename(),null, copyDocument.getFileType(),copyDocument.getMimeType());
+            return copy.handle((ignored, e) -> {
+                if (e != null) {
+                    Throwable cause = unwrap(e);
+                    if (cause instanceof SdkException) {
+                        throw new ApplicationExceptions.S3Exception(String.format("Unable to upload file %s to S3 bucket %s", destinationKey, trustedS3BucketName), S3_UPLOAD_FAILURE, (SdkException) cause);
+                    }
+                    throw new CompletionException(cause);
+                }
+                // the conversion can now read the trusted copy from the upload's scratch copy
+                scratchStore.addKey(copyRequest.getDocumentUUID(), copyRequest.getFileLink(), destinationKey);
+
+                return new S3Document(destinationKey, copyDocument.getOriginalFilename(), null, copyDocument.getFileType(), copyDocument.getMimeType(), null);
+            });
+        });
     }
 
     public S3Document uploadFile(UploadDocument document) {
@@ -91,8 +270,9 @@ public class S3DocumentService {
         String destinationKey = String.format("%s/%s.%s", document.getExternalReferenceUUID(), UUID.randomUUID().toString(),CONVERTED_DOCUMENT_EXTENSION);
         metaData.addUserMetadata("externalReferenceUUID", document.getExternalReferenceUUID());
         metaData.addUserMetadata("originalName", getPDFFilename(document.getOriginalFileName()));
+        metaData.setContentLength(document.getContentLength());
 
-        PutObjectRequest uploadRequest = new PutObjectRequest(trustedS3BucketName, destinationKey, new ByteArrayInputStream(document.getData()), metaData);
+        PutObjectRequest uploadRequest = new PutObjectRequest(trustedS3BucketName, destinationKey, document.getData(), metaData);
         if(StringUtils.hasValue(trustedBucketKMSkeyId)) {
             uploadRequest = uploadRequest.withSSEAwsKeyManagementParams(new SSEAwsKeyManagementParams(trustedBucketKMSkeyId));
         }
@@ -105,33 +285,197 @@ public class S3DocumentService {
             throw new ApplicationExceptions.S3Exception(String.format("Unable to upload file %s to %s bucket %s",destinationKey,trustedS3BucketName), S3_UPLOAD_FAILURE, e);
         }
 
-        return new S3Document(destinationKey, document.getFilename(),null,  response.getContentMd5(), "application/pdf");
+        return new S3Document(destinationKey, document.getFilename(),null,  response.getContentMd5(), "application/pdf", null);
 
     }
 
-    private S3Document getFileFromS3Bucket(String key, AmazonS3 s3Client, String bucketName) throws IOException {
+    public S3Document copyConvertedDocument(String convertedKey, String externalReferenceUUID, String originalFileName) {
+        String destinationKey = String.format("%s/%s.%s", externalReferenceUUID, UUID.randomUUID().toString(), CONVERTED_DOCUMENT_EXTENSION);
+        log.info(String.format("Copying converted document %s to %s in trusted bucket %s", convertedKey, destinationKey, trustedS3BucketName),
+                value(EVENT, S3_TRUSTED_COPY_REQUEST));
+
+        ObjectMetadata metaData = new ObjectMetadata();
+        metaData.setContentType("application/pdf");
+        metaData.addUserMetadata("externalReferenceUUID", externalReferenceUUID);
+        metaData.addUserMetadata("originalName", getPDFFilename(originalFileName));
+
+        CopyObjectRequest copyRequest = new CopyObjectRequest(trustedS3BucketName, convertedKey, trustedS3BucketName, destinationKey)
+                .withNewObjectMetadata(metaData);
+        if(StringUtils.hasValue(trustedBucketKMSkeyId)) {
+            copyRequest = copyRequest.withSSEAwsKeyManagementParams(new SSEAwsKeyManagementParams(trustedBucketKMSkeyId));
+        }
+
         try {
+            trustedS3Client.copyObject(copyRequest);
+        } catch (AmazonS3Exception e) {
+            if (e.getStatusCode() == 404) {
+                throw translateS3Exception(e);
+            }
+            throw new ApplicationExceptions.S3Exception(String.format("Unable to copy file %s to %s in S3 bucket %s", convertedKey, destinationKey, trustedS3BucketName), S3_UPLOAD_FAILURE, e);
+        }
+
+        return new S3Document(destinationKey, originalFileName, null, CONVERTED_DOCUMENT_EXTENSION, "application/pdf", null);
+    }
+
+    private CompletableFuture<Void> copyWithinS3(S3DocumentMetadata source, String destinationKey, Map<String, String> metaData) {
+        return trustedS3AsyncClient.copyObject(request -> request
+                .copySource(copySource(source.getKey()))
+                .bucket(trustedS3BucketName)
+                .key(destinationKey)
+                .metadataDirective(MetadataDirective.REPLACE)
+                .contentType(source.getMimeType())
+                .metadata(metaData)
+                .serverSideEncryption(kmsEncryption())
+                .ssekmsKeyId(kmsKeyId()))
+                .thenApply(response -> null);
+    }
+
+    private CompletableFuture<Void> streamCopy(S3DocumentMetadata source, UUID documentUUID, String destinationKey, Map<String, String> metaData) {
+        S3DocumentStream scratchCopy = scratchStore.get(documentUUID, source.getKey());
+        CompletableFuture<AsyncRequestBody> body = scratchCopy != null
+                ? readScratchCopy(scratchCopy)
+                : forwardUntrusted(source.getKey(), null);
+
+        return body.thenCompose(content -> trustedS3AsyncClient.putObject(request -> request
+                .bucket(trustedS3BucketName)
+                .key(destinationKey)
+                .contentType(source.getMimeType())
+                .contentLength(source.getContentLength())
+                .metadata(metaData)
+                .serverSideEncryption(kmsEncryption())
+                .ssekmsKeyId(kmsKeyId()), content))
+                .thenApply(response -> null);
+    }
 
-            S3Object s3File = s3Client.getObject(new GetObjectRequest(bucketName, key));
+    /**
+     * Scratch copies are on local disk and read well within a part's upload time, so they are read into memory
+     * rather than adding a reader of their own; at most one part or one object under the multipart threshold each.
+     */
+    private static CompletableFuture<AsyncRequestBody> readScratchCopy(S3DocumentStream scratchCopy) {
+        try (S3DocumentStream source = scratchCopy) {
+            return CompletableFuture.completedFuture(AsyncRequestBody.fromBytes(source.getContent().readAllBytes()));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
 
-            String originalName = Optional.ofNullable(s3File.getObjectMetadata().getUserMetaDataOf("originalName"))
-                    .orElse("");
+    private CompletableFuture<AsyncRequestBody> forwardUntrusted(String key, String range) {
+        return untrustedS3AsyncClient.getObject(request -> request.bucket(untrustedS3BucketName).key(key).range(range), new ForwardedBody())
+                .handle((body, e) -> {
+                    if (e != null) {
+                        throw translateS3Exception(e);
+                    }
+                    return body;
+                });
+    }
 
-            String filename = Optional.ofNullable(s3File.getObjectMetadata().getUserMetaDataOf("filename"))
-                    .orElse(key);
+    private String copySource(String key) {
+        return SdkHttpUtils.urlEncodeIgnoreSlashes(untrustedS3BucketName + "/" + key);
+    }
 
-            String extension = getFileExtension(originalName);
+    private ServerSideEncryption kmsEncryption() {
+        return StringUtils.hasValue(trustedBucketKMSkeyId) ? ServerSideEncryption.AWS_KMS : null;
+    }
 
-            return new S3Document(filename, originalName,
-                    IOUtils.toByteArray(s3File.getObjectContent()),extension, s3File.getObjectMetadata().getContentType());
+    private String kmsKeyId() {
+        return StringUtils.hasValue(trustedBucketKMSkeyId) ? trustedBucketKMSkeyId : null;
+    }
 
+    private S3Document getFileDigest(S3DocumentStream stream) throws IOException {
+        try (S3DocumentStream s3File = stream) {
+            S3DocumentMetadata metadata = s3File.getMetadata();
+            DigestInputStream content = new DigestInputStream(s3File.getContent(), sha256());
+            content.transferTo(OutputStream.nullOutputStream());
+            return new S3Document(metadata.getFilename(), metadata.getOriginalFilename(),
+                    null, metadata.getFileType(), metadata.getMimeType(), BinaryUtils.toHex(content.getMessageDigest().digest()));
+        }
+    }
+
+    private static S3Document getFileDetails(S3DocumentMetadata metadata) {
+        return new S3Document(metadata.getFilename(), metadata.getOriginalFilename(), null, metadata.getFileType(), metadata.getMimeType(), null);
+    }
+
+    private S3DocumentStream getFileStreamFromS3Bucket(GetObjectRequest request, AmazonS3 s3Client) {
+        try {
+            S3Object s3File = s3Client.getObject(request);
+            return new S3DocumentStream(getMetadata(request.getKey(), s3File.getObjectMetadata()), s3File.getObjectContent());
         } catch (AmazonS3Exception ex) {
-            if (ex.getStatusCode() == 404) {
-                throw new ApplicationExceptions.S3Exception("File not found in S3 bucket", S3_FILE_NOT_FOUND,ex);
-            }
-            else {
-                throw new ApplicationExceptions.S3Exception("Error retrieving document from S3", S3_DOWNLOAD_FAILURE,ex);
-            }
+            throw translateS3Exception(ex);
+        }
+    }
+
+    private S3DocumentMetadata getMetadata(String key, ObjectMetadata objectMetadata) {
+        String originalName = Optional.ofNullable(objectMetadata.getUserMetaDataOf("originalName"))
+                .orElse("");
+
+        String filename = Optional.ofNullable(objectMetadata.getUserMetaDataOf("filename"))
+                .orElse(key);
+
+        String extension = getFileExtension(originalName);
+
+        return new S3DocumentMetadata(key, filename, originalName, extension, objectMetadata.getContentType(),
+                objectMetadata.getInstanceLength(), objectMetadata.getETag(), objectMetadata.getLastModified());
+    }
+
+    private S3DocumentMetadata getMetadata(String key, HeadObjectResponse response) {
+        String originalName = userMetadata(response.metadata(), "originalName")
+                .orElse("");
+
+        String filename = userMetadata(response.metadata(), "filename")
+                .orElse(key);
+
+        String extension = getFileExtension(originalName);
+
+        return new S3DocumentMetadata(key, filename, originalName, extension, response.contentType(),
+                response.contentLength(), response.eTag(), response.lastModified() != null ? Date.from(response.lastModified()) : null);
+    }
+
+    /**
+     * The v1 client looks user metadata up ignoring case, as S3 may send the headers in lower case.
+     */
+    private static Optional<String> userMetadata(Map<String, String> metadata, String name) {
+        return metadata.entrySet().stream()
+                .filter(entry -> entry.getKey().equalsIgnoreCase(name))
+                .map(Map.Entry::getValue)
+                .findFirst();
+    }
+
+    private ApplicationExceptions.S3Exception translateS3Exception(Throwable error) {
+        Throwable cause = unwrap(error);
+        if (cause instanceof ApplicationExceptions.S3Exception) {
+            return (ApplicationExceptions.S3Exception) cause;
+        }
+        if (cause instanceof SdkServiceException && ((SdkServiceException) cause).statusCode() == 404) {
+            return new ApplicationExceptions.S3Exception("File not found in S3 bucket", S3_FILE_NOT_FOUND, (SdkServiceException) cause);
+        }
+        if (cause instanceof Exception) {
+            return new ApplicationExceptions.S3Exception("Error retrieving document from S3", S3_DOWNLOAD_FAILURE, (Exception) cause);
+        }
+        throw new CompletionException(cause);
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    private ApplicationExceptions.S3Exception translateS3Exception(AmazonS3Exception ex) {
+        if (ex.getStatusCode() == 404) {
+            return new ApplicationExceptions.S3Exception("File not found in S3 bucket", S3_FILE_NOT_FOUND,ex);
+        }
+        else {
+            return new ApplicationExceptions.S3Exception("Error retrieving document from S3", S3_DOWNLOAD_FAILURE,ex);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
         }
     }
 
@@ -142,4 +486,119 @@ public class S3DocumentService {
     private String getPDFFilename(String fileName) {
         return String.format("%s.%s", fileName.substring(0, fileName.lastIndexOf('.')), "pdf");
     }
+
+    /**
+     * One multipart copy. Rather than a thread per part, docs.trustedS3copy.parallelism chains each start the next
+     * part when their last one finishes, and after a failure no new parts are started before the upload is aborted.
+     */
+    private class MultipartCopy {
+        private final S3DocumentMetadata source;
+        private final UUID documentUUID;
+        private final String destinationKey;
+        private final Map<String, String> metaData;
+        private final List<CopyPart> parts = new ArrayList<>();
+        private final AtomicInteger nextPart = new AtomicInteger();
+        private final AtomicBoolean failed = new AtomicBoolean();
+        private CompletedPart[] completedParts;
+
+        MultipartCopy(S3DocumentMetadata source, UUID documentUUID, String destinationKey, Map<String, String> metaData) {
+            this.source = source;
+            this.documentUUID = documentUUID;
+            this.destinationKey = destinationKey;
+            this.metaData = metaData;
+        }
+
+        CompletableFuture<Void> start() {
+            return trustedS3AsyncClient.createMultipartUpload(request -> request
+                    .bucket(trustedS3BucketName)
+                    .key(destinationKey)
+                    .contentType(source.getMimeType())
+                    .metadata(metaData)
+                    .serverSideEncryption(kmsEncryption())
+                    .ssekmsKeyId(kmsKeyId()))
+                    .thenCompose(upload -> copyParts(upload.uploadId())
+                            .thenCompose(ignored -> trustedS3AsyncClient.completeMultipartUpload(request -> request
+                                    .bucket(trustedS3BucketName)
+                                    .key(destinationKey)
+                                    .uploadId(upload.uploadId())
+                                    .multipartUpload(multipartUpload -> multipartUpload.parts(completedParts))))
+                            .handle((response, e) -> e == null
+                                    ? CompletableFuture.<Void>completedFuture(null)
+                                    : abort(upload.uploadId()).thenCompose(aborted -> CompletableFuture.<Void>failedFuture(e)))
+                            .thenCompose(Function.identity()));
+        }
+
+        private CompletableFuture<Void> copyParts(String uploadId) {
+            int partNumber = 1;
+            for (long start = 0; start < source.getContentLength(); start += multipartCopyPartSize) {
+                long end = Math.min(start + multipartCopyPartSize, source.getContentLength()) - 1;
+                parts.add(new CopyPart(uploadId, partNumber++, start, end));
+            }
+            completedParts = new CompletedPart[parts.size()];
+
+            CompletableFuture<?>[] chains = new CompletableFuture<?>[Math.min(copyParallelism, parts.size())];
+            Arrays.setAll(chains, chain -> copyNextPart());
+            return CompletableFuture.allOf(chains);
+        }
+
+        private CompletableFuture<Void> copyNextPart() {
+            int index = nextPart.getAndIncrement();
+            if (index >= parts.size() || failed.get()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return copyPart(parts.get(index))
+                    .whenComplete((part, e) -> {
+                        if (e != null) {
+                            failed.set(true);
+                        } else {
+                            completedParts[index] = part;
+                        }
+                    })
+                    .thenCompose(part -> copyNextPart());
+        }
+
+        private CompletableFuture<CompletedPart> copyPart(CopyPart part) {
+            String range = String.format("bytes=%d-%d", part.start, part.end);
+            if (serverSideCopy) {
+                return trustedS3AsyncClient.uploadPartCopy(request -> request
+                        .copySource(copySource(source.getKey()))
+                        .copySourceRange(range)
+                        .bucket(trustedS3BucketName)
+                        .key(destinationKey)
+                        .uploadId(part.uploadId)
+                        .partNumber(part.partNumber))
+                        .thenApply(response -> CompletedPart.builder().partNumber(part.partNumber).eTag(response.copyPartResult().eTag()).build());
+            }
+
+            S3DocumentStream scratchCopy = scratchStore.get(documentUUID, source.getKey(), part.start, part.end);
+            CompletableFuture<AsyncRequestBody> body = scratchCopy != null
+                    ? readScratchCopy(scratchCopy)
+                    : forwardUntrusted(source.getKey(), range);
+            return body.thenCompose(content -> trustedS3AsyncClient.uploadPart(request -> request
+                    .bucket(trustedS3BucketName)
+                    .key(destinationKey)
+                    .uploadId(part.uploadId)
+                    .partNumber(part.partNumber)
+                    .contentLength(part.end - part.start + 1), content))
+                    .thenApply(response -> CompletedPart.builder().partNumber(part.partNumber).eTag(response.eTag()).build());
+        }
+
+        private CompletableFuture<Void> abort(String uploadId) {
+            return trustedS3AsyncClient.abortMultipartUpload(request -> request.bucket(trustedS3BucketName).key(destinationKey).uploadId(uploadId))
+                    .handle((response, e) -> {
+                        if (e != null) {
+                            log.warn("Failed to abort multipart upload {} of {}", uploadId, destinationKey, value(EVENT, S3_UPLOAD_FAILURE));
+                        }
+                        return null;
+                    });
+        }
+    }
+
+    @AllArgsConstructor
+    private static class CopyPart {
+        private final String uploadId;
+        private final int partNumber;
+        private final long start;
+        private final long end;
+    }
 }
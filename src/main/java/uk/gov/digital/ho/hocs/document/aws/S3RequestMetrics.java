@@ -0,0 +1,85 @@
+package uk.gov.digital.ho.hocs.document.aws;
+
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.handlers.HandlerContextKey;
+import com.amazonaws.handlers.RequestHandler2;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.util.StringUtils;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every request made by an S3 client as s3.requests and records the payload size of gets and puts as
+ * s3.bytes, both tagged with the client (trusted or untrusted) and the S3 operation. For a streamed get the timer
+ * covers the time to the response headers; reading the body is done later by the caller.
+ */
+public class S3RequestMetrics extends RequestHandler2 {
+
+    private static final HandlerContextKey<Long> START = new HandlerContextKey<>("s3.requests.start");
+
+    private final MeterRegistry meterRegistry;
+    private final String client;
+
+    public S3RequestMetrics(MeterRegistry meterRegistry, String client) {
+        this.meterRegistry = meterRegistry;
+        this.client = client;
+    }
+
+    @Override
+    public void beforeRequest(Request<?> request) {
+        request.addHandlerContext(START, System.nanoTime());
+    }
+
+    @Override
+    public void afterResponse(Request<?> request, Response<?> response) {
+        String operation = operation(request);
+        record(request, operation, "success");
+
+        Map<String, String> headers = "GetObject".equals(operation) ? response.getHttpResponse().getHeaders() : request.getHeaders();
+        long bytes = contentLength(headers);
+        if (bytes > 0) {
+            DistributionSummary.builder("s3.bytes")
+                    .baseUnit("bytes")
+                    .tags("client", client, "operation", operation)
+                    .register(meterRegistry)
+                    .record(bytes);
+        }
+    }
+
+    @Override
+    public void afterError(Request<?> request, Response<?> response, Exception e) {
+        record(request, operation(request), "error");
+    }
+
+    private void record(Request<?> request, String operation, String outcome) {
+        Long start = request.getHandlerContext(START);
+        if (start != null) {
+            Timer.builder("s3.requests")
+                    .tags("client", client, "operation", operation, "outcome", outcome)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static String operation(Request<?> request) {
+        String name = request.getOriginalRequest().getClass().getSimpleName();
+        return name.endsWith("Request") ? name.substring(0, name.length() - "Request".length()) : name;
+    }
+
+    private static long contentLength(Map<String, String> headers) {
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if ("Content-Length".equalsIgnoreCase(header.getKey()) && !StringUtils.isEmpty(header.getValue())) {
+                try {
+                    return Long.parseLong(header.getValue().trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+}
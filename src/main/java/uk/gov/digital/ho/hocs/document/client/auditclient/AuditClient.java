@@ -1,20 +1,39 @@
 package uk.gov.digital.ho.hocs.document.client.auditclient;
 
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.MessageAttributeValue;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchResult;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.camel.ProducerTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.retry.backoff.FixedBackOffPolicy;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+import org.springframework.retry.support.RetryTemplate;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PostConstruct;
 import javax.json.Json;
 import uk.gov.digital.ho.hocs.document.application.RequestData;
 import uk.gov.digital.ho.hocs.document.client.auditclient.dto.CreateAuditRequest;
 import uk.gov.digital.ho.hocs.document.model.DocumentData;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 import static net.logstash.logback.argument.StructuredArguments.value;
@@ -24,6 +43,9 @@ import static uk.gov.digital.ho.hocs.document.application.LogEvent.*;
 @Component
 public class AuditClient {
 
+    // SendMessageBatch accepts at most 10 entries
+    private static final int MAX_BATCH_SIZE = 10;
+
     private final String auditQueue;
     private final String raisingService;
     private final String namespace;
@@ -31,6 +53,13 @@ public class AuditClient {
     private final ObjectMapper objectMapper;
     private final String EVENT_TYPE_HEADER ="event_type";
     private final RequestData requestData;
+    private final AuditEventBuffer auditEventBuffer;
+    private final String auditQueueName;
+    private final Optional<AmazonSQS> auditSqsClient;
+    private final RetryTemplate retryTemplate;
+    private final Counter published;
+    private final Counter failed;
+    private volatile String auditQueueUrl;
 
     @Autowired
     public AuditClient(ProducerTemplate producerTemplate,
@@ -38,66 +67,148 @@ public class AuditClient {
                        @Value("${auditing.deployment.name}") String raisingService,
                        @Value("${auditing.deployment.namespace}") String namespace,
                        ObjectMapper objectMapper,
-                       RequestData requestData) {
+                       RequestData requestData,
+                       @Value("${audit.buffer.capacity}") int bufferCapacity,
+                       @Value("${audit.buffer.batchSize}") int batchSize,
+                       @Value("${audit.buffer.flushIntervalMillis}") long flushIntervalMillis,
+                       @Value("${audit.queue.name}") String auditQueueName,
+                       @Qualifier("auditSqsClient") Optional<AmazonSQS> auditSqsClient,
+                       @Value("${retry.maxAttempts}") int retryMaxAttempts,
+                       @Value("${retry.delay}") long retryDelay,
+                       MeterRegistry meterRegistry) {
         this.producerTemplate = producerTemplate;
         this.auditQueue = auditQueue;
         this.raisingService = raisingService;
         this.namespace = namespace;
         this.objectMapper = objectMapper;
         this.requestData = requestData;
+        this.auditEventBuffer = new AuditEventBuffer(bufferCapacity, batchSize, flushIntervalMillis, this::publish, meterRegistry);
+        this.auditQueueName = auditQueueName;
+        this.auditSqsClient = auditSqsClient;
+        this.retryTemplate = new RetryTemplate();
+        this.retryTemplate.setRetryPolicy(new SimpleRetryPolicy(retryMaxAttempts));
+        FixedBackOffPolicy backOffPolicy = new FixedBackOffPolicy();
+        backOffPolicy.setBackOffPeriod(retryDelay);
+        this.retryTemplate.setBackOffPolicy(backOffPolicy);
+        this.published = meterRegistry.counter("audit.events.published");
+        this.failed = meterRegistry.counter("audit.events.failed");
+    }
+
+    @PostConstruct
+    public void start() {
+        auditEventBuffer.start();
+    }
+
+    /**
+     * Runs on context close, before the Camel context stops, so buffered events can still be sent.
+     */
+    @EventListener(ContextClosedEvent.class)
+    public void shutdown() {
+        auditEventBuffer.stop();
+    }
+
+    public void flush() {
+        auditEventBuffer.flush();
     }
 
-    @Async
     public void createDocumentAudit(DocumentData documentData) {
-        CreateAuditRequest request = generateAuditRequest(documentData.getExternalReferenceUUID(),
-                createAuditPayload(documentData),
-                EventType.DOCUMENT_CREATED.toString());
-        try {
-            producerTemplate.sendBodyAndHeaders(auditQueue, objectMapper.writeValueAsString(request), getQueueHeaders(EventType.DOCUMENT_CREATED.toString()));
-            log.info("Create audit for Create Document, document UUID: {}, case UUID: {}, correlationID: {}, UserID: {}",
-                    documentData.getUuid(),
-                    documentData.getExternalReferenceUUID(),
-                    requestData.correlationId(),
-                    requestData.userId(),
-                    value(EVENT, AUDIT_EVENT_CREATED));
-        } catch (Exception e) {
-            log.error("Failed to create audit event for document UUID {} for reason {}", documentData.getUuid(), e, value(EVENT, AUDIT_FAILED));
-        }
+        audit(documentData, EventType.DOCUMENT_CREATED, EventType.DOCUMENT_CREATED);
     }
 
-    @Async
     public void updateDocumentAudit(DocumentData documentData) {
+        audit(documentData, EventType.DOCUMENT_UPDATED, EventType.DOCUMENT_CREATED);
+    }
+
+    public void deleteDocumentAudit(DocumentData documentData) {
+        audit(documentData, EventType.DOCUMENT_DELETED, EventType.DOCUMENT_DELETED);
+    }
+
+    private void audit(DocumentData documentData, EventType eventType, EventType headerEventType) {
         CreateAuditRequest request = generateAuditRequest(documentData.getExternalReferenceUUID(),
                 createAuditPayload(documentData),
-                EventType.DOCUMENT_UPDATED.toString());
+                eventType.toString());
+        auditEventBuffer.offer(new AuditEventBuffer.AuditEvent(documentData.getUuid(), request, getQueueHeaders(headerEventType.toString())));
+    }
+
+    /**
+     * Publishes the batch in SendMessageBatch calls of up to ten messages when audit.queue.name names an SQS queue,
+     * otherwise one event at a time through the audit endpoint. A batch that still fails after retrying, and any
+     * entries SQS reports as failed, are resent one event at a time through the audit endpoint.
+     */
+    private void publish(List<AuditEventBuffer.AuditEvent> batch) {
+        if (!auditSqsClient.isPresent() || StringUtils.isEmpty(auditQueueName)) {
+            sendEvents(batch);
+            return;
+        }
+        for (int start = 0; start < batch.size(); start += MAX_BATCH_SIZE) {
+            sendEventBatch(batch.subList(start, Math.min(start + MAX_BATCH_SIZE, batch.size())));
+        }
+    }
+
+    private void sendEventBatch(List<AuditEventBuffer.AuditEvent> batch) {
+        List<SendMessageBatchRequestEntry> entries = new ArrayList<>(batch.size());
         try {
-            producerTemplate.sendBodyAndHeaders(auditQueue, objectMapper.writeValueAsString(request), getQueueHeaders(EventType.DOCUMENT_CREATED.toString()));
-            log.info("Create audit for Update Document, document UUID: {}, case UUID: {}, correlationID: {}, UserID: {}",
-                    documentData.getUuid(),
-                    documentData.getExternalReferenceUUID(),
-                    requestData.correlationId(),
-                    requestData.userId(),
-                    value(EVENT, AUDIT_EVENT_CREATED));
-        } catch (Exception e) {
-            log.error("Failed to create audit event for document UUID {} for reason {}", documentData.getUuid(), e, value(EVENT, AUDIT_FAILED));
+            for (int i = 0; i < batch.size(); i++) {
+                entries.add(new SendMessageBatchRequestEntry(Integer.toString(i), objectMapper.writeValueAsString(batch.get(i).getRequest()))
+                        .withMessageAttributes(getMessageAttributes(batch.get(i).getHeaders())));
+            }
+        } catch (JsonProcessingException e) {
+            log.warn("Could not batch {} audit events: {}, sending individually", batch.size(), e.toString(), value(EVENT, AUDIT_FAILED));
+            sendEvents(batch);
+            return;
         }
+
+        SendMessageBatchResult result;
+        try {
+            result = retryTemplate.execute(context -> auditSqsClient.get().sendMessageBatch(getAuditQueueUrl(), entries));
+        } catch (RuntimeException e) {
+            log.warn("Batch send of {} audit events failed: {}, sending individually", batch.size(), e.toString(), value(EVENT, AUDIT_FAILED));
+            sendEvents(batch);
+            return;
+        }
+
+        List<AuditEventBuffer.AuditEvent> retries = new ArrayList<>();
+        for (BatchResultErrorEntry failedEntry : result.getFailed()) {
+            log.warn("Batch send failed for an audit event: {}, sending individually", failedEntry.getMessage(), value(EVENT, AUDIT_FAILED));
+            retries.add(batch.get(Integer.parseInt(failedEntry.getId())));
+        }
+        published.increment(batch.size() - retries.size());
+        log.info("Created {} audits in a batch", batch.size() - retries.size(), value(EVENT, AUDIT_EVENT_CREATED));
+        sendEvents(retries);
     }
 
-    @Async
-    public void deleteDocumentAudit(DocumentData documentData) {
-        CreateAuditRequest request = generateAuditRequest(documentData.getExternalReferenceUUID(),
-                createAuditPayload(documentData),
-                EventType.DOCUMENT_DELETED.toString());
+    private void sendEvents(List<AuditEventBuffer.AuditEvent> batch) {
+        List<AuditEventBuffer.AuditEvent> retries = new ArrayList<>();
+        for (AuditEventBuffer.AuditEvent event : batch) {
+            if (!send(event, false)) {
+                retries.add(event);
+            }
+        }
+        for (AuditEventBuffer.AuditEvent event : retries) {
+            if (!send(event, true)) {
+                failed.increment();
+            }
+        }
+    }
+
+    private boolean send(AuditEventBuffer.AuditEvent event, boolean lastAttempt) {
+        CreateAuditRequest request = event.getRequest();
         try {
-            producerTemplate.sendBodyAndHeaders(auditQueue, objectMapper.writeValueAsString(request), getQueueHeaders(EventType.DOCUMENT_DELETED.toString()));
-            log.info("Create audit for Delete Document, document UUID: {}, case UUID: {}, correlationID: {}, UserID: {}",
-                    documentData.getUuid(),
-                    documentData.getExternalReferenceUUID(),
-                    requestData.correlationId(),
-                    requestData.userId(),
+            producerTemplate.sendBodyAndHeaders(auditQueue, objectMapper.writeValueAsString(request), event.getHeaders());
+            published.increment();
+            log.info("Create audit for {}, document UUID: {}, case UUID: {}, correlationID: {}, UserID: {}",
+                    request.getType(),
+                    event.getDocumentUUID(),
+                    request.getCaseUUID(),
+                    request.getCorrelationID(),
+                    request.getUserID(),
                     value(EVENT, AUDIT_EVENT_CREATED));
+            return true;
         } catch (Exception e) {
-            log.error("Failed to create audit event for document UUID {} for reason {}", documentData.getUuid(), e, value(EVENT, AUDIT_FAILED));
+            if (lastAttempt) {
+                log.error("Failed to create audit event for document UUID {} for reason {}", event.getDocumentUUID(), e, value(EVENT, AUDIT_FAILED));
+            }
+            return false;
         }
     }
 
@@ -123,6 +234,23 @@ public class AuditClient {
                 requestData.userId());
     }
 
+    private static Map<String, MessageAttributeValue> getMessageAttributes(Map<String, Object> headers) {
+        Map<String, MessageAttributeValue> attributes = new HashMap<>();
+        headers.forEach((name, header) -> {
+            if (header != null) {
+                attributes.put(name, new MessageAttributeValue().withDataType("String").withStringValue(header.toString()));
+            }
+        });
+        return attributes;
+    }
+
+    private String getAuditQueueUrl() {
+        if (auditQueueUrl == null) {
+            auditQueueUrl = auditSqsClient.get().getQueueUrl(auditQueueName).getQueueUrl();
+        }
+        return auditQueueUrl;
+    }
+
     private Map<String, Object> getQueueHeaders(String eventType) {
         Map<String, Object> headers = new HashMap<>();
         headers.put(EVENT_TYPE_HEADER, eventType);
@@ -0,0 +1,163 @@
+package uk.gov.digital.ho.hocs.document.client.auditclient;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import uk.gov.digital.ho.hocs.document.client.auditclient.dto.CreateAuditRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static net.logstash.logback.argument.StructuredArguments.value;
+import static uk.gov.digital.ho.hocs.document.application.LogEvent.AUDIT_EVENT_DROPPED;
+import static uk.gov.digital.ho.hocs.document.application.LogEvent.AUDIT_FAILED;
+import static uk.gov.digital.ho.hocs.document.application.LogEvent.EVENT;
+
+/**
+ * Bounded buffer of audit events drained by a single flusher thread, which hands them to the publisher in batches
+ * of up to batchSize once the batch is full or flushInterval has passed since its first event. Events offered while
+ * the buffer is full are dropped and counted rather than queued without limit.
+ */
+@Slf4j
+class AuditEventBuffer {
+
+    // wakes the flusher when it is waiting on an empty buffer so that it can see it has been stopped
+    private static final AuditEvent STOP = new AuditEvent(null, null, null);
+
+    private final BlockingQueue<AuditEvent> events;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final long stopTimeoutMillis;
+    private final Consumer<List<AuditEvent>> publisher;
+    private final Counter dropped;
+    private volatile boolean running;
+    private Thread flusher;
+
+    AuditEventBuffer(int capacity, int batchSize, long flushIntervalMillis, Consumer<List<AuditEvent>> publisher, MeterRegistry meterRegistry) {
+        this(capacity, batchSize, flushIntervalMillis, TimeUnit.SECONDS.toMillis(10), publisher, meterRegistry);
+    }
+
+    AuditEventBuffer(int capacity, int batchSize, long flushIntervalMillis, long stopTimeoutMillis, Consumer<List<AuditEvent>> publisher, MeterRegistry meterRegistry) {
+        this.events = new ArrayBlockingQueue<>(capacity);
+        this.stopTimeoutMillis = stopTimeoutMillis;
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.publisher = publisher;
+        this.dropped = meterRegistry.counter("audit.events.dropped");
+        meterRegistry.gauge("audit.buffer.size", events, BlockingQueue::size);
+    }
+
+    boolean offer(AuditEvent event) {
+        if (events.offer(event)) {
+            return true;
+        }
+        dropped.increment();
+        log.error("Audit buffer full, dropped {} event for document UUID {}", event.getRequest().getType(), event.getDocumentUUID(), value(EVENT, AUDIT_EVENT_DROPPED));
+        return false;
+    }
+
+    synchronized void start() {
+        if (flusher == null) {
+            running = true;
+            flusher = new Thread(this::run, "audit-flusher");
+            flusher.setDaemon(true);
+            flusher.start();
+        }
+    }
+
+    /**
+     * Tells the flusher thread to publish what is still buffered and exit, without interrupting a send in progress,
+     * and waits up to stopTimeout for it. The final drain is left to the flusher so that events are never published
+     * from two threads at once; the calling thread only drains the buffer when no flusher was started.
+     */
+    synchronized void stop() {
+        running = false;
+        if (flusher == null) {
+            flush();
+            return;
+        }
+        // a full buffer cannot take the marker, but then the flusher is not waiting and sees running is false
+        events.offer(STOP);
+        try {
+            flusher.join(stopTimeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (flusher.isAlive()) {
+            log.warn("Audit flusher still publishing after {} ms, leaving {} buffered events to it", stopTimeoutMillis, events.size(), value(EVENT, AUDIT_FAILED));
+        }
+        flusher = null;
+    }
+
+    void flush() {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        while (events.drainTo(batch, batchSize) > 0) {
+            batch.remove(STOP);
+            if (!batch.isEmpty()) {
+                publish(batch);
+            }
+            batch.clear();
+        }
+    }
+
+    private void run() {
+        List<AuditEvent> batch = new ArrayList<>(batchSize);
+        try {
+            while (running) {
+                AuditEvent first = events.take();
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+                while (batch.size() < batchSize && running) {
+                    events.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    AuditEvent next = events.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                batch.remove(STOP);
+                if (!batch.isEmpty()) {
+                    publish(batch);
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // stop() leaves whatever is still buffered to this thread
+            batch.remove(STOP);
+            if (!batch.isEmpty()) {
+                publish(batch);
+            }
+            flush();
+        }
+    }
+
+    private void publish(List<AuditEvent> batch) {
+        try {
+            publisher.accept(batch);
+        } catch (RuntimeException e) {
+            log.error("Failed to publish batch of {} audit events for reason {}", batch.size(), e, value(EVENT, AUDIT_FAILED));
+        }
+    }
+
+    @AllArgsConstructor
+    @Getter
+    static class AuditEvent {
+        private final UUID documentUUID;
+        private final CreateAuditRequest request;
+        private final Map<String, Object> headers;
+    }
+}
@@ -1,18 +1,29 @@
 package uk.gov.digital.ho.hocs.document.client.documentclient;
 
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchResult;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.camel.ProducerTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Retryable;
+import org.springframework.retry.backoff.FixedBackOffPolicy;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+import org.springframework.retry.support.RetryTemplate;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 import uk.gov.digital.ho.hocs.document.client.documentclient.dto.ProcessDocumentRequest;
 import uk.gov.digital.ho.hocs.document.exception.ApplicationExceptions;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 import static net.logstash.logback.argument.StructuredArguments.value;
@@ -22,32 +33,142 @@ import static uk.gov.digital.ho.hocs.document.application.LogEvent.*;
 @Component
 public class DocumentClient {
 
+    // SendMessageBatch accepts at most 10 entries
+    private static final int MAX_BATCH_SIZE = 10;
+
     private final String documentQueue;
+    private final String documentQueueName;
     private final ProducerTemplate producerTemplate;
     private final ObjectMapper objectMapper;
+    private final Optional<AmazonSQS> sqsClient;
+    private final RetryTemplate retryTemplate;
+    private final Counter failedDispatches;
+    private volatile String documentQueueUrl;
 
     @Autowired
     public DocumentClient(ProducerTemplate producerTemplate,
                           @Value("${docs.queue}") String documentQueue,
-                          ObjectMapper objectMapper){
+                          @Value("${docs.queue.name}") String documentQueueName,
+                          ObjectMapper objectMapper,
+                          @Qualifier("sqsClient") Optional<AmazonSQS> sqsClient,
+                          @Value("${retry.maxAttempts}") int retryMaxAttempts,
+                          @Value("${retry.delay}") long retryDelay,
+                          MeterRegistry meterRegistry){
         this.producerTemplate = producerTemplate;
         this.documentQueue = documentQueue;
+        this.documentQueueName = documentQueueName;
         this.objectMapper = objectMapper;
+        this.sqsClient = sqsClient;
+        // sends are made from within this bean, where a @Retryable proxy would never see them
+        this.retryTemplate = new RetryTemplate();
+        this.retryTemplate.setRetryPolicy(new SimpleRetryPolicy(retryMaxAttempts));
+        FixedBackOffPolicy backOffPolicy = new FixedBackOffPolicy();
+        backOffPolicy.setBackOffPeriod(retryDelay);
+        this.retryTemplate.setBackOffPolicy(backOffPolicy);
+        this.failedDispatches = Counter.builder("documents.dispatch.failed")
+                .description("Documents that could not be queued for processing after retrying")
+                .register(meterRegistry);
     }
 
     @Async
     public void processDocument(UUID documentUUID, String fileLocation) {
         ProcessDocumentRequest request = new ProcessDocumentRequest(documentUUID, fileLocation);
         try {
-            sendMessage(objectMapper.writeValueAsString(request));
-            log.info("Processed Document {}", documentUUID, value(EVENT, DOCUMENT_CLIENT_PROCESS_SUCCESS));
+            if (trySendMessage(request, objectMapper.writeValueAsString(request))) {
+                log.info("Processed Document {}", documentUUID, value(EVENT, DOCUMENT_CLIENT_PROCESS_SUCCESS));
+            }
         } catch (JsonProcessingException e) {
             throw new ApplicationExceptions.EntityCreationException(String.format("Could not process Document: %s", e.toString()), DOCUMENT_CLIENT_FAILURE);
         }
     }
 
-    @Retryable(maxAttemptsExpression = "${retry.maxAttempts}", backoff = @Backoff(delayExpression = "${retry.delay}"))
-    private void sendMessage(String message) {
-        producerTemplate.sendBody(documentQueue, message);
+    /**
+     * Publishes the requests in SendMessageBatch calls of up to ten messages when the queue is SQS,
+     * otherwise one message at a time through the Camel endpoint. A batch that still fails after
+     * retrying, and any entries SQS reports as failed, are resent one message at a time. Documents
+     * that cannot be queued at all are logged and counted rather than stopping the rest.
+     */
+    @Async
+    public void processDocuments(List<ProcessDocumentRequest> requests) {
+        List<String> messages = new ArrayList<>(requests.size());
+        try {
+            for (ProcessDocumentRequest request : requests) {
+                messages.add(objectMapper.writeValueAsString(request));
+            }
+        } catch (JsonProcessingException e) {
+            throw new ApplicationExceptions.EntityCreationException(String.format("Could not process Documents: %s", e.toString()), DOCUMENT_CLIENT_FAILURE);
+        }
+
+        int failed = 0;
+        if (!sqsClient.isPresent()) {
+            failed = sendMessages(requests, messages);
+        } else {
+            for (int start = 0; start < messages.size(); start += MAX_BATCH_SIZE) {
+                int end = Math.min(start + MAX_BATCH_SIZE, messages.size());
+                failed += sendMessageBatch(requests.subList(start, end), messages.subList(start, end));
+            }
+        }
+
+        if (failed > 0) {
+            log.error("Processed {} of {} Documents", requests.size() - failed, requests.size(), value(EVENT, DOCUMENT_CLIENT_FAILURE));
+        } else {
+            log.info("Processed {} Documents", requests.size(), value(EVENT, DOCUMENT_CLIENT_PROCESS_SUCCESS));
+        }
+    }
+
+    private int sendMessageBatch(List<ProcessDocumentRequest> requests, List<String> messages) {
+        List<SendMessageBatchRequestEntry> entries = new ArrayList<>(messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            entries.add(new SendMessageBatchRequestEntry(Integer.toString(i), messages.get(i)));
+        }
+
+        SendMessageBatchResult result;
+        try {
+            result = retryTemplate.execute(context -> sqsClient.get().sendMessageBatch(getDocumentQueueUrl(), entries));
+        } catch (RuntimeException e) {
+            log.warn("Batch send of {} Document messages failed: {}, resending individually", messages.size(), e.toString(), value(EVENT, DOCUMENT_CLIENT_FAILURE));
+            return sendMessages(requests, messages);
+        }
+
+        int failed = 0;
+        for (BatchResultErrorEntry failedEntry : result.getFailed()) {
+            log.warn("Batch send failed for a Document message: {}, resending individually", failedEntry.getMessage(), value(EVENT, DOCUMENT_CLIENT_FAILURE));
+            int index = Integer.parseInt(failedEntry.getId());
+            if (!trySendMessage(requests.get(index), messages.get(index))) {
+                failed++;
+            }
+        }
+        return failed;
+    }
+
+    private int sendMessages(List<ProcessDocumentRequest> requests, List<String> messages) {
+        int failed = 0;
+        for (int i = 0; i < messages.size(); i++) {
+            if (!trySendMessage(requests.get(i), messages.get(i))) {
+                failed++;
+            }
+        }
+        return failed;
+    }
+
+    private boolean trySendMessage(ProcessDocumentRequest request, String message) {
+        try {
+            retryTemplate.execute(context -> {
+                producerTemplate.sendBody(documentQueue, message);
+                return null;
+            });
+            return true;
+        } catch (RuntimeException e) {
+            failedDispatches.increment();
+            log.error("Could not queue Document {} for processing: {}", request.getUuid(), e.toString(), value(EVENT, DOCUMENT_CLIENT_FAILURE));
+            return false;
+        }
+    }
+
+    private String getDocumentQueueUrl() {
+        if (documentQueueUrl == null) {
+            documentQueueUrl = sqsClient.get().getQueueUrl(documentQueueName).getQueueUrl();
+        }
+        return documentQueueUrl;
     }
 }
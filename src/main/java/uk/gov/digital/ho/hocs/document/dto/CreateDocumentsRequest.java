@@ -0,0 +1,18 @@
+package uk.gov.digital.ho.hocs.document.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+public class CreateDocumentsRequest {
+
+    @JsonProperty("documents")
+    private List<CreateDocumentRequest> documents;
+
+}
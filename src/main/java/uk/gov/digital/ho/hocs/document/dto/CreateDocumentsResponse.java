@@ -0,0 +1,23 @@
+package uk.gov.digital.ho.hocs.document.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import uk.gov.digital.ho.hocs.document.model.DocumentData;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@Getter
+public class CreateDocumentsResponse {
+
+    @JsonProperty("uuids")
+    private List<UUID> uuids;
+
+    public static CreateDocumentsResponse from(List<DocumentData> documents) {
+        return new CreateDocumentsResponse(documents.stream().map(DocumentData::getUuid).collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,46 @@
+package uk.gov.digital.ho.hocs.document.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import uk.gov.digital.ho.hocs.document.exception.ApplicationExceptions;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static uk.gov.digital.ho.hocs.document.application.LogEvent.DOCUMENT_QUERY_INVALID;
+
+/**
+ * Opaque keyset position in a listing ordered by (created, id).
+ */
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@Getter
+public class DocumentCursor {
+
+    public static final DocumentCursor FIRST = new DocumentCursor(LocalDateTime.of(1970, 1, 1, 0, 0), 0);
+
+    private final LocalDateTime created;
+    private final int id;
+
+    public static DocumentCursor after(DocumentDto documentDto) {
+        return new DocumentCursor(documentDto.getCreated(), documentDto.getId());
+    }
+
+    public static DocumentCursor decode(String cursor) {
+        if (cursor == null) {
+            return FIRST;
+        }
+        try {
+            String[] position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(",");
+            return new DocumentCursor(LocalDateTime.parse(position[0]), Integer.parseInt(position[1]));
+        } catch (RuntimeException e) {
+            throw new ApplicationExceptions.BadRequestException("Invalid cursor: %s", DOCUMENT_QUERY_INVALID, cursor);
+        }
+    }
+
+    public String encode() {
+        String position = created + "," + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+}
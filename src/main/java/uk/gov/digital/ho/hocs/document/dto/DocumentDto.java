@@ -1,5 +1,6 @@
 package uk.gov.digital.ho.hocs.document.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
@@ -41,6 +42,22 @@ public class DocumentDto {
     @JsonProperty("deleted")
     private Boolean deleted;
 
+    // Only known for page rows, where it positions the next cursor
+    @JsonIgnore
+    private Integer id;
+
+    // Constructor expression target for the DocumentRepository projection queries
+    public DocumentDto(UUID uuid, UUID externalReferenceUUID, String type, String displayName, String status,
+                       LocalDateTime created, LocalDateTime updated, Boolean deleted) {
+        this(uuid, externalReferenceUUID, DocumentType.valueOf(type), displayName, DocumentStatus.valueOf(status), created, updated, deleted, null);
+    }
+
+    // Constructor expression target for the DocumentRepository keyset page queries
+    public DocumentDto(int id, UUID uuid, UUID externalReferenceUUID, String type, String displayName, String status,
+                       LocalDateTime created, LocalDateTime updated, Boolean deleted) {
+        this(uuid, externalReferenceUUID, DocumentType.valueOf(type), displayName, DocumentStatus.valueOf(status), created, updated, deleted, id);
+    }
+
     public static DocumentDto from(DocumentData documentData) {
 
         return new DocumentDto(
@@ -51,7 +68,8 @@ public class DocumentDto {
                 documentData.getStatus(),
                 documentData.getCreated(),
                 documentData.getUpdated(),
-                documentData.getDeleted()
+                documentData.getDeleted(),
+                documentData.getId()
         );
     }
 }
\ No newline at end of file
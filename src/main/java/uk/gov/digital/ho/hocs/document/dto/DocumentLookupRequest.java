@@ -0,0 +1,19 @@
+package uk.gov.digital.ho.hocs.document.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+public class DocumentLookupRequest {
+
+    @JsonProperty("uuids")
+    private List<UUID> uuids;
+
+}
@@ -0,0 +1,46 @@
+package uk.gov.digital.ho.hocs.document.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@Getter
+public class DocumentLookupResponse {
+
+    @JsonProperty("documents")
+    private List<DocumentDto> documentDtos;
+
+    @JsonProperty("missing")
+    private List<UUID> missing;
+
+    /**
+     * Orders the documents found as they were requested and lists the requested UUIDs that were not found.
+     */
+    public static DocumentLookupResponse from(Collection<UUID> requested, Collection<DocumentDto> found) {
+        Map<UUID, DocumentDto> byUuid = new HashMap<>(found.size() * 2);
+        for (DocumentDto documentDto : found) {
+            byUuid.put(documentDto.getUuid(), documentDto);
+        }
+
+        List<DocumentDto> documentDtos = new ArrayList<>(found.size());
+        List<UUID> missing = new ArrayList<>();
+        for (UUID uuid : requested) {
+            DocumentDto documentDto = byUuid.get(uuid);
+            if (documentDto != null) {
+                documentDtos.add(documentDto);
+            } else {
+                missing.add(uuid);
+            }
+        }
+        return new DocumentLookupResponse(documentDtos, missing);
+    }
+}
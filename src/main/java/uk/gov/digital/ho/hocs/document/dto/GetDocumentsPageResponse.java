@@ -0,0 +1,27 @@
+package uk.gov.digital.ho.hocs.document.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import java.util.List;
+
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@Getter
+public class GetDocumentsPageResponse {
+
+    @JsonProperty("documents")
+    private List<DocumentDto> documentDtos;
+
+    @JsonProperty("nextCursor")
+    private String nextCursor;
+
+    /**
+     * Builds a page from up to limit + 1 rows; the extra row only signals that there is a next page.
+     */
+    public static GetDocumentsPageResponse from(List<DocumentDto> documents, int limit) {
+        List<DocumentDto> page = documents.subList(0, Math.min(limit, documents.size()));
+        String nextCursor = documents.size() > limit ? DocumentCursor.after(page.get(page.size() - 1)).encode() : null;
+        return new GetDocumentsPageResponse(page, nextCursor);
+    }
+}
@@ -0,0 +1,26 @@
+package uk.gov.digital.ho.hocs.document.dto;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@AllArgsConstructor
+@Getter
+public class GetPendingDocumentsResponse {
+
+    @JsonProperty("count")
+    private long count;
+
+    @JsonProperty("oldestCreated")
+    private LocalDateTime oldestCreated;
+
+    /**
+     * Cumulative counts of pending documents older than each ISO-8601 duration, e.g. "PT15M".
+     */
+    @JsonProperty("olderThan")
+    private Map<String, Long> olderThan;
+
+}
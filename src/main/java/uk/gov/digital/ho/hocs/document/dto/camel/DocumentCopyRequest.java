@@ -3,9 +3,12 @@ package uk.gov.digital.ho.hocs.document.dto.camel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
+import java.util.UUID;
+
 @AllArgsConstructor
 @Getter
 public class DocumentCopyRequest {
+    private final UUID documentUUID;
     private final String fileLink;
     private final String externalReferenceUUID;
     private final String fileType;
@@ -12,4 +12,5 @@ public class S3Document {
     private final byte[] data;
     private final String fileType;
     private final String mimeType;
+    private final String contentHash;
 }
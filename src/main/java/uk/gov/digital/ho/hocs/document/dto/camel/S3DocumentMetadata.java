@@ -0,0 +1,20 @@
+package uk.gov.digital.ho.hocs.document.dto.camel;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Date;
+
+@AllArgsConstructor
+@Getter
+public class S3DocumentMetadata {
+
+    private final String key;
+    private final String filename;
+    private final String originalFilename;
+    private final String fileType;
+    private final String mimeType;
+    private final long contentLength;
+    private final String eTag;
+    private final Date lastModified;
+}
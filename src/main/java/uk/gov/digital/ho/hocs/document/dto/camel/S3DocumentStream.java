@@ -0,0 +1,21 @@
+package uk.gov.digital.ho.hocs.document.dto.camel;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+@AllArgsConstructor
+@Getter
+public class S3DocumentStream implements Closeable {
+
+    private final S3DocumentMetadata metadata;
+    private final InputStream content;
+
+    @Override
+    public void close() throws IOException {
+        content.close();
+    }
+}
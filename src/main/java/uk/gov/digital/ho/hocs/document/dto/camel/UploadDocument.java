@@ -3,11 +3,14 @@ package uk.gov.digital.ho.hocs.document.dto.camel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
+import java.io.InputStream;
+
 @AllArgsConstructor
 @Getter
 public class UploadDocument {
     private String filename;
-    private byte[] data;
+    private InputStream data;
+    private long contentLength;
     private String externalReferenceUUID;
     private String OriginalFileName;
 }
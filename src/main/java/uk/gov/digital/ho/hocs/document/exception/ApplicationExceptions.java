@@ -75,4 +75,17 @@ public interface ApplicationExceptions {
         }
     }
 
-}
\ No newline at end of file
+    class BadRequestException extends RuntimeException {
+        private final LogEvent event;
+
+        public BadRequestException(String msg, LogEvent event, Object... args) {
+            super(String.format(msg, args));
+            this.event = event;
+        }
+
+        public LogEvent getEvent() {
+            return event;
+        }
+    }
+
+}
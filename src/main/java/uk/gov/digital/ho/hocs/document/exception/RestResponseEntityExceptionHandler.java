@@ -6,6 +6,7 @@ import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
 import static net.logstash.logback.argument.StructuredArguments.value;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
 import static org.springframework.http.HttpStatus.NOT_FOUND;
 import static uk.gov.digital.ho.hocs.document.application.LogEvent.EVENT;
@@ -27,6 +28,12 @@ public class RestResponseEntityExceptionHandler {
         return new ResponseEntity<>(e.getMessage(), NOT_FOUND);
     }
 
+    @ExceptionHandler(ApplicationExceptions.BadRequestException.class)
+    public ResponseEntity handle(ApplicationExceptions.BadRequestException e) {
+        log.error("BadRequestException: {}", e.getMessage(), value(EVENT, e.getEvent()));
+        return new ResponseEntity<>(e.getMessage(), BAD_REQUEST);
+    }
+
     @ExceptionHandler(ApplicationExceptions.S3Exception.class)
     public ResponseEntity handle(ApplicationExceptions.S3Exception e) {
         log.error("S3Exception: {} caused by {}", e.getMessage(), e.getCause().getMessage(), value(EVENT, e.getEvent()));
@@ -0,0 +1,41 @@
+package uk.gov.digital.ho.hocs.document.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "document_conversion_result")
+@NoArgsConstructor
+public class DocumentConversionResult implements Serializable {
+
+    @Id
+    @Column(name = "id")
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private int id;
+
+    @Column(name = "content_hash")
+    @Getter
+    private String contentHash;
+
+    @Column(name = "converter_version")
+    @Getter
+    private String converterVersion;
+
+    @Column(name = "pdf_link")
+    @Getter
+    private String pdfLink;
+
+    @Column(name = "created")
+    @Getter
+    private LocalDateTime created = LocalDateTime.now();
+
+    public DocumentConversionResult(String contentHash, String converterVersion, String pdfLink) {
+        this.contentHash = contentHash;
+        this.converterVersion = converterVersion;
+        this.pdfLink = pdfLink;
+    }
+}
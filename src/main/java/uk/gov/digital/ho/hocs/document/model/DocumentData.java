@@ -22,7 +22,9 @@ public class DocumentData implements Serializable {
 
     @Id
     @Column(name = "id")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "document_data_id_seq")
+    @SequenceGenerator(name = "document_data_id_seq", sequenceName = "document_data_id_seq", allocationSize = 50)
+    @Getter
     private int id;
 
     @Column(name = "uuid")
@@ -64,12 +66,19 @@ public class DocumentData implements Serializable {
     @Setter
     private Boolean deleted = Boolean.FALSE;
 
+    @Transient
+    private DocumentType documentType;
+
+    @Transient
+    private DocumentStatus documentStatus;
+
     public DocumentData(UUID externalReferenceUUID, DocumentType type, String displayName) {
         if (externalReferenceUUID == null || type == null || displayName == null) {
             throw new ApplicationExceptions.EntityCreationException(String.format("Cannot create DocumentData(%s, %s, %s).", externalReferenceUUID, type, displayName), DOCUMENT_CREATION_FAILURE);
         }
         this.uuid = UUID.randomUUID();
         this.type = type.toString();
+        this.documentType = type;
         this.displayName = displayName;
         this.externalReferenceUUID = externalReferenceUUID;
     }
@@ -81,15 +90,22 @@ public class DocumentData implements Serializable {
         this.fileLink = fileLink;
         this.pdfLink = pdfLink;
         this.status = status.toString();
+        this.documentStatus = status;
         this.updated = LocalDateTime.now();
     }
 
     public DocumentType getType() {
-        return DocumentType.valueOf(this.type);
+        if (documentType == null) {
+            documentType = DocumentType.valueOf(this.type);
+        }
+        return documentType;
     }
 
     public DocumentStatus getStatus() {
-        return DocumentStatus.valueOf(this.status);
+        if (documentStatus == null) {
+            documentStatus = DocumentStatus.valueOf(this.status);
+        }
+        return documentStatus;
     }
 
 
@@ -0,0 +1,36 @@
+package uk.gov.digital.ho.hocs.document.model;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "malware_scan_result")
+@NoArgsConstructor
+public class MalwareScanResult implements Serializable {
+
+    @Id
+    @Column(name = "id")
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private int id;
+
+    @Column(name = "content_hash")
+    @Getter
+    private String contentHash;
+
+    @Column(name = "signature_version")
+    @Getter
+    private String signatureVersion;
+
+    @Column(name = "scanned")
+    @Getter
+    private LocalDateTime scanned = LocalDateTime.now();
+
+    public MalwareScanResult(String contentHash, String signatureVersion) {
+        this.contentHash = contentHash;
+        this.signatureVersion = signatureVersion;
+    }
+}
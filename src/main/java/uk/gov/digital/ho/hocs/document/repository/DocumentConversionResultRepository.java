@@ -0,0 +1,11 @@
+package uk.gov.digital.ho.hocs.document.repository;
+
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+import uk.gov.digital.ho.hocs.document.model.DocumentConversionResult;
+
+@Repository
+public interface DocumentConversionResultRepository extends CrudRepository<DocumentConversionResult, Integer> {
+
+    DocumentConversionResult findByContentHashAndConverterVersion(String contentHash, String converterVersion);
+}
@@ -1,18 +1,83 @@
 package uk.gov.digital.ho.hocs.document.repository;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import uk.gov.digital.ho.hocs.document.dto.DocumentDto;
 import uk.gov.digital.ho.hocs.document.model.DocumentData;
 
+import javax.persistence.QueryHint;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
 public interface DocumentRepository extends CrudRepository<DocumentData, String> {
 
+    String SELECT_DOCUMENT_DTO = "SELECT new uk.gov.digital.ho.hocs.document.dto.DocumentDto(" +
+            "d.uuid, d.externalReferenceUUID, d.type, d.displayName, d.status, d.created, d.updated, d.deleted) FROM DocumentData d ";
+
+    String SELECT_DOCUMENT_PAGE_DTO = "SELECT new uk.gov.digital.ho.hocs.document.dto.DocumentDto(" +
+            "d.id, d.uuid, d.externalReferenceUUID, d.type, d.displayName, d.status, d.created, d.updated, d.deleted) FROM DocumentData d ";
+
     DocumentData findByUuid(UUID uuid);
 
-    Set<DocumentData> findAllByExternalReferenceUUID(UUID externalReferenceUUID);
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+    @Query(SELECT_DOCUMENT_DTO + "WHERE d.uuid = :uuid")
+    DocumentDto findDtoByUuid(@Param("uuid") UUID uuid);
+
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+    @Query(SELECT_DOCUMENT_DTO + "WHERE d.uuid IN :uuids")
+    List<DocumentDto> findAllDtosByUuidIn(@Param("uuids") Collection<UUID> uuids);
+
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+    @Query(SELECT_DOCUMENT_DTO + "WHERE d.externalReferenceUUID = :externalReferenceUUID")
+    Set<DocumentDto> findAllDtosByExternalReferenceUUID(@Param("externalReferenceUUID") UUID externalReferenceUUID);
+
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+    @Query(SELECT_DOCUMENT_DTO + "WHERE d.externalReferenceUUID = :externalReferenceUUID AND d.type = :type")
+    Set<DocumentDto> findAllDtosByExternalReferenceUUIDAndType(@Param("externalReferenceUUID") UUID externalReferenceUUID,
+                                                              @Param("type") String type);
+
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+    @Query(SELECT_DOCUMENT_PAGE_DTO + "WHERE d.externalReferenceUUID = :externalReferenceUUID " +
+            "AND (d.created > :created OR (d.created = :created AND d.id > :id)) ORDER BY d.created, d.id")
+    List<DocumentDto> findPageByExternalReferenceUUID(@Param("externalReferenceUUID") UUID externalReferenceUUID,
+                                                      @Param("created") LocalDateTime created,
+                                                      @Param("id") int id,
+                                                      Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+    @Query(SELECT_DOCUMENT_PAGE_DTO + "WHERE d.externalReferenceUUID = :externalReferenceUUID AND d.type = :type " +
+            "AND (d.created > :created OR (d.created = :created AND d.id > :id)) ORDER BY d.created, d.id")
+    List<DocumentDto> findPageByExternalReferenceUUIDAndType(@Param("externalReferenceUUID") UUID externalReferenceUUID,
+                                                             @Param("type") String type,
+                                                             @Param("created") LocalDateTime created,
+                                                             @Param("id") int id,
+                                                             Pageable pageable);
+
+    long countByStatus(String status);
+
+    long countByStatusAndCreatedBefore(String status, LocalDateTime created);
+
+    @Query("SELECT MIN(d.created) FROM DocumentData d WHERE d.status = :status")
+    LocalDateTime findOldestCreatedByStatus(@Param("status") String status);
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "100"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("SELECT d FROM DocumentData d WHERE d.externalReferenceUUID = :externalReferenceUUID ORDER BY d.created, d.id")
+    Stream<DocumentData> streamAllByExternalReferenceUUID(@Param("externalReferenceUUID") UUID externalReferenceUUID);
 
-    Set<DocumentData> findAllByExternalReferenceUUIDAndType(UUID externalReferenceUUID, String Type);
-}
\ No newline at end of file
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "100"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("SELECT d FROM DocumentData d WHERE d.externalReferenceUUID = :externalReferenceUUID AND d.type = :type ORDER BY d.created, d.id")
+    Stream<DocumentData> streamAllByExternalReferenceUUIDAndType(@Param("externalReferenceUUID") UUID externalReferenceUUID,
+                                                                @Param("type") String type);
+}
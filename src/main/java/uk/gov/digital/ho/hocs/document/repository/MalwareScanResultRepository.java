@@ -0,0 +1,11 @@
+package uk.gov.digital.ho.hocs.document.repository;
+
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.stereotype.Repository;
+import uk.gov.digital.ho.hocs.document.model.MalwareScanResult;
+
+@Repository
+public interface MalwareScanResultRepository extends CrudRepository<MalwareScanResult, Integer> {
+
+    boolean existsByContentHashAndSignatureVersion(String contentHash, String signatureVersion);
+}
@@ -1,9 +1,11 @@
 package uk.gov.digital.ho.hocs.document.routes;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.camel.Exchange;
 import org.apache.camel.LoggingLevel;
 import org.apache.camel.Predicate;
 import org.apache.camel.Processor;
+import org.apache.camel.StreamCache;
 import org.apache.camel.builder.RouteBuilder;
 import org.apache.camel.component.aws.sqs.SqsConstants;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,14 +13,17 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import uk.gov.digital.ho.hocs.document.application.LogEvent;
 import uk.gov.digital.ho.hocs.document.application.RequestData;
+import uk.gov.digital.ho.hocs.document.dto.camel.S3Document;
 import uk.gov.digital.ho.hocs.document.dto.camel.UpdateDocumentRequest;
 import uk.gov.digital.ho.hocs.document.exception.ApplicationExceptions;
+import uk.gov.digital.ho.hocs.document.DocumentConversionResultService;
 import uk.gov.digital.ho.hocs.document.HttpProcessors;
 import uk.gov.digital.ho.hocs.document.aws.S3DocumentService;
 import uk.gov.digital.ho.hocs.document.dto.camel.UploadDocument;
 import uk.gov.digital.ho.hocs.document.model.DocumentStatus;
 import uk.gov.digital.ho.hocs.document.model.DocumentConversionExemptTypes;
 
+import java.io.InputStream;
 import java.util.Arrays;
 import java.util.Optional;
 import java.util.UUID;
@@ -31,25 +36,43 @@ public class DocumentConversionConsumer extends RouteBuilder {
     private final int redeliveryDelay;
     private final int backOffMultiplier;
     private S3DocumentService s3BucketService;
+    private DocumentConversionResultService documentConversionResultService;
     private final String hocsConverterPath;
     private final String toQueue;
+    private final int concurrency;
+    private final int queueSize;
+    private final int convertConcurrency;
+    private final int convertQueueSize;
+    private final MeterRegistry meterRegistry;
 
     @Autowired
     public DocumentConversionConsumer(
             S3DocumentService s3BucketService,
+            DocumentConversionResultService documentConversionResultService,
             @Value("${hocsconverter.path}") String hocsConverterPath,
             @Value("${docs.queue.dlq}") String dlq,
             @Value("${docs.queue.conversion.maximumRedeliveries}") int maximumRedeliveries,
             @Value("${docs.queue.redeliveryDelay}") int redeliveryDelay,
             @Value("${docs.queue.backOffMultiplier}") int backOffMultiplier,
-            @Value("${documentServiceQueueName}") String toQueue) {
+            @Value("${documentServiceQueueName}") String toQueue,
+            @Value("${docs.queue.conversion.concurrency}") int concurrency,
+            @Value("${docs.queue.conversion.queueSize}") int queueSize,
+            @Value("${docs.queue.conversion.convert.concurrency}") int convertConcurrency,
+            @Value("${docs.queue.conversion.convert.queueSize}") int convertQueueSize,
+            MeterRegistry meterRegistry) {
         this.s3BucketService = s3BucketService;
+        this.documentConversionResultService = documentConversionResultService;
         this.hocsConverterPath =  String.format("%s?throwExceptionOnFailure=false&useSystemProperties=true", hocsConverterPath);
         this.dlq = dlq;
         this.maximumRedeliveries = maximumRedeliveries;
         this.redeliveryDelay = redeliveryDelay;
         this.backOffMultiplier = backOffMultiplier;
         this.toQueue = toQueue;
+        this.concurrency = concurrency;
+        this.queueSize = queueSize;
+        this.convertConcurrency = convertConcurrency;
+        this.convertQueueSize = convertQueueSize;
+        this.meterRegistry = meterRegistry;
     }
 
     @Override
@@ -72,13 +95,17 @@ public class DocumentConversionConsumer extends RouteBuilder {
         from("direct:convertdocument").routeId("conversion-queue")
                 .onCompletion()
                     .onWhen(exchangeProperty("status").isNotNull())
+                    .process(evictScratchCopy())
                     .process(generateDocumentUpdateRequest())
                     .setHeader(SqsConstants.RECEIPT_HANDLE, exchangeProperty(SqsConstants.RECEIPT_HANDLE))
                     .process(RequestData.transferHeadersToQueue())
                     .to(toQueue)
                 .end()
+                .threads().executorService(StageExecutors.create(getContext(), meterRegistry, this, "document-conversion", concurrency, queueSize))
+                .process(RequestData.transferHeadersToMDC())
                 .log(LoggingLevel.INFO,"Attempt to convert document of type ${property.documentType}")
                 .log(LoggingLevel.DEBUG,"Should convert "+ skipDocumentConversion)
+                .setProperty("uuid", simple("${body.documentUUID}"))
                 .choice()
                 .when(skipDocumentConversion)
                     .log(LoggingLevel.INFO, "Managed Document - Skipping Conversion: ${body.fileLink}")
@@ -87,22 +114,38 @@ public class DocumentConversionConsumer extends RouteBuilder {
                     .endChoice()
                 .otherwise()
                     .log(LoggingLevel.INFO, "Retrieving document from S3: ${body.fileLink}")
-                    .setProperty("uuid", simple("${body.documentUUID}"))
                     .setProperty("externalReferenceUUID", simple("${body.externalReferenceUUID}"))
-                    .bean(s3BucketService, "getFileFromTrustedS3(${body.fileLink})")
+                    .setProperty("fileLink", simple("${body.fileLink}"))
+                    .choice()
+                    .when(method(documentConversionResultService, "isEnabled"))
+                        .bean(s3BucketService, "getFileDigestFromTrustedS3(${body.fileLink}, ${body.documentUUID})")
+                    .otherwise()
+                        .bean(s3BucketService, "getFileDetailsFromTrustedS3(${body.fileLink})")
+                    .end()
                     .setProperty("filename", simple("${body.filename}"))
                     .setProperty("originalFilename", simple("${body.originalFilename}"))
                     .log(LoggingLevel.DEBUG, "Original Filename ${body.originalFilename}")
-                    .process(HttpProcessors.buildMultipartEntity())
-                    .setHeader(SqsConstants.RECEIPT_HANDLE, exchangeProperty(SqsConstants.RECEIPT_HANDLE))
-                    .process(RequestData.transferHeadersToQueue())
-                    .to("direct:convert")
+                    .setProperty("contentHash", simple("${body.contentHash}"))
+                    .setProperty("convertedPdfFilename", method(documentConversionResultService, "getPdfLink(${body.contentHash})"))
+                    .choice()
+                    .when(exchangeProperty("convertedPdfFilename").isNotNull())
+                        .log(LoggingLevel.INFO, "Document previously converted - Reusing ${property.convertedPdfFilename}")
+                        .process(copyConvertedDocument())
+                        .setProperty("status", simple(DocumentStatus.UPLOADED.toString()))
+                    .otherwise()
+                        .process(HttpProcessors.buildMultipartEntity(this::openTrustedDocument))
+                        .setHeader(SqsConstants.RECEIPT_HANDLE, exchangeProperty(SqsConstants.RECEIPT_HANDLE))
+                        .process(RequestData.transferHeadersToQueue())
+                        .to("direct:convert")
+                    .end()
                     .endChoice();
 
 
 
+        // the converter gets its own pool, so a slow converter cannot tie up the threads reading documents
         from("direct:convert").routeId("conversion-convert-queue")
                 .errorHandler(noErrorHandler())
+                .threads().executorService(StageExecutors.create(getContext(), meterRegistry, this, "document-convert", convertConcurrency, convertQueueSize))
                 .log(LoggingLevel.INFO, "Calling document converter service")
                 .to(hocsConverterPath)
                 .choice()
@@ -113,6 +156,8 @@ public class DocumentConversionConsumer extends RouteBuilder {
                     .bean(s3BucketService, "uploadFile")
                     .log(LoggingLevel.DEBUG,"PDF Filename: ${body.filename}")
                     .setProperty("pdfFilename", simple("${body.filename}"))
+                    .process(exchange -> documentConversionResultService.recordConversion(
+                            exchange.getProperty("contentHash", String.class), exchange.getProperty("pdfFilename", String.class)))
                     .setProperty("status", simple(DocumentStatus.UPLOADED.toString()))
                     .setHeader(SqsConstants.RECEIPT_HANDLE, exchangeProperty(SqsConstants.RECEIPT_HANDLE))
                     .endChoice()
@@ -126,13 +171,50 @@ public class DocumentConversionConsumer extends RouteBuilder {
 
     }
 
+    private InputStream openTrustedDocument(Exchange exchange) {
+        return s3BucketService.getFileStreamFromTrustedS3(exchange.getProperty("fileLink", String.class), getDocumentUUID(exchange)).getContent();
+    }
+
+    private static UUID getDocumentUUID(Exchange exchange) {
+        return UUID.fromString(exchange.getProperty("uuid").toString());
+    }
+
+    private Processor evictScratchCopy() {
+        return exchange -> {
+            if (exchange.getProperty("uuid") != null) {
+                s3BucketService.evictScratchCopy(getDocumentUUID(exchange));
+            }
+        };
+    }
+
     private Processor generateUploadDocument() {
         return exchange -> {
-            byte[] content =  exchange.getIn().getBody(byte[].class);
+            // stream caching has already turned http4's response into a StreamCache, which spools large PDFs to disk
+            InputStream content = exchange.getIn().getMandatoryBody(InputStream.class);
+            long contentLength = exchange.getIn().getMandatoryBody(StreamCache.class).length();
             String filename = exchange.getProperty("filename").toString();
             String externalReferenceUUID = exchange.getProperty("externalReferenceUUID").toString();
             String originalFilename = exchange.getProperty("originalFilename").toString();
-            exchange.getOut().setBody(new UploadDocument(filename, content, externalReferenceUUID, originalFilename));
+            exchange.getOut().setBody(new UploadDocument(filename, content, contentLength, externalReferenceUUID, originalFilename));
+        };
+    }
+
+    private Processor copyConvertedDocument() {
+        return exchange -> {
+            String contentHash = exchange.getProperty("contentHash", String.class);
+            String convertedPdfFilename = exchange.getProperty("convertedPdfFilename", String.class);
+            String externalReferenceUUID = exchange.getProperty("externalReferenceUUID").toString();
+            String originalFilename = exchange.getProperty("originalFilename").toString();
+            try {
+                S3Document document = s3BucketService.copyConvertedDocument(convertedPdfFilename, externalReferenceUUID, originalFilename);
+                exchange.setProperty("pdfFilename", document.getFilename());
+            } catch (ApplicationExceptions.S3Exception e) {
+                // The earlier PDF has gone, forget it so the next attempt from the queue converts the document again
+                if (e.getEvent() == LogEvent.S3_FILE_NOT_FOUND) {
+                    documentConversionResultService.forgetConversion(contentHash);
+                }
+                throw e;
+            }
         };
     }
 
@@ -1,5 +1,6 @@
 package uk.gov.digital.ho.hocs.document.routes;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.camel.Exchange;
 import org.apache.camel.LoggingLevel;
@@ -17,11 +18,13 @@ import uk.gov.digital.ho.hocs.document.dto.camel.S3Document;
 import uk.gov.digital.ho.hocs.document.dto.camel.UpdateDocumentRequest;
 import uk.gov.digital.ho.hocs.document.exception.ApplicationExceptions;
 import uk.gov.digital.ho.hocs.document.HttpProcessors;
+import uk.gov.digital.ho.hocs.document.MalwareScanResultService;
 import uk.gov.digital.ho.hocs.document.aws.S3DocumentService;
 
 import uk.gov.digital.ho.hocs.document.dto.camel.DocumentCopyRequest;
 import uk.gov.digital.ho.hocs.document.model.DocumentStatus;
 
+import java.io.InputStream;
 import java.util.UUID;
 
 @Component
@@ -35,20 +38,37 @@ public class MalwareCheckConsumer extends RouteBuilder {
     private final int backOffMultiplier;
     private final String clamAvPath;
     private S3DocumentService s3BucketService;
+    private MalwareScanResultService malwareScanResultService;
     private final String documentServiceQueueName;
     private final String toQueue;
+    private final int concurrency;
+    private final int queueSize;
+    private final int scanConcurrency;
+    private final int scanQueueSize;
+    private final int copyConcurrency;
+    private final int copyQueueSize;
+    private final MeterRegistry meterRegistry;
 
     @Autowired
     public MalwareCheckConsumer(
             S3DocumentService s3BucketService,
+            MalwareScanResultService malwareScanResultService,
             @Value("${clamav.path}") String clamAvPath,
             @Value("${docs.queue.dlq}") String dlq,
             @Value("${docs.queue.malware.maximumRedeliveries}") int maximumRedeliveries,
             @Value("${docs.queue.redeliveryDelay}") int redeliveryDelay,
             @Value("${docs.queue.backOffMultiplier}") int backOffMultiplier,
             @Value("${conversionQueueName}") String toQueue,
-            @Value("${documentServiceQueueName}") String documentServiceQueueName) {
+            @Value("${documentServiceQueueName}") String documentServiceQueueName,
+            @Value("${docs.queue.malware.concurrency}") int concurrency,
+            @Value("${docs.queue.malware.queueSize}") int queueSize,
+            @Value("${docs.queue.malware.scan.concurrency}") int scanConcurrency,
+            @Value("${docs.queue.malware.scan.queueSize}") int scanQueueSize,
+            @Value("${docs.queue.malware.copy.concurrency}") int copyConcurrency,
+            @Value("${docs.queue.malware.copy.queueSize}") int copyQueueSize,
+            MeterRegistry meterRegistry) {
         this.s3BucketService = s3BucketService;
+        this.malwareScanResultService = malwareScanResultService;
         this.clamAvPath = String.format("%s?throwExceptionOnFailure=false&useSystemProperties=true", clamAvPath);
         this.dlq = dlq;
         this.maximumRedeliveries = maximumRedeliveries;
@@ -56,6 +76,13 @@ public class MalwareCheckConsumer extends RouteBuilder {
         this.backOffMultiplier = backOffMultiplier;
         this.documentServiceQueueName = documentServiceQueueName;
         this.toQueue = toQueue;
+        this.concurrency = concurrency;
+        this.queueSize = queueSize;
+        this.scanConcurrency = scanConcurrency;
+        this.scanQueueSize = scanQueueSize;
+        this.copyConcurrency = copyConcurrency;
+        this.copyQueueSize = copyQueueSize;
+        this.meterRegistry = meterRegistry;
 
 
     }
@@ -80,32 +107,49 @@ public class MalwareCheckConsumer extends RouteBuilder {
 
 
         from("direct:malwarecheck").routeId("malware-queue")
+                .threads().executorService(StageExecutors.create(getContext(), meterRegistry, this, "malware-check", concurrency, queueSize))
+                .process(RequestData.transferHeadersToMDC())
                 .log(LoggingLevel.DEBUG, "Retrieving document from S3")
                 .setProperty("uuid", simple("${body.documentUUID}"))
                 .setProperty("externalReferenceUUID", simple("${body.externalReferenceUUID}"))
-                .bean(s3BucketService, "getFileFromUntrustedS3(${body.fileLink})")
+                .setProperty("fileLink", simple("${body.fileLink}"))
+                .choice()
+                .when(method(malwareScanResultService, "isEnabled"))
+                    .bean(s3BucketService, "getFileDigestFromUntrustedS3(${body.fileLink}, ${body.documentUUID})")
+                .otherwise()
+                    .bean(s3BucketService, "getFileDetailsFromUntrustedS3(${body.fileLink})")
+                .end()
                 .setProperty("fileType", simple("${body.fileType}"))
                 .setProperty("filename", simple("${body.filename}"))
                 .setProperty("originalFilename", simple("${body.originalFilename}"))
-                .log(LoggingLevel.INFO, "Calling Clam AV service")
-                .process(HttpProcessors.buildMultipartEntity())
-                .process(RequestData.transferHeadersToQueue())
-                .to("direct:scan");
+                .setProperty("contentHash", simple("${body.contentHash}"))
+                .choice()
+                .when(method(malwareScanResultService, "isKnownClean(${exchangeProperty.contentHash})"))
+                    .log(LoggingLevel.INFO, "Content previously scanned clean, skipping Clam AV")
+                    .to("direct:copytotrusted")
+                .otherwise()
+                    .log(LoggingLevel.INFO, "Calling Clam AV service")
+                    .process(HttpProcessors.buildMultipartEntity(this::openUntrustedDocument))
+                    .process(RequestData.transferHeadersToQueue())
+                    .to("direct:scan")
+                .end();
 
+        // Clam AV and the copy to the trusted bucket get their own pools, so a slow scanner or S3 cannot tie up the
+        // threads reading documents and each external call is bounded separately
         from("direct:scan").routeId("malware-scan-queue")
                 .errorHandler(noErrorHandler())
+                .threads().executorService(StageExecutors.create(getContext(), meterRegistry, this, "malware-scan", scanConcurrency, scanQueueSize))
                 .to(clamAvPath)
                 .log(LoggingLevel.INFO, "Clam AV Response: ${body}")
                 .choice()
                 .when(validMalwareResponse)
                     .log(LoggingLevel.INFO, "Clam AV check completed successfully")
-                    .process(generateDocumentCopyRequest())
-                    .bean(s3BucketService, "copyToTrustedBucket")
-                    .process(generateDocumentConversionRequest())
-                    .to(toQueue)
+                    .process(exchange -> malwareScanResultService.recordClean(exchange.getProperty("contentHash", String.class)))
+                    .to("direct:copytotrusted")
                 .otherwise()
                 .when(HttpProcessors.validateHttpResponse)
                     .log(LoggingLevel.WARN, "Malware found")
+                    .process(exchange -> s3BucketService.evictScratchCopy(getDocumentUUID(exchange)))
                     .setProperty("status", simple(DocumentStatus.FAILED_VIRUS.toString()))
                     .process(generateDocumentUpdateRequest())
                     .process(RequestData.transferHeadersToQueue())
@@ -113,6 +157,14 @@ public class MalwareCheckConsumer extends RouteBuilder {
                 .otherwise()
                     .throwException(new ApplicationExceptions.MalwareCheckException("Malware check failed", LogEvent.DOCUMENT_VIRUS_SCAN_FAILURE))
                     .setHeader(SqsConstants.RECEIPT_HANDLE, exchangeProperty(SqsConstants.RECEIPT_HANDLE));
+
+        from("direct:copytotrusted").routeId("malware-copy-queue")
+                .errorHandler(noErrorHandler())
+                .threads().executorService(StageExecutors.create(getContext(), meterRegistry, this, "trusted-copy", copyConcurrency, copyQueueSize))
+                .process(generateDocumentCopyRequest())
+                .bean(s3BucketService, "copyToTrustedBucket")
+                .process(generateDocumentConversionRequest())
+                .to(toQueue);
     }
 
     private Processor generateDocumentCopyRequest() {
@@ -120,10 +172,18 @@ public class MalwareCheckConsumer extends RouteBuilder {
             String filename = exchange.getProperty("filename").toString();
             String externalReferenceUUID = exchange.getProperty("externalReferenceUUID").toString();
             String fileType = exchange.getProperty("fileType").toString();
-            exchange.getOut().setBody(new DocumentCopyRequest(filename, externalReferenceUUID, fileType));
+            exchange.getOut().setBody(new DocumentCopyRequest(getDocumentUUID(exchange), filename, externalReferenceUUID, fileType));
         };
     }
 
+    private InputStream openUntrustedDocument(Exchange exchange) {
+        return s3BucketService.getFileStreamFromUntrustedS3(exchange.getProperty("fileLink", String.class), getDocumentUUID(exchange)).getContent();
+    }
+
+    private static UUID getDocumentUUID(Exchange exchange) {
+        return UUID.fromString(exchange.getProperty("uuid").toString());
+    }
+
     private Processor generateDocumentConversionRequest() {
         return exchange -> {
             S3Document document = exchange.getIn().getBody(S3Document.class);
@@ -0,0 +1,35 @@
+package uk.gov.digital.ho.hocs.document.routes;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.apache.camel.CamelContext;
+import org.apache.camel.ThreadPoolRejectedPolicy;
+import org.apache.camel.builder.ThreadPoolProfileBuilder;
+import org.apache.camel.spi.ThreadPoolProfile;
+import uk.gov.digital.ho.hocs.document.application.VirtualThreadLimit;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Bounded worker pools for the stages of the document pipeline. When a stage's queue is full the
+ * handing-off thread runs the work itself, which slows the SQS consumer down instead of dropping
+ * messages. Queue depth and pool usage are published as executor.* metrics tagged with the stage name.
+ * In virtual thread mode stage tasks also count against the shared {@link VirtualThreadLimit}.
+ */
+final class StageExecutors {
+
+    private StageExecutors() {
+    }
+
+    static ExecutorService create(CamelContext camelContext, MeterRegistry meterRegistry, Object source,
+                                  String stage, int concurrency, int queueSize) {
+        ThreadPoolProfile profile = new ThreadPoolProfileBuilder(VirtualThreadLimit.LIMITED_PROFILE_PREFIX + stage)
+                .poolSize(concurrency)
+                .maxPoolSize(concurrency)
+                .maxQueueSize(queueSize)
+                .rejectedPolicy(ThreadPoolRejectedPolicy.CallerRuns)
+                .build();
+        ExecutorService executor = camelContext.getExecutorServiceManager().newThreadPool(source, stage, profile);
+        return ExecutorServiceMetrics.monitor(meterRegistry, executor, stage);
+    }
+}
@@ -1,5 +1,6 @@
 package uk.gov.digital.ho.hocs.document.routes;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.apache.camel.Exchange;
 import org.apache.camel.LoggingLevel;
 import org.apache.camel.builder.RouteBuilder;
@@ -8,6 +9,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import uk.gov.digital.ho.hocs.document.DocumentDataService;
+import uk.gov.digital.ho.hocs.document.dto.camel.UpdateDocumentRequest;
 
 @Component
 public class UpdateDocumentConsumer extends RouteBuilder {
@@ -18,6 +20,7 @@ public class UpdateDocumentConsumer extends RouteBuilder {
     private final int backOffMultiplier;
 
     private DocumentDataService documentDataService;
+    private final MeterRegistry meterRegistry;
 
     @Autowired
     public UpdateDocumentConsumer(
@@ -25,12 +28,14 @@ public class UpdateDocumentConsumer extends RouteBuilder {
             @Value("${docs.queue.dlq}") String dlq,
             @Value("${docs.queue.maximumRedeliveries}") int maximumRedeliveries,
             @Value("${docs.queue.redeliveryDelay}") int redeliveryDelay,
-            @Value("${docs.queue.backOffMultiplier}") int backOffMultiplier) {
+            @Value("${docs.queue.backOffMultiplier}") int backOffMultiplier,
+            MeterRegistry meterRegistry) {
         this.documentDataService = documentDataService;
         this.dlq = dlq;
         this.maximumRedeliveries = maximumRedeliveries;
         this.redeliveryDelay = redeliveryDelay;
         this.backOffMultiplier = backOffMultiplier;
+        this.meterRegistry = meterRegistry;
     }
 
     @Override
@@ -55,6 +60,8 @@ public class UpdateDocumentConsumer extends RouteBuilder {
                 .bean(documentDataService, "updateDocument(${body.uuid},${body.status}," +
                         "${body.fileLink},${body.pdfLink})")
                 .log(LoggingLevel.DEBUG, "Updated document record")
+                .process(exchange -> meterRegistry.counter("documents.status",
+                        "status", exchange.getIn().getBody(UpdateDocumentRequest.class).getStatus().toString()).increment())
                 .setHeader(SqsConstants.RECEIPT_HANDLE, exchangeProperty(SqsConstants.RECEIPT_HANDLE));
     }
 }
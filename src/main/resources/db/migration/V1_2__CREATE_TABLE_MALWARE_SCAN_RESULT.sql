@@ -0,0 +1,11 @@
+DROP TABLE IF EXISTS malware_scan_result cascade;
+
+CREATE TABLE IF NOT EXISTS malware_scan_result
+(
+  id                         BIGSERIAL PRIMARY KEY,
+  content_hash               TEXT      NOT NULL,
+  signature_version          TEXT      NOT NULL,
+  scanned                    TIMESTAMP NOT NULL,
+
+  CONSTRAINT malware_scan_result_idempotent UNIQUE (content_hash, signature_version)
+);
@@ -0,0 +1,12 @@
+DROP TABLE IF EXISTS document_conversion_result cascade;
+
+CREATE TABLE IF NOT EXISTS document_conversion_result
+(
+  id                         BIGSERIAL PRIMARY KEY,
+  content_hash               TEXT      NOT NULL,
+  converter_version          TEXT      NOT NULL,
+  pdf_link                   TEXT      NOT NULL,
+  created                    TIMESTAMP NOT NULL,
+
+  CONSTRAINT document_conversion_result_idempotent UNIQUE (content_hash, converter_version)
+);
@@ -0,0 +1,3 @@
+CREATE SEQUENCE IF NOT EXISTS document_data_id_seq START WITH 1 INCREMENT BY 50;
+
+ALTER SEQUENCE document_data_id_seq INCREMENT BY 50;
@@ -0,0 +1,2 @@
+CREATE INDEX idx_document_data_status_created
+  ON document_data (status, created);
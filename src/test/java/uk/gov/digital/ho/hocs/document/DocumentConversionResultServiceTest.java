@@ -0,0 +1,58 @@
+package uk.gov.digital.ho.hocs.document;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.digital.ho.hocs.document.model.DocumentConversionResult;
+import uk.gov.digital.ho.hocs.document.repository.DocumentConversionResultRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DocumentConversionResultServiceTest {
+
+    @Mock
+    private DocumentConversionResultRepository documentConversionResultRepository;
+
+    @Test
+    public void shouldReturnPdfLinkForCurrentConverterVersion() {
+        DocumentConversionResultService service = new DocumentConversionResultService(documentConversionResultRepository, "1.2");
+        when(documentConversionResultRepository.findByContentHashAndConverterVersion("hash", "1.2"))
+                .thenReturn(new DocumentConversionResult("hash", "1.2", "someCase/UUID.pdf"));
+
+        assertThat(service.getPdfLink("hash")).isEqualTo("someCase/UUID.pdf");
+    }
+
+    @Test
+    public void shouldNotLookUpWhenConverterVersionUnset() {
+        DocumentConversionResultService service = new DocumentConversionResultService(documentConversionResultRepository, "");
+
+        assertThat(service.getPdfLink("hash")).isNull();
+        service.recordConversion("hash", "someCase/UUID.pdf");
+
+        verifyZeroInteractions(documentConversionResultRepository);
+    }
+
+    @Test
+    public void shouldRecordConversion() {
+        DocumentConversionResultService service = new DocumentConversionResultService(documentConversionResultRepository, "1.2");
+
+        service.recordConversion("hash", "someCase/UUID.pdf");
+
+        verify(documentConversionResultRepository).save(any(DocumentConversionResult.class));
+    }
+
+    @Test
+    public void shouldForgetConversion() {
+        DocumentConversionResultService service = new DocumentConversionResultService(documentConversionResultRepository, "1.2");
+        DocumentConversionResult result = new DocumentConversionResult("hash", "1.2", "someCase/UUID.pdf");
+        when(documentConversionResultRepository.findByContentHashAndConverterVersion("hash", "1.2")).thenReturn(result);
+
+        service.forgetConversion("hash");
+
+        verify(documentConversionResultRepository).delete(result);
+    }
+}
@@ -5,18 +5,42 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import uk.gov.digital.ho.hocs.document.dto.CreateDocumentRequest;
+import uk.gov.digital.ho.hocs.document.dto.CreateDocumentsRequest;
+import uk.gov.digital.ho.hocs.document.dto.CreateDocumentsResponse;
+import uk.gov.digital.ho.hocs.document.dto.DocumentCursor;
+import uk.gov.digital.ho.hocs.document.dto.DocumentDto;
+import uk.gov.digital.ho.hocs.document.dto.DocumentLookupRequest;
+import uk.gov.digital.ho.hocs.document.dto.DocumentLookupResponse;
+import uk.gov.digital.ho.hocs.document.dto.GetDocumentsPageResponse;
 import uk.gov.digital.ho.hocs.document.dto.GetDocumentsResponse;
+import uk.gov.digital.ho.hocs.document.dto.camel.S3DocumentMetadata;
+import uk.gov.digital.ho.hocs.document.dto.camel.S3DocumentStream;
 import uk.gov.digital.ho.hocs.document.exception.ApplicationExceptions;
 import uk.gov.digital.ho.hocs.document.model.DocumentData;
 import uk.gov.digital.ho.hocs.document.model.DocumentType;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -58,6 +82,132 @@ public class DocumentResourceTest {
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
     }
 
+    @Test
+    public void shouldCreateDocumentsInBulk() {
+        DocumentData first = new DocumentData(uuid, DocumentType.ORIGINAL, "first");
+        DocumentData second = new DocumentData(uuid, DocumentType.ORIGINAL, "second");
+        CreateDocumentsRequest request = new CreateDocumentsRequest(Arrays.asList(
+                new CreateDocumentRequest("first", DocumentType.ORIGINAL, "fileLink", uuid),
+                new CreateDocumentRequest("second", DocumentType.ORIGINAL, "fileLink", uuid)));
+        when(documentService.createDocuments(request.getDocuments())).thenReturn(Arrays.asList(first, second));
+
+        ResponseEntity<CreateDocumentsResponse> response = documentResource.createDocuments(request);
+
+        verify(documentService, times(1)).createDocuments(request.getDocuments());
+        verifyNoMoreInteractions(documentService);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().getUuids()).containsExactly(first.getUuid(), second.getUuid());
+    }
+
+    @Test
+    public void shouldRejectEmptyBulkCreate() {
+        assertThatThrownBy(() -> documentResource.createDocuments(new CreateDocumentsRequest(Collections.emptyList())))
+                .isInstanceOf(ApplicationExceptions.BadRequestException.class);
+
+        verifyZeroInteractions(documentService);
+    }
+
+    @Test
+    public void shouldReturnPageOfDocumentsWithNextCursor() {
+        DocumentDto first = new DocumentDto(1, UUID.randomUUID(), uuid, "ORIGINAL", "first", "UPLOADED", LocalDateTime.now(), null, false);
+        DocumentDto second = new DocumentDto(2, UUID.randomUUID(), uuid, "ORIGINAL", "second", "UPLOADED", LocalDateTime.now(), null, false);
+        when(documentService.getDocumentsByReference(eq(uuid), eq(null), any(DocumentCursor.class), eq(2)))
+                .thenReturn(Arrays.asList(first, second));
+
+        ResponseEntity<GetDocumentsPageResponse> response = documentResource.getDocumentsPageForCaseForType(uuid, null, 1, null);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().getDocumentDtos()).hasSize(1);
+        assertThat(response.getBody().getDocumentDtos().get(0).getDisplayName()).isEqualTo("first");
+        assertThat(DocumentCursor.decode(response.getBody().getNextCursor()).getCreated()).isEqualTo(first.getCreated());
+        assertThat(DocumentCursor.decode(response.getBody().getNextCursor()).getId()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldReturnLastPageWithoutNextCursor() {
+        DocumentDto first = new DocumentDto(1, UUID.randomUUID(), uuid, "ORIGINAL", "first", "UPLOADED", LocalDateTime.now(), null, false);
+        when(documentService.getDocumentsByReference(eq(uuid), eq("ORIGINAL"), any(DocumentCursor.class), eq(11)))
+                .thenReturn(Collections.singletonList(first));
+
+        ResponseEntity<GetDocumentsPageResponse> response = documentResource.getDocumentsPageForCaseForType(uuid, "ORIGINAL", 10, null);
+
+        assertThat(response.getBody().getDocumentDtos()).hasSize(1);
+        assertThat(response.getBody().getNextCursor()).isNull();
+    }
+
+    @Test
+    public void shouldRejectInvalidPageRequests() {
+        assertThatThrownBy(() -> documentResource.getDocumentsPageForCaseForType(uuid, null, 0, null))
+                .isInstanceOf(ApplicationExceptions.BadRequestException.class);
+        assertThatThrownBy(() -> documentResource.getDocumentsPageForCaseForType(uuid, null, 10, "not a cursor"))
+                .isInstanceOf(ApplicationExceptions.BadRequestException.class);
+    }
+
+    @Test
+    public void shouldStreamDocumentsAsNdjson() throws IOException {
+        DocumentData first = new DocumentData(uuid, DocumentType.ORIGINAL, "first");
+        DocumentData second = new DocumentData(uuid, DocumentType.ORIGINAL, "second");
+        doAnswer(invocation -> {
+            Consumer<DocumentData> consumer = invocation.getArgument(2);
+            consumer.accept(first);
+            consumer.accept(second);
+            return null;
+        }).when(documentService).streamDocumentsByReference(eq(uuid), eq(null), any());
+
+        ResponseEntity<StreamingResponseBody> response = documentResource.streamDocumentsForCaseForType(uuid, null);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        response.getBody().writeTo(outputStream);
+
+        assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.parseMediaType("application/x-ndjson"));
+        String[] lines = outputStream.toString().split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).contains("\"displayName\":\"first\"");
+        assertThat(lines[1]).contains("\"displayName\":\"second\"");
+    }
+
+    @Test
+    public void shouldReturnDocumentProjection() {
+        DocumentDto documentDto = new DocumentDto(uuid, UUID.randomUUID(), "ORIGINAL", "name", "PENDING", LocalDateTime.now(), null, false);
+        when(documentService.getDocumentDto(uuid)).thenReturn(documentDto);
+
+        ResponseEntity<DocumentDto> response = documentResource.getDocumentResourceLocation(uuid);
+
+        verify(documentService, times(1)).getDocumentDto(uuid);
+        verifyNoMoreInteractions(documentService);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isSameAs(documentDto);
+    }
+
+    @Test
+    public void shouldLookupDocumentsInRequestOrderAndReportMissing() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        UUID missing = UUID.randomUUID();
+        DocumentDto firstDto = new DocumentDto(first, uuid, "ORIGINAL", "first", "UPLOADED", LocalDateTime.now(), null, false);
+        DocumentDto secondDto = new DocumentDto(second, uuid, "ORIGINAL", "second", "UPLOADED", LocalDateTime.now(), null, false);
+        when(documentService.getDocumentDtos(any())).thenReturn(Arrays.asList(firstDto, secondDto));
+
+        ResponseEntity<DocumentLookupResponse> response = documentResource.lookupDocuments(
+                new DocumentLookupRequest(Arrays.asList(second, missing, first, second)));
+
+        verify(documentService, times(1)).getDocumentDtos(new LinkedHashSet<>(Arrays.asList(second, missing, first)));
+        verifyNoMoreInteractions(documentService);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody().getDocumentDtos()).containsExactly(secondDto, firstDto);
+        assertThat(response.getBody().getMissing()).containsExactly(missing);
+    }
+
+    @Test
+    public void shouldRejectEmptyLookup() {
+        assertThatThrownBy(() -> documentResource.lookupDocuments(new DocumentLookupRequest(Collections.emptyList())))
+                .isInstanceOf(ApplicationExceptions.BadRequestException.class);
+
+        verifyZeroInteractions(documentService);
+    }
+
     @Test
     public void shouldReturnListOfDocumentsForAType() {
         when(documentService.getDocumentsByReferenceForType(uuid, "DRAFT")).thenReturn(new HashSet<>());
@@ -71,5 +221,184 @@ public class DocumentResourceTest {
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
     }
 
+    @Test
+    public void shouldStreamDocumentFileWithMetaDataHeaders() throws IOException {
+        byte[] data = "some file content".getBytes();
+        S3DocumentMetadata metadata = getMetadata(data.length);
+        when(documentService.getDocumentFileMetadata(uuid)).thenReturn(metadata);
+        when(documentService.getDocumentContent(metadata)).thenReturn(new S3DocumentStream(metadata, new ByteArrayInputStream(data)));
+
+        ResponseEntity<StreamingResponseBody> response = documentResource.getDocumentFile(uuid, new HttpHeaders());
+        verify(documentService, never()).getDocumentContent(metadata);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        response.getBody().writeTo(body);
+
+        verify(documentService, times(1)).getDocumentFileMetadata(uuid);
+        verify(documentService, times(1)).getDocumentContent(metadata);
+        verifyNoMoreInteractions(documentService);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentLength()).isEqualTo(data.length);
+        assertThat(response.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_PDF);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION)).isEqualTo("attachment;filename=sample.pdf");
+        assertThat(response.getHeaders().getETag()).isEqualTo("\"etag\"");
+        assertThat(response.getHeaders().getLastModified()).isEqualTo(metadata.getLastModified().getTime() / 1000 * 1000);
+        assertThat(body.toByteArray()).isEqualTo(data);
+    }
+
+    @Test
+    public void shouldReturnNotModifiedWhenIfNoneMatchHasCurrentETag() {
+        when(documentService.getDocumentPdfMetadata(uuid)).thenReturn(getMetadata(100));
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.setIfNoneMatch("\"etag\"");
+
+        ResponseEntity<StreamingResponseBody> response = documentResource.getDocumentPdf(uuid, requestHeaders);
+
+        verify(documentService, times(1)).getDocumentPdfMetadata(uuid);
+        verifyNoMoreInteractions(documentService);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+        assertThat(response.getHeaders().getETag()).isEqualTo("\"etag\"");
+        assertThat(response.getBody()).isNull();
+    }
+
+    @Test
+    public void shouldReturnNotModifiedWhenNotModifiedSince() {
+        S3DocumentMetadata metadata = getMetadata(100);
+        when(documentService.getDocumentFileMetadata(uuid)).thenReturn(metadata);
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.setIfModifiedSince(metadata.getLastModified().getTime() + 1000);
+
+        ResponseEntity<StreamingResponseBody> response = documentResource.getDocumentFile(uuid, requestHeaders);
+
+        verify(documentService, times(1)).getDocumentFileMetadata(uuid);
+        verifyNoMoreInteractions(documentService);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+    }
+
+    @Test
+    public void shouldReturnDocumentWhenIfNoneMatchHasOldETag() throws IOException {
+        S3DocumentMetadata metadata = getMetadata(100);
+        when(documentService.getDocumentPdfMetadata(uuid)).thenReturn(metadata);
+        when(documentService.getDocumentContent(metadata)).thenReturn(new S3DocumentStream(metadata, new ByteArrayInputStream(new byte[100])));
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.setIfNoneMatch("\"an-old-etag\"");
+
+        ResponseEntity<StreamingResponseBody> response = documentResource.getDocumentPdf(uuid, requestHeaders);
+        response.getBody().writeTo(new ByteArrayOutputStream());
+
+        verify(documentService, times(1)).getDocumentContent(metadata);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getETag()).isEqualTo("\"etag\"");
+    }
+
+    @Test
+    public void shouldReturnPartialContentForSingleRange() throws IOException {
+        S3DocumentMetadata metadata = getMetadata(100);
+        when(documentService.getDocumentPdfMetadata(uuid)).thenReturn(metadata);
+        when(documentService.getDocumentContent(metadata, 10, 19)).thenReturn(new S3DocumentStream(metadata, new ByteArrayInputStream("0123456789".getBytes())));
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.set(HttpHeaders.RANGE, "bytes=10-19");
+
+        ResponseEntity<StreamingResponseBody> response = documentResource.getDocumentPdf(uuid, requestHeaders);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        response.getBody().writeTo(body);
+
+        verify(documentService, times(1)).getDocumentPdfMetadata(uuid);
+        verify(documentService, times(1)).getDocumentContent(metadata, 10, 19);
+        verifyNoMoreInteractions(documentService);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PARTIAL_CONTENT);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 10-19/100");
+        assertThat(response.getHeaders().getContentLength()).isEqualTo(10);
+        assertThat(body.toString()).isEqualTo("0123456789");
+    }
+
+    @Test
+    public void shouldReturnMultipartByteRangesForMultipleRanges() throws IOException {
+        S3DocumentMetadata metadata = getMetadata(100);
+        when(documentService.getDocumentPdfMetadata(uuid)).thenReturn(metadata);
+        when(documentService.getDocumentContent(metadata, 0, 1)).thenReturn(new S3DocumentStream(metadata, new ByteArrayInputStream("ab".getBytes())));
+        when(documentService.getDocumentContent(metadata, 98, 99)).thenReturn(new S3DocumentStream(metadata, new ByteArrayInputStream("yz".getBytes())));
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.set(HttpHeaders.RANGE, "bytes=0-1,-2");
+
+        ResponseEntity<StreamingResponseBody> response = documentResource.getDocumentPdf(uuid, requestHeaders);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        response.getBody().writeTo(body);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PARTIAL_CONTENT);
+        String boundary = response.getHeaders().getContentType().getParameter("boundary");
+        assertThat(response.getHeaders().getContentType().toString()).startsWith("multipart/byteranges");
+        assertThat(body.toString()).isEqualTo(
+                "\r\n--" + boundary + "\r\nContent-Type: application/pdf\r\nContent-Range: bytes 0-1/100\r\n\r\nab" +
+                "\r\n--" + boundary + "\r\nContent-Type: application/pdf\r\nContent-Range: bytes 98-99/100\r\n\r\nyz" +
+                "\r\n--" + boundary + "--");
+    }
+
+    @Test
+    public void shouldServeSatisfiableRangesWhenOthersStartAfterEnd() throws IOException {
+        S3DocumentMetadata metadata = getMetadata(1000);
+        byte[] data = new byte[100];
+        when(documentService.getDocumentPdfMetadata(uuid)).thenReturn(metadata);
+        when(documentService.getDocumentContent(metadata, 0, 99)).thenReturn(new S3DocumentStream(metadata, new ByteArrayInputStream(data)));
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.set(HttpHeaders.RANGE, "bytes=0-99,999999-");
+
+        ResponseEntity<StreamingResponseBody> response = documentResource.getDocumentPdf(uuid, requestHeaders);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        response.getBody().writeTo(body);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PARTIAL_CONTENT);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 0-99/1000");
+        assertThat(response.getHeaders().getContentLength()).isEqualTo(100);
+        assertThat(body.toByteArray()).isEqualTo(data);
+    }
+
+    @Test
+    public void shouldReturnRangeNotSatisfiableWhenNoRangeIsSatisfiable() {
+        when(documentService.getDocumentPdfMetadata(uuid)).thenReturn(getMetadata(100));
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.set(HttpHeaders.RANGE, "bytes=100-199,500-");
+
+        ResponseEntity<StreamingResponseBody> response = documentResource.getDocumentPdf(uuid, requestHeaders);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */100");
+    }
+
+    @Test
+    public void shouldReturnRangeNotSatisfiableWhenRangeStartsAfterEnd() {
+        when(documentService.getDocumentPdfMetadata(uuid)).thenReturn(getMetadata(100));
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.set(HttpHeaders.RANGE, "bytes=200-300");
+
+        ResponseEntity<StreamingResponseBody> response = documentResource.getDocumentPdf(uuid, requestHeaders);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */100");
+    }
+
+    @Test
+    public void shouldReturnWholeDocumentWhenIfRangeDoesNotMatch() throws IOException {
+        S3DocumentMetadata metadata = getMetadata(100);
+        when(documentService.getDocumentPdfMetadata(uuid)).thenReturn(metadata);
+        when(documentService.getDocumentContent(metadata)).thenReturn(new S3DocumentStream(metadata, new ByteArrayInputStream(new byte[100])));
+        HttpHeaders requestHeaders = new HttpHeaders();
+        requestHeaders.set(HttpHeaders.RANGE, "bytes=10-19");
+        requestHeaders.set(HttpHeaders.IF_RANGE, "\"an-old-etag\"");
+
+        ResponseEntity<StreamingResponseBody> response = documentResource.getDocumentPdf(uuid, requestHeaders);
+        response.getBody().writeTo(new ByteArrayOutputStream());
+
+        verify(documentService, times(1)).getDocumentContent(metadata);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getContentLength()).isEqualTo(100);
+    }
+
+    private static S3DocumentMetadata getMetadata(long contentLength) {
+        return new S3DocumentMetadata("case/file.pdf", "case/file.pdf", "sample.pdf", "pdf", "application/pdf", contentLength, "etag", new Date());
+    }
 
-}
+}
\ No newline at end of file
@@ -1,23 +1,41 @@
 package uk.gov.digital.ho.hocs.document;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import uk.gov.digital.ho.hocs.document.aws.S3DocumentService;
 import uk.gov.digital.ho.hocs.document.client.auditclient.AuditClient;
 import uk.gov.digital.ho.hocs.document.client.documentclient.DocumentClient;
+import uk.gov.digital.ho.hocs.document.dto.CreateDocumentRequest;
+import uk.gov.digital.ho.hocs.document.dto.DocumentCursor;
+import uk.gov.digital.ho.hocs.document.dto.DocumentDto;
+import uk.gov.digital.ho.hocs.document.dto.GetPendingDocumentsResponse;
 import uk.gov.digital.ho.hocs.document.exception.ApplicationExceptions;
 import uk.gov.digital.ho.hocs.document.model.DocumentData;
 import uk.gov.digital.ho.hocs.document.model.DocumentStatus;
 import uk.gov.digital.ho.hocs.document.model.DocumentType;
 import uk.gov.digital.ho.hocs.document.repository.DocumentRepository;
 
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -37,12 +55,17 @@ public class DocumentServiceTest {
     @Mock
     private AuditClient auditClient;
 
+    @Mock
+    private EntityManager entityManager;
+
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     private boolean auditActive = true;
 
     @Before
     public void setUp() {
         this.documentService = new DocumentDataService(
-                documentRepository, s3DocumentService, auditClient, documentClient, auditActive);
+                documentRepository, s3DocumentService, auditClient, documentClient, entityManager, meterRegistry, auditActive);
     }
 
     @Test
@@ -61,6 +84,59 @@ public class DocumentServiceTest {
         verifyZeroInteractions(s3DocumentService);
     }
 
+    @Test
+    public void shouldCreateDocumentsInChunksAndQueueEachChunk() {
+        UUID uuid = UUID.randomUUID();
+        List<CreateDocumentRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 501; i++) {
+            requests.add(new CreateDocumentRequest("name" + i, DocumentType.ORIGINAL, "fileLink" + i, uuid));
+        }
+
+        List<DocumentData> documents = documentService.createDocuments(requests);
+
+        assertThat(documents).hasSize(501);
+        verify(documentRepository, times(2)).saveAll(any());
+        verify(documentClient, times(2)).processDocuments(any());
+        verify(auditClient, times(501)).createDocumentAudit(any(DocumentData.class));
+        verifyNoMoreInteractions(documentRepository);
+    }
+
+    @Test
+    public void shouldNotQueueAnyDocumentsWhenALaterChunkFailsToSave() {
+        UUID uuid = UUID.randomUUID();
+        List<CreateDocumentRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 501; i++) {
+            requests.add(new CreateDocumentRequest("name" + i, DocumentType.ORIGINAL, "fileLink" + i, uuid));
+        }
+        when(documentRepository.saveAll(any()))
+                .thenReturn(new ArrayList<>())
+                .thenThrow(new DataIntegrityViolationException("duplicate"));
+
+        assertThatThrownBy(() -> documentService.createDocuments(requests))
+                .isInstanceOf(DataIntegrityViolationException.class);
+
+        verify(documentRepository, times(2)).saveAll(any());
+        verifyZeroInteractions(documentClient);
+        verifyZeroInteractions(auditClient);
+    }
+
+    @Test
+    public void shouldNotSaveAnyDocumentsWhenOneIsInvalid() {
+        UUID uuid = UUID.randomUUID();
+        List<CreateDocumentRequest> requests = Arrays.asList(
+                new CreateDocumentRequest("name", DocumentType.ORIGINAL, "fileLink", uuid),
+                new CreateDocumentRequest(null, DocumentType.ORIGINAL, "fileLink", uuid));
+
+        try {
+            documentService.createDocuments(requests);
+        } catch (ApplicationExceptions.EntityCreationException e) {
+            // Do Nothing.
+        }
+
+        verifyZeroInteractions(documentRepository);
+        verifyZeroInteractions(documentClient);
+    }
+
     @Test(expected = ApplicationExceptions.EntityCreationException.class)
     public void shouldNotCreateDocumentWhenDocumentUUIDIsNullException() {
 
@@ -291,11 +367,11 @@ public class DocumentServiceTest {
 
         UUID uuid = UUID.randomUUID();
 
-        when(documentRepository.findAllByExternalReferenceUUIDAndType(uuid,"DRAFT" )).thenReturn(new HashSet<>());
+        when(documentRepository.findAllDtosByExternalReferenceUUIDAndType(uuid,"DRAFT" )).thenReturn(new HashSet<>());
 
         documentService.getDocumentsByReferenceForType(uuid, "DRAFT");
 
-        verify(documentRepository, times(1)).findAllByExternalReferenceUUIDAndType(uuid, "DRAFT");
+        verify(documentRepository, times(1)).findAllDtosByExternalReferenceUUIDAndType(uuid, "DRAFT");
         verifyNoMoreInteractions(documentRepository);
     }
 
@@ -380,4 +456,91 @@ public class DocumentServiceTest {
         verifyNoMoreInteractions(auditClient);
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldRecordProcessingTimeWhenLeavingPending() {
+        UUID uuid = UUID.randomUUID();
+        DocumentData documentData = new DocumentData(uuid, DocumentType.ORIGINAL, "name");
+        when(documentRepository.findByUuid(uuid)).thenReturn(documentData);
+
+        documentService.updateDocument(uuid, DocumentStatus.FAILED_VIRUS, "link", "");
+
+        assertThat(meterRegistry.get("documents.processing").tags("type", "ORIGINAL", "status", "FAILED_VIRUS").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldNotRecordProcessingTimeAgainForLaterUpdates() {
+        UUID uuid = UUID.randomUUID();
+        DocumentData documentData = new DocumentData(uuid, DocumentType.ORIGINAL, "name");
+        documentData.update("link", "", DocumentStatus.UPLOADED);
+        when(documentRepository.findByUuid(uuid)).thenReturn(documentData);
+
+        documentService.updateDocument(uuid, DocumentStatus.UPLOADED, "link", "pdf");
+
+        assertThat(meterRegistry.find("documents.processing").timer()).isNull();
+    }
+
+    @Test
+    public void shouldReportPendingDocumentAges() {
+        LocalDateTime oldest = LocalDateTime.now().minusHours(2);
+        when(documentRepository.countByStatus("PENDING")).thenReturn(7L);
+        when(documentRepository.findOldestCreatedByStatus("PENDING")).thenReturn(oldest);
+        when(documentRepository.countByStatusAndCreatedBefore(eq("PENDING"), any(LocalDateTime.class))).thenReturn(5L, 3L, 2L, 0L);
+
+        GetPendingDocumentsResponse response = documentService.getPendingDocuments();
+
+        assertThat(response.getCount()).isEqualTo(7);
+        assertThat(response.getOldestCreated()).isEqualTo(oldest);
+        assertThat(response.getOlderThan()).containsExactly(entry("PT5M", 5L), entry("PT15M", 3L), entry("PT1H", 2L), entry("PT24H", 0L));
+    }
+
+    @Test
+    public void shouldGetDocumentDtoWithoutLoadingEntity() {
+        UUID uuid = UUID.randomUUID();
+        DocumentDto documentDto = new DocumentDto(uuid, UUID.randomUUID(), "ORIGINAL", "name", "UPLOADED", LocalDateTime.now(), null, false);
+        when(documentRepository.findDtoByUuid(uuid)).thenReturn(documentDto);
+
+        DocumentDto result = documentService.getDocumentDto(uuid);
+
+        assertThat(result.getType()).isEqualTo(DocumentType.ORIGINAL);
+        assertThat(result.getStatus()).isEqualTo(DocumentStatus.UPLOADED);
+        verify(documentRepository, times(1)).findDtoByUuid(uuid);
+        verifyNoMoreInteractions(documentRepository);
+    }
+
+    @Test(expected = ApplicationExceptions.EntityNotFoundException.class)
+    public void shouldThrowNotFoundWhenDocumentDtoIsMissing() {
+        UUID uuid = UUID.randomUUID();
+        when(documentRepository.findDtoByUuid(uuid)).thenReturn(null);
+
+        documentService.getDocumentDto(uuid);
+    }
+
+    @Test
+    public void shouldGetPageOfDocumentsAfterCursor() {
+        UUID uuid = UUID.randomUUID();
+        DocumentCursor cursor = DocumentCursor.after(new DocumentDto(42, uuid, UUID.randomUUID(), "ORIGINAL", "name", "UPLOADED", LocalDateTime.now(), null, false));
+        when(documentRepository.findPageByExternalReferenceUUIDAndType(uuid, "DRAFT", cursor.getCreated(), cursor.getId(), PageRequest.of(0, 11)))
+                .thenReturn(new ArrayList<>());
+
+        documentService.getDocumentsByReference(uuid, "DRAFT", cursor, 11);
+
+        verify(documentRepository, times(1)).findPageByExternalReferenceUUIDAndType(uuid, "DRAFT", cursor.getCreated(), cursor.getId(), PageRequest.of(0, 11));
+        verifyNoMoreInteractions(documentRepository);
+    }
+
+    @Test
+    public void shouldStreamDocumentsAndDetachEachRow() {
+        UUID uuid = UUID.randomUUID();
+        DocumentData first = new DocumentData(uuid, DocumentType.ORIGINAL, "first");
+        DocumentData second = new DocumentData(uuid, DocumentType.ORIGINAL, "second");
+        when(documentRepository.streamAllByExternalReferenceUUID(uuid)).thenReturn(Stream.of(first, second));
+        List<DocumentData> streamed = new ArrayList<>();
+
+        documentService.streamDocumentsByReference(uuid, null, streamed::add);
+
+        assertThat(streamed).containsExactly(first, second);
+        verify(entityManager).detach(first);
+        verify(entityManager).detach(second);
+    }
+}
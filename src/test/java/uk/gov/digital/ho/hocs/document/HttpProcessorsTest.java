@@ -0,0 +1,77 @@
+package uk.gov.digital.ho.hocs.document;
+
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.impl.DefaultExchange;
+import org.apache.http.HttpEntity;
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.digital.ho.hocs.document.dto.camel.S3Document;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HttpProcessorsTest {
+
+    private static final byte[] CONTENT = "some document content".getBytes(StandardCharsets.UTF_8);
+
+    private final List<String> opened = new ArrayList<>();
+    private Exchange exchange;
+
+    @Before
+    public void setUp() {
+        exchange = new DefaultExchange(new DefaultCamelContext());
+        exchange.setProperty("fileLink", "someUUID.docx");
+        exchange.getIn().setBody(new S3Document("UUID", "sample.docx", null, "docx", "application/docx", "contentHash"));
+    }
+
+    @Test
+    public void shouldNotOpenContentUntilEntityIsWritten() throws Exception {
+        HttpEntity entity = buildEntity();
+
+        assertThat(opened).isEmpty();
+        assertThat(entity.isChunked()).isTrue();
+        assertThat(entity.getContentLength()).isEqualTo(-1);
+    }
+
+    @Test
+    public void shouldStreamContentFromSource() throws Exception {
+        String body = write(buildEntity());
+
+        assertThat(opened).containsExactly("someUUID.docx");
+        assertThat(body).contains("filename=\"UUID\"").contains("some document content");
+    }
+
+    @Test
+    public void shouldReopenContentEachTimeEntityIsWritten() throws Exception {
+        HttpEntity entity = buildEntity();
+
+        String first = write(entity);
+        String second = write(entity);
+
+        assertThat(opened).hasSize(2);
+        assertThat(second).isEqualTo(first);
+    }
+
+    private HttpEntity buildEntity() throws Exception {
+        Processor processor = HttpProcessors.buildMultipartEntity(sent -> {
+            opened.add(sent.getProperty("fileLink", String.class));
+            return new ByteArrayInputStream(CONTENT);
+        });
+        processor.process(exchange);
+        return exchange.getOut().getBody(HttpEntity.class);
+    }
+
+    private static String write(HttpEntity entity) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        entity.writeTo(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,59 @@
+package uk.gov.digital.ho.hocs.document;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.dao.DataIntegrityViolationException;
+import uk.gov.digital.ho.hocs.document.model.MalwareScanResult;
+import uk.gov.digital.ho.hocs.document.repository.MalwareScanResultRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MalwareScanResultServiceTest {
+
+    @Mock
+    private MalwareScanResultRepository malwareScanResultRepository;
+
+    @Test
+    public void shouldReportKnownCleanForCurrentSignatureVersion() {
+        MalwareScanResultService service = new MalwareScanResultService(malwareScanResultRepository, "25468");
+        when(malwareScanResultRepository.existsByContentHashAndSignatureVersion("hash", "25468")).thenReturn(true);
+
+        assertThat(service.isKnownClean("hash")).isTrue();
+    }
+
+    @Test
+    public void shouldNotReportKnownCleanWhenSignatureVersionUnset() {
+        MalwareScanResultService service = new MalwareScanResultService(malwareScanResultRepository, "");
+
+        assertThat(service.isKnownClean("hash")).isFalse();
+        service.recordClean("hash");
+
+        verifyZeroInteractions(malwareScanResultRepository);
+    }
+
+    @Test
+    public void shouldRecordCleanResultOnce() {
+        MalwareScanResultService service = new MalwareScanResultService(malwareScanResultRepository, "25468");
+        when(malwareScanResultRepository.existsByContentHashAndSignatureVersion("hash", "25468")).thenReturn(false, true);
+
+        service.recordClean("hash");
+        service.recordClean("hash");
+
+        verify(malwareScanResultRepository, times(1)).save(any(MalwareScanResult.class));
+    }
+
+    @Test
+    public void shouldIgnoreConcurrentlyRecordedResult() {
+        MalwareScanResultService service = new MalwareScanResultService(malwareScanResultRepository, "25468");
+        when(malwareScanResultRepository.save(any(MalwareScanResult.class))).thenThrow(new DataIntegrityViolationException("duplicate"));
+
+        service.recordClean("hash");
+
+        verify(malwareScanResultRepository, times(1)).save(any(MalwareScanResult.class));
+    }
+}
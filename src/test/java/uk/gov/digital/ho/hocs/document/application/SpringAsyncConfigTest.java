@@ -0,0 +1,81 @@
+package uk.gov.digital.ho.hocs.document.application;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SpringAsyncConfigTest {
+
+    private MeterRegistry meterRegistry;
+    private SpringAsyncConfig config;
+    private ThreadPoolTaskExecutor executor;
+
+    @Before
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        config = new SpringAsyncConfig(meterRegistry, 1, 1, 1, 5, false, Optional.empty());
+        executor = config.documentDispatchExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void shouldRunTaskOnCallerWhenQueueIsFull() {
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> await(release));
+        executor.execute(() -> await(release));
+        AtomicReference<Thread> ranOn = new AtomicReference<>();
+
+        executor.execute(() -> ranOn.set(Thread.currentThread()));
+        release.countDown();
+
+        assertThat(ranOn.get()).isSameAs(Thread.currentThread());
+        assertThat(meterRegistry.get("executor.rejected").tag("name", "document-dispatch").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldRunTaskOnCallerOnceShutdownHasStarted() {
+        executor.shutdown();
+        AtomicReference<Thread> ranOn = new AtomicReference<>();
+
+        executor.execute(() -> ranOn.set(Thread.currentThread()));
+
+        assertThat(ranOn.get()).isSameAs(Thread.currentThread());
+        assertThat(meterRegistry.get("executor.rejected").tag("name", "document-dispatch").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldRecordTaskLatencyAndPoolMetrics() throws InterruptedException {
+        Executor asyncExecutor = config.getAsyncExecutor();
+        CountDownLatch done = new CountDownLatch(1);
+
+        asyncExecutor.execute(done::countDown);
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        executor.shutdown();
+        assertThat(meterRegistry.get("executor.latency").tag("name", "document-dispatch").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("executor.queued").tag("name", "document-dispatch").gauge()).isNotNull();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
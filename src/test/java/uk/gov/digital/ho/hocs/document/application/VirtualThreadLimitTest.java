@@ -0,0 +1,145 @@
+package uk.gov.digital.ho.hocs.document.application;
+
+import org.apache.camel.builder.ThreadPoolProfileBuilder;
+import org.apache.camel.impl.DefaultCamelContext;
+import org.apache.camel.spi.ThreadPoolProfile;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+public class VirtualThreadLimitTest {
+
+    private final VirtualThreadLimit limit = new VirtualThreadLimit(1);
+    private final VirtualThreadConfiguration.VirtualThreadPoolFactory factory =
+            new VirtualThreadConfiguration.VirtualThreadPoolFactory(Executors.defaultThreadFactory(), limit);
+    private final List<ExecutorService> pools = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        pools.forEach(ExecutorService::shutdownNow);
+    }
+
+    @Test
+    public void shouldShareLimitAcrossLimitedPools() throws InterruptedException {
+        ExecutorService first = pool(VirtualThreadLimit.LIMITED_PROFILE_PREFIX + "first");
+        ExecutorService second = pool(VirtualThreadLimit.LIMITED_PROFILE_PREFIX + "second");
+
+        assertThat(maxConcurrency(first, second)).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldLeaveOtherPoolsUnlimited() throws InterruptedException {
+        ExecutorService first = pool("first");
+        ExecutorService second = pool("second");
+
+        assertThat(maxConcurrency(first, second)).isGreaterThan(1);
+    }
+
+    @Test
+    public void shouldGateDecoratedTasks() throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        pools.add(pool);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger max = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(4);
+
+        for (int i = 0; i < 4; i++) {
+            pool.execute(limit.decorate(() -> track(running, max, done)));
+        }
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(max.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldCapConcurrentRequests() throws InterruptedException {
+        Executor requests = VirtualThreadConfiguration.requestExecutor(Executors.defaultThreadFactory(), new VirtualThreadLimit(2));
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger max = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(6);
+
+        for (int i = 0; i < 6; i++) {
+            requests.execute(() -> track(running, max, done));
+        }
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(max.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldRunLimitedPoolsOnVirtualThreads() throws Exception {
+        assumeTrue(VirtualThreads.isSupported());
+        VirtualThreadConfiguration.VirtualThreadPoolFactory virtualFactory =
+                new VirtualThreadConfiguration.VirtualThreadPoolFactory(VirtualThreads.threadFactory("test-"), limit);
+        ThreadPoolProfile profile = new ThreadPoolProfileBuilder(VirtualThreadLimit.LIMITED_PROFILE_PREFIX + "virtual")
+                .poolSize(2)
+                .maxPoolSize(2)
+                .maxQueueSize(10)
+                .build();
+        profile.addDefaults(new DefaultCamelContext().getExecutorServiceManager().getDefaultThreadPoolProfile());
+        ExecutorService pool = virtualFactory.newThreadPool(profile, null);
+        pools.add(pool);
+
+        Thread thread = pool.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+
+        assertThat((Boolean) Thread.class.getMethod("isVirtual").invoke(thread)).isTrue();
+        assertThat(maxConcurrency(pool, pool)).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldKeepOneCarrierFreeByDefault() {
+        VirtualThreadLimit defaultLimit = VirtualThreadLimit.forCarriers(0);
+
+        assertThat(defaultLimit.getMaxTasks()).isEqualTo(Math.max(1, VirtualThreadLimit.carriers() - 1));
+        assertThat(VirtualThreadLimit.forCarriers(3).getMaxTasks()).isEqualTo(3);
+    }
+
+    private ExecutorService pool(String profileId) {
+        ThreadPoolProfile profile = new ThreadPoolProfileBuilder(profileId)
+                .poolSize(2)
+                .maxPoolSize(2)
+                .maxQueueSize(10)
+                .build();
+        profile.addDefaults(new DefaultCamelContext().getExecutorServiceManager().getDefaultThreadPoolProfile());
+        ExecutorService pool = factory.newThreadPool(profile, null);
+        pools.add(pool);
+        return pool;
+    }
+
+    private static int maxConcurrency(ExecutorService first, ExecutorService second) throws InterruptedException {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger max = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(4);
+
+        for (int i = 0; i < 2; i++) {
+            first.execute(() -> track(running, max, done));
+            second.execute(() -> track(running, max, done));
+        }
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        return max.get();
+    }
+
+    private static void track(AtomicInteger running, AtomicInteger max, CountDownLatch done) {
+        max.accumulateAndGet(running.incrementAndGet(), Math::max);
+        try {
+            Thread.sleep(50);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            running.decrementAndGet();
+            done.countDown();
+        }
+    }
+}
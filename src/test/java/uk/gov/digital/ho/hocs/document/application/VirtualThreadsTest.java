@@ -0,0 +1,41 @@
+package uk.gov.digital.ho.hocs.document.application;
+
+import org.junit.Test;
+
+import java.util.concurrent.ThreadFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+
+public class VirtualThreadsTest {
+
+    @Test
+    public void shouldCreateNamedVirtualThreadsWhenSupported() throws Exception {
+        assumeTrue(VirtualThreads.isSupported());
+        ThreadFactory threadFactory = VirtualThreads.threadFactory("test-");
+
+        Thread thread = threadFactory.newThread(() -> { });
+
+        assertThat(thread.getName()).isEqualTo("test-0");
+        assertThat((Boolean) Thread.class.getMethod("isVirtual").invoke(thread)).isTrue();
+    }
+
+    @Test
+    public void shouldSupportVirtualThreadsWhenRequired() {
+        // set by the virtualThreadTest task so that running on the wrong JDK fails instead of skipping
+        assumeTrue(Boolean.getBoolean("virtualThreads.required"));
+
+        assertThat(VirtualThreads.isSupported()).as("running on %s", System.getProperty("java.version")).isTrue();
+    }
+
+    @Test
+    public void shouldRefuseWhenNotSupported() {
+        assumeFalse(VirtualThreads.isSupported());
+
+        assertThatThrownBy(() -> VirtualThreads.threadFactory("test-"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("JDK 21");
+    }
+}
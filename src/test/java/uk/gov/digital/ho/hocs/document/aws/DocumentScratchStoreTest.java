@@ -0,0 +1,190 @@
+package uk.gov.digital.ho.hocs.document.aws;
+
+import com.amazonaws.util.IOUtils;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import uk.gov.digital.ho.hocs.document.dto.camel.S3DocumentMetadata;
+import uk.gov.digital.ho.hocs.document.dto.camel.S3DocumentStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DocumentScratchStoreTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static final String KEY = "someUUID.docx";
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final Ticker ticker = nanos::get;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private Path directory;
+    private DocumentScratchStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = temporaryFolder.newFolder().toPath();
+        store = new DocumentScratchStore(true, directory, 1024, 512, 60, ticker, meterRegistry);
+    }
+
+    @After
+    public void tearDown() {
+        store.shutdown();
+    }
+
+    @Test
+    public void shouldReturnStreamOverLocalCopy() throws IOException {
+        UUID documentUUID = UUID.randomUUID();
+        byte[] data = bytes(100);
+
+        try (S3DocumentStream stored = store.store(documentUUID, document(data))) {
+            assertThat(IOUtils.toByteArray(stored.getContent())).isEqualTo(data);
+        }
+
+        try (S3DocumentStream document = store.get(documentUUID, KEY)) {
+            assertThat(document.getMetadata().getKey()).isEqualTo(KEY);
+            assertThat(IOUtils.toByteArray(document.getContent())).isEqualTo(data);
+        }
+        assertThat(scratchFiles()).hasSize(1);
+        assertThat(meterRegistry.get("scratch.store.bytes").gauge().value()).isEqualTo(100);
+    }
+
+    @Test
+    public void shouldReturnRangeOfLocalCopy() throws IOException {
+        UUID documentUUID = UUID.randomUUID();
+        byte[] data = bytes(100);
+        store.store(documentUUID, document(data)).close();
+
+        try (S3DocumentStream document = store.get(documentUUID, KEY, 10, 19)) {
+            assertThat(IOUtils.toByteArray(document.getContent())).isEqualTo(Arrays.copyOfRange(data, 10, 20));
+        }
+    }
+
+    @Test
+    public void shouldOnlyReturnLocalCopyForKeysItHolds() throws IOException {
+        UUID documentUUID = UUID.randomUUID();
+        byte[] data = bytes(100);
+        store.store(documentUUID, document(data)).close();
+
+        assertThat(store.get(documentUUID, "someCase/other.pdf")).isNull();
+        assertThat(store.getMetadata(documentUUID, "someCase/other.pdf")).isNull();
+
+        store.addKey(documentUUID, KEY, "someCase/copy.docx");
+
+        try (S3DocumentStream document = store.get(documentUUID, "someCase/copy.docx")) {
+            assertThat(IOUtils.toByteArray(document.getContent())).isEqualTo(data);
+        }
+    }
+
+    @Test
+    public void shouldKeepReadingOpenStreamAfterEviction() throws IOException {
+        UUID documentUUID = UUID.randomUUID();
+        byte[] data = bytes(100);
+        store.store(documentUUID, document(data)).close();
+
+        try (S3DocumentStream document = store.get(documentUUID, KEY)) {
+            store.evict(documentUUID);
+
+            assertThat(scratchFiles()).isEmpty();
+            assertThat(IOUtils.toByteArray(document.getContent())).isEqualTo(data);
+        }
+    }
+
+    @Test
+    public void shouldPassThroughDocumentsOverObjectLimit() throws IOException {
+        UUID documentUUID = UUID.randomUUID();
+        S3DocumentStream document = document(bytes(600));
+
+        assertThat(store.store(documentUUID, document)).isSameAs(document);
+        assertThat(store.get(documentUUID, KEY)).isNull();
+        assertThat(scratchFiles()).isEmpty();
+    }
+
+    @Test
+    public void shouldDeleteLocalCopyWhenEvicted() throws IOException {
+        UUID documentUUID = UUID.randomUUID();
+        store.store(documentUUID, document(bytes(100))).close();
+
+        store.evict(documentUUID);
+
+        assertThat(store.get(documentUUID, KEY)).isNull();
+        assertThat(scratchFiles()).isEmpty();
+    }
+
+    @Test
+    public void shouldDeleteLocalCopyAfterTtl() throws IOException {
+        UUID documentUUID = UUID.randomUUID();
+        store.store(documentUUID, document(bytes(100))).close();
+
+        nanos.addAndGet(TimeUnit.SECONDS.toNanos(61));
+        store.cleanUp();
+
+        assertThat(store.get(documentUUID, KEY)).isNull();
+        assertThat(scratchFiles()).isEmpty();
+    }
+
+    @Test
+    public void shouldStayWithinDiskBudget() throws IOException {
+        for (int i = 0; i < 5; i++) {
+            store.store(UUID.randomUUID(), document(bytes(400))).close();
+        }
+        store.cleanUp();
+
+        assertThat(scratchFiles().length).isLessThanOrEqualTo(2);
+        assertThat(meterRegistry.get("scratch.store.bytes").gauge().value()).isLessThanOrEqualTo(1024);
+    }
+
+    @Test
+    public void shouldRemoveLeftoverFilesOnStartup() throws IOException {
+        Files.createFile(directory.resolve("left-over.scratch"));
+
+        new DocumentScratchStore(true, directory, 1024, 512, 60, ticker, new SimpleMeterRegistry()).shutdown();
+
+        assertThat(scratchFiles()).isEmpty();
+    }
+
+    @Test
+    public void shouldPassThroughWhenDisabled() throws IOException {
+        DocumentScratchStore disabled = new DocumentScratchStore(false, directory, 1024, 512, 60, ticker, new SimpleMeterRegistry());
+        UUID documentUUID = UUID.randomUUID();
+        S3DocumentStream document = document(bytes(100));
+
+        assertThat(disabled.store(documentUUID, document)).isSameAs(document);
+        assertThat(disabled.get(documentUUID, KEY)).isNull();
+        assertThat(scratchFiles()).isEmpty();
+    }
+
+    private File[] scratchFiles() {
+        return directory.toFile().listFiles();
+    }
+
+    private static S3DocumentStream document(byte[] data) {
+        S3DocumentMetadata metadata = new S3DocumentMetadata(KEY, KEY, "sample.docx", "docx",
+                "application/docx", data.length, "etag", new Date());
+        return new S3DocumentStream(metadata, new ByteArrayInputStream(data));
+    }
+
+    private static byte[] bytes(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) i;
+        }
+        return data;
+    }
+}
@@ -0,0 +1,87 @@
+package uk.gov.digital.ho.hocs.document.aws;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.InterceptorContext;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.http.SdkHttpFullRequest;
+import software.amazon.awssdk.http.SdkHttpMethod;
+import software.amazon.awssdk.http.SdkHttpResponse;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+import java.net.URI;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class S3AsyncRequestMetricsTest {
+
+    private MeterRegistry meterRegistry;
+    private S3AsyncRequestMetrics requestMetrics;
+
+    @Before
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        requestMetrics = new S3AsyncRequestMetrics(meterRegistry, "trusted");
+    }
+
+    @Test
+    public void shouldTimeGetAndRecordResponseBytes() {
+        ExecutionAttributes attributes = attributes("GetObject");
+        InterceptorContext context = InterceptorContext.builder()
+                .request(GetObjectRequest.builder().bucket("bucket").key("key").build())
+                .httpRequest(httpRequest(SdkHttpMethod.GET).build())
+                .httpResponse(SdkHttpResponse.builder().statusCode(200).putHeader("Content-Length", "2048").build())
+                .build();
+
+        requestMetrics.beforeExecution(context, attributes);
+        requestMetrics.afterExecution(context, attributes);
+
+        assertThat(meterRegistry.get("s3.requests").tags("client", "trusted", "operation", "GetObject", "outcome", "success").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("s3.bytes").tags("client", "trusted", "operation", "GetObject").summary().totalAmount()).isEqualTo(2048);
+    }
+
+    @Test
+    public void shouldRecordRequestBytesForUploadPart() {
+        ExecutionAttributes attributes = attributes("UploadPart");
+        InterceptorContext context = InterceptorContext.builder()
+                .request(UploadPartRequest.builder().bucket("bucket").key("key").build())
+                .httpRequest(httpRequest(SdkHttpMethod.PUT).putHeader("Content-Length", "100").build())
+                .httpResponse(SdkHttpResponse.builder().statusCode(200).build())
+                .build();
+
+        requestMetrics.beforeExecution(context, attributes);
+        requestMetrics.afterExecution(context, attributes);
+
+        assertThat(meterRegistry.get("s3.bytes").tags("operation", "UploadPart").summary().totalAmount()).isEqualTo(100);
+    }
+
+    @Test
+    public void shouldTimeFailedRequests() {
+        ExecutionAttributes attributes = attributes("GetObject");
+        InterceptorContext context = InterceptorContext.builder()
+                .request(GetObjectRequest.builder().bucket("bucket").key("key").build())
+                .build();
+
+        requestMetrics.beforeExecution(context, attributes);
+        requestMetrics.onExecutionFailure(mock(Context.FailedExecution.class), attributes);
+
+        assertThat(meterRegistry.get("s3.requests").tags("operation", "GetObject", "outcome", "error").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.find("s3.bytes").summary()).isNull();
+    }
+
+    private static ExecutionAttributes attributes(String operation) {
+        ExecutionAttributes attributes = new ExecutionAttributes();
+        attributes.putAttribute(SdkExecutionAttribute.OPERATION_NAME, operation);
+        return attributes;
+    }
+
+    private static SdkHttpFullRequest.Builder httpRequest(SdkHttpMethod method) {
+        return SdkHttpFullRequest.builder().method(method).uri(URI.create("http://localhost/bucket/key"));
+    }
+}
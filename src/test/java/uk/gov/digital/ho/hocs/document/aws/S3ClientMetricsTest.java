@@ -0,0 +1,72 @@
+package uk.gov.digital.ho.hocs.document.aws;
+
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.Request;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.AWSRequestMetrics.Field;
+import com.amazonaws.util.AWSRequestMetricsFullSupport;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class S3ClientMetricsTest {
+
+    private MeterRegistry meterRegistry;
+    private S3ClientMetrics clientMetrics;
+
+    @Before
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        clientMetrics = new S3ClientMetrics(meterRegistry, "untrusted");
+    }
+
+    @Test
+    public void shouldPublishConnectionPoolCounts() {
+        AWSRequestMetrics metrics = new AWSRequestMetricsFullSupport();
+        metrics.setCounter(Field.HttpClientPoolLeasedCount, 7);
+        metrics.setCounter(Field.HttpClientPoolAvailableCount, 3);
+        metrics.setCounter(Field.HttpClientPoolPendingCount, 2);
+
+        clientMetrics.collectMetrics(request(metrics), null);
+
+        assertThat(meterRegistry.get("s3.client.pool.leased").tag("client", "untrusted").gauge().value()).isEqualTo(7);
+        assertThat(meterRegistry.get("s3.client.pool.available").tag("client", "untrusted").gauge().value()).isEqualTo(3);
+        assertThat(meterRegistry.get("s3.client.pool.pending").tag("client", "untrusted").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldCountRetriesAndTimeEachAttempt() {
+        AWSRequestMetrics metrics = new AWSRequestMetricsFullSupport();
+        metrics.setCounter(Field.RequestCount, 3);
+        for (int attempt = 0; attempt < 3; attempt++) {
+            metrics.startEvent(Field.HttpRequestTime);
+            metrics.endEvent(Field.HttpRequestTime);
+        }
+
+        clientMetrics.collectMetrics(request(metrics), null);
+
+        assertThat(meterRegistry.get("s3.client.retries").tag("client", "untrusted").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("s3.client.http").tag("client", "untrusted").timer().count()).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldNotCountRetriesForSingleAttempt() {
+        AWSRequestMetrics metrics = new AWSRequestMetricsFullSupport();
+        metrics.setCounter(Field.RequestCount, 1);
+
+        clientMetrics.collectMetrics(request(metrics), null);
+
+        assertThat(meterRegistry.get("s3.client.retries").counter().count()).isZero();
+        assertThat(meterRegistry.get("s3.client.pool.leased").gauge().value()).isZero();
+    }
+
+    private static Request<?> request(AWSRequestMetrics metrics) {
+        Request<?> request = new DefaultRequest<>(new GetObjectRequest("bucket", "key"), "Amazon S3");
+        request.setAWSRequestMetrics(metrics);
+        return request;
+    }
+}
@@ -0,0 +1,174 @@
+package uk.gov.digital.ho.hocs.document.aws;
+
+import com.amazonaws.util.IOUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import uk.gov.digital.ho.hocs.document.dto.camel.S3DocumentMetadata;
+import uk.gov.digital.ho.hocs.document.dto.camel.S3DocumentStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class S3DocumentCacheTest {
+
+    private static final byte[] CONTENT = "0123456789abcdefghij".getBytes();
+
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    public void shouldReturnCachedCopyOfDocument() throws IOException {
+        S3DocumentCache cache = new S3DocumentCache(true, 1024, 1024, meterRegistry);
+
+        try (S3DocumentStream document = cache.get("key", () -> getDocument("key"))) {
+            assertThat(IOUtils.toByteArray(document.getContent())).isEqualTo(CONTENT);
+        }
+
+        try (S3DocumentStream document = cache.get("key")) {
+            assertThat(document.getMetadata().getKey()).isEqualTo("key");
+            assertThat(IOUtils.toByteArray(document.getContent())).isEqualTo(CONTENT);
+        }
+        assertThat(cache.getMetadata("key").getContentLength()).isEqualTo(CONTENT.length);
+    }
+
+    @Test
+    public void shouldReturnRangeOfCachedDocument() throws IOException {
+        S3DocumentCache cache = new S3DocumentCache(true, 1024, 1024, meterRegistry);
+        cache.get("key", () -> getDocument("key")).close();
+
+        try (S3DocumentStream document = cache.get("key", 5, 9)) {
+            assertThat(IOUtils.toByteArray(document.getContent())).isEqualTo("56789".getBytes());
+        }
+    }
+
+    @Test
+    public void shouldFetchOnceForConcurrentMisses() throws Exception {
+        S3DocumentCache cache = new S3DocumentCache(true, 1024, 1024, meterRegistry);
+        AtomicInteger fetches = new AtomicInteger();
+        CountDownLatch fetching = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            List<Future<byte[]>> reads = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                reads.add(executor.submit(() -> {
+                    try (S3DocumentStream document = cache.get("key", () -> {
+                        fetches.incrementAndGet();
+                        fetching.countDown();
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return getDocument("key");
+                    })) {
+                        return IOUtils.toByteArray(document.getContent());
+                    }
+                }));
+            }
+            assertThat(fetching.await(5, TimeUnit.SECONDS)).isTrue();
+            // give the other readers time to miss while the first fetch is still running
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<byte[]> read : reads) {
+                assertThat(read.get(5, TimeUnit.SECONDS)).isEqualTo(CONTENT);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(fetches).hasValue(1);
+    }
+
+    @Test
+    public void shouldNotCacheDocumentsLargerThanObjectLimit() throws IOException {
+        S3DocumentCache cache = new S3DocumentCache(true, 1024, CONTENT.length - 1, meterRegistry);
+
+        try (S3DocumentStream document = cache.get("key", () -> getDocument("key"))) {
+            assertThat(IOUtils.toByteArray(document.getContent())).isEqualTo(CONTENT);
+        }
+        assertThat(cache.get("key")).isNull();
+    }
+
+    @Test
+    public void shouldNotCacheTruncatedDocument() {
+        S3DocumentCache cache = new S3DocumentCache(true, 1024, 1024, meterRegistry);
+        S3DocumentMetadata metadata = getDocument("key").getMetadata();
+
+        assertThatThrownBy(() -> cache.get("key", () -> new S3DocumentStream(metadata, new ByteArrayInputStream(CONTENT, 0, 10))))
+                .isInstanceOf(IOException.class);
+
+        assertThat(cache.get("key")).isNull();
+    }
+
+    @Test
+    public void shouldNotHoldOtherKeysWhileFetching() throws Exception {
+        S3DocumentCache cache = new S3DocumentCache(true, 1024, 1024, meterRegistry);
+        CountDownLatch fetching = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            Future<byte[]> slow = executor.submit(() -> {
+                try (S3DocumentStream document = cache.get("slow", () -> {
+                    fetching.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return getDocument("slow");
+                })) {
+                    return IOUtils.toByteArray(document.getContent());
+                }
+            });
+            assertThat(fetching.await(5, TimeUnit.SECONDS)).isTrue();
+
+            for (int i = 0; i < 64; i++) {
+                String key = "key" + i;
+                cache.get(key, () -> getDocument(key)).close();
+            }
+            release.countDown();
+            assertThat(slow.get(5, TimeUnit.SECONDS)).isEqualTo(CONTENT);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(cache.getMetadata("slow")).isNotNull();
+    }
+
+    @Test
+    public void shouldNotCacheWhenDisabled() throws IOException {
+        S3DocumentCache cache = new S3DocumentCache(false, 1024, 1024, meterRegistry);
+
+        cache.get("key", () -> getDocument("key")).close();
+
+        assertThat(cache.get("key")).isNull();
+        assertThat(cache.getMetadata("key")).isNull();
+    }
+
+    @Test
+    public void shouldRegisterCacheMetrics() {
+        new S3DocumentCache(true, 1024, 1024, meterRegistry);
+
+        assertThat(meterRegistry.find("cache.gets").tag("cache", "trustedDocuments").meters()).isNotEmpty();
+    }
+
+    private static S3DocumentStream getDocument(String key) {
+        S3DocumentMetadata metadata = new S3DocumentMetadata(key, key, "sample.pdf", "pdf", "application/pdf",
+                CONTENT.length, "etag", new Date());
+        return new S3DocumentStream(metadata, new ByteArrayInputStream(CONTENT));
+    }
+}
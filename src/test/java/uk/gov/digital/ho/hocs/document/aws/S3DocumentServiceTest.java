@@ -3,22 +3,50 @@ package uk.gov.digital.ho.hocs.document.aws;
 import com.adobe.testing.s3mock.junit4.S3MockRule;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.ListMultipartUploadsRequest;
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.util.BinaryUtils;
+import com.amazonaws.util.IOUtils;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.AfterClass;
 import org.junit.Before;
+import org.junit.BeforeClass;
 import org.junit.ClassRule;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.AdditionalAnswers;
 import org.mockito.Mockito;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3Configuration;
 import uk.gov.digital.ho.hocs.document.application.LogEvent;
 import uk.gov.digital.ho.hocs.document.dto.camel.DocumentCopyRequest;
 import uk.gov.digital.ho.hocs.document.dto.camel.S3Document;
+import uk.gov.digital.ho.hocs.document.dto.camel.S3DocumentMetadata;
+import uk.gov.digital.ho.hocs.document.dto.camel.S3DocumentStream;
 import uk.gov.digital.ho.hocs.document.dto.camel.UploadDocument;
 import uk.gov.digital.ho.hocs.document.exception.ApplicationExceptions;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -30,13 +58,33 @@ public class S3DocumentServiceTest {
     private static String untrustedBucketName = "untrusted-bucked";
     private static String trustedBucketName = "trusted-bucked";
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @ClassRule
     public static final S3MockRule S3_MOCK_RULE = S3MockRule.builder().withSecureConnection(false).build();
 
+    private static S3AsyncClient asyncClient;
+
     private AmazonS3 untrustedClient = S3_MOCK_RULE.createS3Client();
     private AmazonS3 trustedClient = S3_MOCK_RULE.createS3Client();
-    private S3DocumentService service = new S3DocumentService(untrustedBucketName, trustedBucketName, trustedClient, untrustedClient, "");
+    private S3DocumentService service = newService(trustedClient, untrustedClient, disabledCache(), false, 16 * 1024 * 1024);
+
+
+    @BeforeClass
+    public static void createAsyncClient() {
+        asyncClient = S3AsyncClient.builder()
+                .region(Region.EU_WEST_2)
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("test", "test")))
+                .serviceConfiguration(S3Configuration.builder().pathStyleAccessEnabled(true).build())
+                .endpointOverride(URI.create("http://localhost:" + S3_MOCK_RULE.getHttpPort()))
+                .build();
+    }
 
+    @AfterClass
+    public static void closeAsyncClient() {
+        asyncClient.close();
+    }
 
     @Before
     public void setUp() throws Exception {
@@ -46,22 +94,33 @@ public class S3DocumentServiceTest {
 
     @Test
     public void shouldGetOriginalUploadedFileFromS3() throws IOException, URISyntaxException {
-        S3Document document = service.getFileFromUntrustedS3("someUUID.docx");
-        byte[] originalUploadedDocument = getDocumentByteArray();
-        assertThat(document.getData()).isEqualTo(originalUploadedDocument);
+        try (S3DocumentStream document = service.getFileStreamFromUntrustedS3("someUUID.docx", UUID.randomUUID())) {
+            assertThat(IOUtils.toByteArray(document.getContent())).isEqualTo(getDocumentByteArray());
+        }
+    }
+
+    @Test
+    public void shouldReturnSha256WithoutDataOfUntrustedFile() throws IOException, URISyntaxException, NoSuchAlgorithmException {
+        S3Document document = service.getFileDigestFromUntrustedS3("someUUID.docx", UUID.randomUUID());
+        byte[] expectedHash = MessageDigest.getInstance("SHA-256").digest(getDocumentByteArray());
+        assertThat(document.getContentHash()).isEqualTo(BinaryUtils.toHex(expectedHash));
+        assertThat(document.getData()).isNull();
+        assertThat(document.getOriginalFilename()).isEqualTo("sample.docx");
     }
 
     @Test
-    public void shouldReturnUploadedMetaData() throws IOException, URISyntaxException {
-        S3Document document = service.getFileFromUntrustedS3("someUUID.docx");
+    public void shouldReturnUploadedMetaData() {
+        S3Document document = service.getFileDetailsFromUntrustedS3("someUUID.docx");
         assertThat(document.getOriginalFilename()).isEqualTo("sample.docx");
         assertThat(document.getFilename()).isEqualTo("someUUID.docx");
         assertThat(document.getFileType()).isEqualTo("docx");
+        assertThat(document.getData()).isNull();
+        assertThat(document.getContentHash()).isNull();
     }
 
     @Test
     public void shouldThrowNotFoundExceptionWhenFileNotInUntrustedBucket() {
-        assertThatThrownBy(() -> service.getFileFromUntrustedS3("a missing file.ext"))
+        assertThatThrownBy(() -> service.getFileDigestFromUntrustedS3("a missing file.ext", UUID.randomUUID()))
                 .isInstanceOf(ApplicationExceptions.S3Exception.class)
                 .hasMessage("File not found in S3 bucket")
                 .hasFieldOrPropertyWithValue("event", LogEvent.S3_FILE_NOT_FOUND);
@@ -73,15 +132,15 @@ public class S3DocumentServiceTest {
         AmazonS3Exception S3500Exception = new AmazonS3Exception("something went wrong");
         S3500Exception.setStatusCode(500);
         when(failingClient.getObject(any())).thenThrow(S3500Exception);
-        S3DocumentService badService = new S3DocumentService(untrustedBucketName, trustedBucketName, failingClient, failingClient, "");
-        assertThatThrownBy(() -> badService.getFileFromUntrustedS3("a bad file"))
+        S3DocumentService badService = newService(failingClient, failingClient, disabledCache(), false, 16 * 1024 * 1024);
+        assertThatThrownBy(() -> badService.getFileDigestFromUntrustedS3("a bad file", UUID.randomUUID()))
                 .isInstanceOf(ApplicationExceptions.S3Exception.class)
                 .hasFieldOrPropertyWithValue("event", LogEvent.S3_DOWNLOAD_FAILURE);
     }
 
     @Test
     public void shouldThrowNotFoundExceptionWhenFileNotInTrustedBucket() {
-        assertThatThrownBy(() -> service.getFileFromTrustedS3("a missing file.ext"))
+        assertThatThrownBy(() -> service.getFileDetailsFromTrustedS3("a missing file.ext"))
                 .isInstanceOf(ApplicationExceptions.S3Exception.class)
                 .hasMessage("File not found in S3 bucket")
                 .hasFieldOrPropertyWithValue("event", LogEvent.S3_FILE_NOT_FOUND);
@@ -91,7 +150,7 @@ public class S3DocumentServiceTest {
     public void shouldCopyToTrustedBucket() throws IOException {
 
         assertThat(trustedClient.listObjectsV2(trustedBucketName).getKeyCount()).isEqualTo(0);
-        DocumentCopyRequest copyRequest = new DocumentCopyRequest("someUUID.docx","someCase", "docx");
+        DocumentCopyRequest copyRequest = new DocumentCopyRequest(UUID.randomUUID(), "someUUID.docx","someCase", "docx");
         S3Document document = service.copyToTrustedBucket(copyRequest);
         assertThat(trustedClient.doesObjectExist(trustedBucketName, document.getFilename())).isTrue();
     }
@@ -99,7 +158,7 @@ public class S3DocumentServiceTest {
     @Test
     public void shouldSetMetaDataWhenCopyToTrustedBucket() throws IOException {
 
-        DocumentCopyRequest copyRequest = new DocumentCopyRequest("someUUID.docx","someCase", "docx");
+        DocumentCopyRequest copyRequest = new DocumentCopyRequest(UUID.randomUUID(), "someUUID.docx","someCase", "docx");
         S3Document document = service.copyToTrustedBucket(copyRequest);
 
         ObjectMetadata metadata = trustedClient.getObjectMetadata(trustedBucketName,document.getFilename());
@@ -108,15 +167,250 @@ public class S3DocumentServiceTest {
         assertThat(metadata.getUserMetaDataOf("originalName")).isEqualTo("sample.docx");
     }
 
+    @Test
+    public void shouldCopyToTrustedBucketInParts() throws IOException, URISyntaxException {
+        S3DocumentService multipartService = newService(trustedClient, untrustedClient, disabledCache(), false, 1024);
+
+        DocumentCopyRequest copyRequest = new DocumentCopyRequest(UUID.randomUUID(), "someUUID.docx","someCase", "docx");
+        S3Document document = multipartService.copyToTrustedBucket(copyRequest);
+
+        ObjectMetadata metadata = trustedClient.getObjectMetadata(trustedBucketName, document.getFilename());
+        assertThat(metadata.getUserMetaDataOf("originalName")).isEqualTo("sample.docx");
+        assertThat(IOUtils.toByteArray(trustedClient.getObject(trustedBucketName, document.getFilename()).getObjectContent()))
+                .isEqualTo(getDocumentByteArray());
+    }
+
+    @Test
+    public void shouldCopyToTrustedBucketAsync() throws Exception {
+        S3DocumentService multipartService = newService(trustedClient, untrustedClient, disabledCache(), false, 1024);
+
+        DocumentCopyRequest copyRequest = new DocumentCopyRequest(UUID.randomUUID(), "someUUID.docx","someCase", "docx");
+        S3Document document = multipartService.copyToTrustedBucketAsync(copyRequest).get(30, TimeUnit.SECONDS);
+
+        assertThat(IOUtils.toByteArray(trustedClient.getObject(trustedBucketName, document.getFilename()).getObjectContent()))
+                .isEqualTo(getDocumentByteArray());
+    }
+
+    @Test
+    public void shouldAbortCopyInPartsWhenAPartFails() {
+        S3AsyncClient failingClient = Mockito.mock(S3AsyncClient.class, AdditionalAnswers.delegatesTo(asyncClient));
+        Mockito.doReturn(CompletableFuture.failedFuture(SdkClientException.create("Connection reset")))
+                .when(failingClient).getObject(any(Consumer.class), any(AsyncResponseTransformer.class));
+        S3DocumentService multipartService = new S3DocumentService(untrustedBucketName, trustedBucketName, trustedClient, untrustedClient,
+                asyncClient, failingClient, "", disabledCache(), disabledScratchStore(), false, 1024, 1024, 2);
+
+        DocumentCopyRequest copyRequest = new DocumentCopyRequest(UUID.randomUUID(), "someUUID.docx","someCase", "docx");
+        assertThatThrownBy(() -> multipartService.copyToTrustedBucket(copyRequest))
+                .isInstanceOf(ApplicationExceptions.S3Exception.class)
+                .hasFieldOrPropertyWithValue("event", LogEvent.S3_DOWNLOAD_FAILURE);
+
+        assertThat(trustedClient.listMultipartUploads(new ListMultipartUploadsRequest(trustedBucketName)).getMultipartUploads()).isEmpty();
+        assertThat(trustedClient.listObjectsV2(trustedBucketName).getKeyCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldCopyToTrustedBucketWithinS3() throws IOException, URISyntaxException {
+        S3DocumentService serverSideService = newService(trustedClient, untrustedClient, disabledCache(), true, 16 * 1024 * 1024);
+
+        DocumentCopyRequest copyRequest = new DocumentCopyRequest(UUID.randomUUID(), "someUUID.docx","someCase", "docx");
+        S3Document document = serverSideService.copyToTrustedBucket(copyRequest);
+
+        ObjectMetadata metadata = trustedClient.getObjectMetadata(trustedBucketName, document.getFilename());
+        assertThat(metadata.getContentType()).isEqualTo("application/docx");
+        assertThat(metadata.getUserMetaDataOf("originalName")).isEqualTo("sample.docx");
+        assertThat(IOUtils.toByteArray(trustedClient.getObject(trustedBucketName, document.getFilename()).getObjectContent()))
+                .isEqualTo(getDocumentByteArray());
+    }
+
+    @Test
+    public void shouldThrowNotFoundExceptionWhenCopyingFileNotInUntrustedBucket() {
+        DocumentCopyRequest copyRequest = new DocumentCopyRequest(UUID.randomUUID(), "a missing file.docx","someCase", "docx");
+        assertThatThrownBy(() -> service.copyToTrustedBucket(copyRequest))
+                .isInstanceOf(ApplicationExceptions.S3Exception.class)
+                .hasFieldOrPropertyWithValue("event", LogEvent.S3_FILE_NOT_FOUND);
+    }
+
     @Test
     public void shouldUploadToTrustedBucket() throws IOException, URISyntaxException {
 
         assertThat(trustedClient.listObjectsV2(trustedBucketName).getKeyCount()).isEqualTo(0);
-        UploadDocument uploadRequest = new UploadDocument("someUUID.docx", getPDFDocument(),"someCase", "sample.docx");
+        UploadDocument uploadRequest = getPDFUploadDocument();
         S3Document document = service.uploadFile(uploadRequest);
         assertThat(trustedClient.doesObjectExist(trustedBucketName, document.getFilename())).isTrue();
     }
 
+    @Test
+    public void shouldCopyConvertedDocumentWithinTrustedBucket() throws IOException, URISyntaxException {
+        UploadDocument uploadRequest = getPDFUploadDocument();
+        S3Document converted = service.uploadFile(uploadRequest);
+
+        S3Document copy = service.copyConvertedDocument(converted.getFilename(), "otherCase", "other.docx");
+
+        assertThat(copy.getFilename()).startsWith("otherCase/").endsWith(".pdf");
+        ObjectMetadata metadata = trustedClient.getObjectMetadata(trustedBucketName, copy.getFilename());
+        assertThat(metadata.getUserMetaDataOf("originalName")).isEqualTo("other.pdf");
+        assertThat(metadata.getUserMetaDataOf("externalReferenceUUID")).isEqualTo("otherCase");
+        assertThat(IOUtils.toByteArray(trustedClient.getObject(trustedBucketName, copy.getFilename()).getObjectContent()))
+                .isEqualTo(getPDFDocument());
+    }
+
+    @Test
+    public void shouldThrowNotFoundExceptionWhenConvertedDocumentMissing() {
+        assertThatThrownBy(() -> service.copyConvertedDocument("someCase/missing.pdf", "otherCase", "other.docx"))
+                .isInstanceOf(ApplicationExceptions.S3Exception.class)
+                .hasFieldOrPropertyWithValue("event", LogEvent.S3_FILE_NOT_FOUND);
+    }
+
+    @Test
+    public void shouldStreamFileAndMetaDataFromTrustedBucket() throws IOException, URISyntaxException {
+        UploadDocument uploadRequest = getPDFUploadDocument();
+        S3Document uploaded = service.uploadFile(uploadRequest);
+
+        try (S3DocumentStream document = service.getFileStreamFromTrustedS3(uploaded.getFilename())) {
+            assertThat(document.getMetadata().getOriginalFilename()).isEqualTo("sample.pdf");
+            assertThat(document.getMetadata().getMimeType()).isEqualTo("application/pdf");
+            assertThat(document.getMetadata().getContentLength()).isEqualTo(getPDFDocument().length);
+            assertThat(IOUtils.toByteArray(document.getContent())).isEqualTo(getPDFDocument());
+        }
+    }
+
+    @Test
+    public void shouldThrowNotFoundExceptionWhenStreamingFileNotInTrustedBucket() {
+        assertThatThrownBy(() -> service.getFileStreamFromTrustedS3("a missing file.ext"))
+                .isInstanceOf(ApplicationExceptions.S3Exception.class)
+                .hasMessage("File not found in S3 bucket")
+                .hasFieldOrPropertyWithValue("event", LogEvent.S3_FILE_NOT_FOUND);
+    }
+
+    @Test
+    public void shouldStreamRangeOfFileFromTrustedBucket() throws IOException, URISyntaxException {
+        UploadDocument uploadRequest = getPDFUploadDocument();
+        S3Document uploaded = service.uploadFile(uploadRequest);
+
+        try (S3DocumentStream document = service.getFileStreamFromTrustedS3(uploaded.getFilename(), 10, 19)) {
+            assertThat(document.getMetadata().getContentLength()).isEqualTo(getPDFDocument().length);
+            assertThat(IOUtils.toByteArray(document.getContent())).isEqualTo(Arrays.copyOfRange(getPDFDocument(), 10, 20));
+        }
+    }
+
+    @Test
+    public void shouldReturnMetaDataWithoutContentFromTrustedBucket() throws IOException, URISyntaxException {
+        UploadDocument uploadRequest = getPDFUploadDocument();
+        S3Document uploaded = service.uploadFile(uploadRequest);
+
+        S3DocumentMetadata metadata = service.getFileMetadataFromTrustedS3(uploaded.getFilename());
+        assertThat(metadata.getKey()).isEqualTo(uploaded.getFilename());
+        assertThat(metadata.getOriginalFilename()).isEqualTo("sample.pdf");
+        assertThat(metadata.getContentLength()).isEqualTo(getPDFDocument().length);
+        assertThat(metadata.getETag()).isNotEmpty();
+    }
+
+    @Test
+    public void shouldServeRepeatReadsOfTrustedFileFromCache() throws IOException, URISyntaxException {
+        S3DocumentService cachingService = newService(trustedClient, untrustedClient,
+                new S3DocumentCache(true, 10 * 1024 * 1024, 1024 * 1024, new SimpleMeterRegistry()), false, 16 * 1024 * 1024);
+        UploadDocument uploadRequest = getPDFUploadDocument();
+        S3Document uploaded = cachingService.uploadFile(uploadRequest);
+
+        try (S3DocumentStream document = cachingService.getFileStreamFromTrustedS3(uploaded.getFilename())) {
+            assertThat(IOUtils.toByteArray(document.getContent())).isEqualTo(getPDFDocument());
+        }
+        trustedClient.deleteObject(trustedBucketName, uploaded.getFilename());
+
+        try (S3DocumentStream document = cachingService.getFileStreamFromTrustedS3(uploaded.getFilename())) {
+            assertThat(document.getMetadata().getOriginalFilename()).isEqualTo("sample.pdf");
+            assertThat(IOUtils.toByteArray(document.getContent())).isEqualTo(getPDFDocument());
+        }
+        assertThat(cachingService.getFileMetadataFromTrustedS3(uploaded.getFilename()).getContentLength()).isEqualTo(getPDFDocument().length);
+    }
+
+    @Test
+    public void shouldNotCacheTrustedFileReadByPipeline() throws IOException, URISyntaxException {
+        S3DocumentCache cache = new S3DocumentCache(true, 10 * 1024 * 1024, 1024 * 1024, new SimpleMeterRegistry());
+        S3DocumentService cachingService = newService(trustedClient, untrustedClient, cache, false, 16 * 1024 * 1024);
+        S3Document uploaded = cachingService.uploadFile(getPDFUploadDocument());
+
+        try (S3DocumentStream document = cachingService.getFileStreamFromTrustedS3(uploaded.getFilename(), UUID.randomUUID())) {
+            assertThat(IOUtils.toByteArray(document.getContent())).isEqualTo(getPDFDocument());
+        }
+
+        assertThat(cache.get(uploaded.getFilename())).isNull();
+    }
+
+    @Test
+    public void shouldScanAndCopyFromScratchCopyOfUntrustedFile() throws Exception {
+        S3DocumentService scratchService = newService(trustedClient, untrustedClient, disabledCache(), scratchStore(), false, 16 * 1024 * 1024);
+        UUID documentUUID = UUID.randomUUID();
+        S3Document digest = scratchService.getFileDigestFromUntrustedS3("someUUID.docx", documentUUID);
+        untrustedClient.deleteObject(untrustedBucketName, "someUUID.docx");
+
+        try (S3DocumentStream document = scratchService.getFileStreamFromUntrustedS3("someUUID.docx", documentUUID)) {
+            assertThat(IOUtils.toByteArray(document.getContent())).isEqualTo(getDocumentByteArray());
+        }
+        S3Document copy = scratchService.copyToTrustedBucket(new DocumentCopyRequest(documentUUID, "someUUID.docx", "someCase", "docx"));
+
+        assertThat(IOUtils.toByteArray(trustedClient.getObject(trustedBucketName, copy.getFilename()).getObjectContent()))
+                .isEqualTo(getDocumentByteArray());
+        assertThat(trustedClient.getObjectMetadata(trustedBucketName, copy.getFilename()).getUserMetaDataOf("originalName"))
+                .isEqualTo("sample.docx");
+        assertThat(scratchService.getFileDigestFromUntrustedS3("someUUID.docx", documentUUID).getContentHash())
+                .isEqualTo(digest.getContentHash());
+    }
+
+    @Test
+    public void shouldCopyInPartsFromScratchCopyOfUntrustedFile() throws Exception {
+        S3DocumentService scratchService = newService(trustedClient, untrustedClient, disabledCache(), scratchStore(), false, 1024);
+        UUID documentUUID = UUID.randomUUID();
+        scratchService.getFileDigestFromUntrustedS3("someUUID.docx", documentUUID);
+        untrustedClient.deleteObject(untrustedBucketName, "someUUID.docx");
+
+        S3Document copy = scratchService.copyToTrustedBucket(new DocumentCopyRequest(documentUUID, "someUUID.docx", "someCase", "docx"));
+
+        assertThat(IOUtils.toByteArray(trustedClient.getObject(trustedBucketName, copy.getFilename()).getObjectContent()))
+                .isEqualTo(getDocumentByteArray());
+    }
+
+    @Test
+    public void shouldReadTrustedFileFromScratchCopyOfItsUpload() throws Exception {
+        S3DocumentService scratchService = newService(trustedClient, untrustedClient, disabledCache(), scratchStore(), false, 16 * 1024 * 1024);
+        UUID documentUUID = UUID.randomUUID();
+        S3Document upload = scratchService.getFileDigestFromUntrustedS3("someUUID.docx", documentUUID);
+        S3Document copy = scratchService.copyToTrustedBucket(new DocumentCopyRequest(documentUUID, "someUUID.docx", "someCase", "docx"));
+        trustedClient.deleteObject(trustedBucketName, copy.getFilename());
+
+        S3Document digest = scratchService.getFileDigestFromTrustedS3(copy.getFilename(), documentUUID);
+
+        assertThat(digest.getFilename()).isEqualTo(copy.getFilename());
+        assertThat(digest.getOriginalFilename()).isEqualTo("sample.docx");
+        assertThat(digest.getContentHash()).isEqualTo(upload.getContentHash());
+    }
+
+    @Test
+    public void shouldOnlyReadTrustedFileFromScratchCopyForKeyItWasCopiedTo() throws Exception {
+        S3DocumentService scratchService = newService(trustedClient, untrustedClient, disabledCache(), scratchStore(), false, 16 * 1024 * 1024);
+        UUID documentUUID = UUID.randomUUID();
+        scratchService.getFileDigestFromUntrustedS3("someUUID.docx", documentUUID);
+        S3Document pdf = scratchService.uploadFile(getPDFUploadDocument());
+
+        try (S3DocumentStream document = scratchService.getFileStreamFromTrustedS3(pdf.getFilename(), documentUUID)) {
+            assertThat(IOUtils.toByteArray(document.getContent())).isEqualTo(getPDFDocument());
+        }
+    }
+
+    @Test
+    public void shouldGoBackToS3OnceScratchCopyIsEvicted() throws Exception {
+        S3DocumentService scratchService = newService(trustedClient, untrustedClient, disabledCache(), scratchStore(), false, 16 * 1024 * 1024);
+        UUID documentUUID = UUID.randomUUID();
+        scratchService.getFileDigestFromUntrustedS3("someUUID.docx", documentUUID);
+        untrustedClient.deleteObject(untrustedBucketName, "someUUID.docx");
+
+        scratchService.evictScratchCopy(documentUUID);
+
+        assertThatThrownBy(() -> scratchService.getFileStreamFromUntrustedS3("someUUID.docx", documentUUID))
+                .isInstanceOf(ApplicationExceptions.S3Exception.class)
+                .hasFieldOrPropertyWithValue("event", LogEvent.S3_FILE_NOT_FOUND);
+    }
+
     public void uploadUntrustedFiles() throws URISyntaxException, IOException {
         ObjectMetadata metaData = new ObjectMetadata();
         metaData.setContentType("application/docx");
@@ -125,6 +419,11 @@ public class S3DocumentServiceTest {
         untrustedClient.putObject(new PutObjectRequest(untrustedBucketName, "someUUID.docx", new ByteArrayInputStream(getDocumentByteArray()), metaData));
     }
 
+    private UploadDocument getPDFUploadDocument() throws URISyntaxException, IOException {
+        byte[] data = getPDFDocument();
+        return new UploadDocument("someUUID.docx", new ByteArrayInputStream(data), data.length, "someCase", "sample.docx");
+    }
+
     private byte[] getPDFDocument() throws URISyntaxException, IOException {
         return Files.readAllBytes(Paths.get(this.getClass().getClassLoader().getResource("testdata/sample.pdf").toURI()));
     }
@@ -133,6 +432,34 @@ public class S3DocumentServiceTest {
         return Files.readAllBytes(Paths.get(this.getClass().getClassLoader().getResource("testdata/sample.docx").toURI()));
     }
 
+    private static S3DocumentService newService(AmazonS3 trustedClient, AmazonS3 untrustedClient, S3DocumentCache cache,
+                                                boolean serverSideCopy, long multipartThreshold) {
+        return newService(trustedClient, untrustedClient, cache, disabledScratchStore(), serverSideCopy, multipartThreshold);
+    }
+
+    private static S3DocumentService newService(AmazonS3 trustedClient, AmazonS3 untrustedClient, S3DocumentCache cache,
+                                                DocumentScratchStore scratchStore, boolean serverSideCopy, long multipartThreshold) {
+        return new S3DocumentService(untrustedBucketName, trustedBucketName, trustedClient, untrustedClient, asyncClient, asyncClient, "", cache,
+                scratchStore, serverSideCopy, multipartThreshold, 1024, 2);
+    }
+
+    private static S3DocumentCache disabledCache() {
+        return new S3DocumentCache(false, 0, 0, new SimpleMeterRegistry());
+    }
+
+    private static DocumentScratchStore disabledScratchStore() {
+        try {
+            return new DocumentScratchStore(false, Paths.get("unused"), 0, 0, 60, Ticker.systemTicker(), new SimpleMeterRegistry());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private DocumentScratchStore scratchStore() throws IOException {
+        return new DocumentScratchStore(true, temporaryFolder.newFolder().toPath(), 10 * 1024 * 1024, 1024 * 1024, 60,
+                Ticker.systemTicker(), new SimpleMeterRegistry());
+    }
+
     private void clearS3Buckets() {
         if(untrustedClient.doesBucketExistV2(untrustedBucketName)) {
             untrustedClient.deleteBucket(untrustedBucketName);
@@ -0,0 +1,63 @@
+package uk.gov.digital.ho.hocs.document.aws;
+
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.http.HttpResponse;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class S3RequestMetricsTest {
+
+    private MeterRegistry meterRegistry;
+    private S3RequestMetrics requestMetrics;
+
+    @Before
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        requestMetrics = new S3RequestMetrics(meterRegistry, "trusted");
+    }
+
+    @Test
+    public void shouldTimeGetAndRecordResponseBytes() {
+        Request<?> request = new DefaultRequest<>(new GetObjectRequest("bucket", "key"), "Amazon S3");
+        HttpResponse httpResponse = new HttpResponse(request, null);
+        httpResponse.addHeader("Content-Length", "2048");
+
+        requestMetrics.beforeRequest(request);
+        requestMetrics.afterResponse(request, new Response<>(null, httpResponse));
+
+        assertThat(meterRegistry.get("s3.requests").tags("client", "trusted", "operation", "GetObject", "outcome", "success").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("s3.bytes").tags("client", "trusted", "operation", "GetObject").summary().totalAmount()).isEqualTo(2048);
+    }
+
+    @Test
+    public void shouldRecordRequestBytesForPut() {
+        Request<?> request = new DefaultRequest<>(new PutObjectRequest("bucket", "key", new File("unused")), "Amazon S3");
+        request.addHeader("Content-Length", "100");
+
+        requestMetrics.beforeRequest(request);
+        requestMetrics.afterResponse(request, new Response<>(null, new HttpResponse(request, null)));
+
+        assertThat(meterRegistry.get("s3.bytes").tags("operation", "PutObject").summary().totalAmount()).isEqualTo(100);
+    }
+
+    @Test
+    public void shouldTimeFailedRequests() {
+        Request<?> request = new DefaultRequest<>(new GetObjectRequest("bucket", "key"), "Amazon S3");
+
+        requestMetrics.beforeRequest(request);
+        requestMetrics.afterError(request, null, new RuntimeException("failed"));
+
+        assertThat(meterRegistry.get("s3.requests").tags("operation", "GetObject", "outcome", "error").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.find("s3.bytes").summary()).isNull();
+    }
+}
@@ -11,6 +11,13 @@ import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3Configuration;
+
+import java.net.URI;
 
 @Configuration
 @Profile("test")
@@ -26,6 +33,16 @@ public class TestConfiguration {
         return s3Client();
     }
 
+    @Bean(name = "TrustedAsync", destroyMethod = "close")
+    public S3AsyncClient trustedS3AsyncClient() {
+        return s3AsyncClient();
+    }
+
+    @Bean(name = "UnTrustedAsync", destroyMethod = "close")
+    public S3AsyncClient untrustedS3AsyncClient() {
+        return s3AsyncClient();
+    }
+
     public AmazonS3 s3Client() {
         AwsClientBuilder.EndpointConfiguration endpoint = new AwsClientBuilder.EndpointConfiguration("http://localhost:9001/", "eu-west-2");
 
@@ -37,6 +54,15 @@ public class TestConfiguration {
                 .build();
     }
 
+    public S3AsyncClient s3AsyncClient() {
+        return S3AsyncClient.builder()
+                .region(Region.EU_WEST_2)
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("test", "test")))
+                .serviceConfiguration(S3Configuration.builder().pathStyleAccessEnabled(true).build())
+                .endpointOverride(URI.create("http://localhost:9001/"))
+                .build();
+    }
+
     private final AWSCredentialsProvider awsCredentialsProvider = new AWSCredentialsProvider() {
 
         @Override
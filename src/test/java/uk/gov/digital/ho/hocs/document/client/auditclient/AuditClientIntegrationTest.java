@@ -1,6 +1,7 @@
 package uk.gov.digital.ho.hocs.document.client.auditclient;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.apache.camel.component.mock.MockEndpoint;
 import org.apache.camel.test.junit4.CamelTestSupport;
 import org.junit.Before;
@@ -13,6 +14,7 @@ import uk.gov.digital.ho.hocs.document.model.DocumentData;
 import uk.gov.digital.ho.hocs.document.model.DocumentType;
 
 
+import java.util.Optional;
 import java.util.UUID;
 
 import static org.mockito.Mockito.when;
@@ -34,7 +36,7 @@ public class AuditClientIntegrationTest extends CamelTestSupport {
     public void setup() {
         when(requestData.correlationId()).thenReturn(UUID.randomUUID().toString());
         when(requestData.userId()).thenReturn("some user");
-        auditClient = new AuditClient(template, toEndpoint,"hocs-docs","namespace", mapper, requestData);
+        auditClient = new AuditClient(template, toEndpoint,"hocs-docs","namespace", mapper, requestData, 100, 10, 200, "", Optional.empty(), 3, 1, new SimpleMeterRegistry());
     }
 
     @Test
@@ -43,6 +45,7 @@ public class AuditClientIntegrationTest extends CamelTestSupport {
         DocumentData docData = new DocumentData(caseUUID, DocumentType.ORIGINAL, "a document");
         MockEndpoint mockEndpoint = getMockEndpoint(toEndpoint);
         auditClient.createDocumentAudit(docData);
+        auditClient.flush();
         mockEndpoint.assertIsSatisfied();
         mockEndpoint.expectedBodyReceived().body().convertToString().contains(String.format("\"\"documentUUID\"\":\"%s\"", docData.getUuid().toString()));
     }
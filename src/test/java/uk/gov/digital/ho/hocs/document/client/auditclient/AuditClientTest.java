@@ -1,6 +1,13 @@
 package uk.gov.digital.ho.hocs.document.client.auditclient;
 
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.GetQueueUrlResult;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchResult;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.apache.camel.ProducerTemplate;
 import org.junit.Before;
 import org.junit.Test;
@@ -17,13 +24,16 @@ import uk.gov.digital.ho.hocs.document.model.DocumentType;
 
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 import static java.util.UUID.randomUUID;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.mockito.Mockito.times;
@@ -43,11 +53,18 @@ public class AuditClientTest {
     @Captor
     ArgumentCaptor<HashMap<String,Object>> headerCaptor;
 
+    @Mock
+    AmazonSQS sqsClient;
+
+    @Captor
+    ArgumentCaptor<List<SendMessageBatchRequestEntry>> entriesCaptor;
+
     private SpringConfiguration configuration = new SpringConfiguration();
     private ObjectMapper mapper;
 
     private AuditClient auditClient;
     private String auditQueue ="audit-queue";
+    private String auditQueueUrl = "http://localhost:4576/queue/audit-queue";
 
     @Before
     public void setUp() {
@@ -56,7 +73,7 @@ public class AuditClientTest {
         when(requestData.groups()).thenReturn("some groups");
         when(requestData.username()).thenReturn("some username");
         mapper = configuration.initialiseObjectMapper();
-        auditClient = new AuditClient(producerTemplate, auditQueue,"hocs-docs","namespace", mapper, requestData);
+        auditClient = new AuditClient(producerTemplate, auditQueue,"hocs-docs","namespace", mapper, requestData, 100, 10, 200, "", Optional.empty(), 3, 1, new SimpleMeterRegistry());
 
     }
 
@@ -72,6 +89,7 @@ public class AuditClientTest {
                 put(RequestData.GROUP_HEADER, requestData.groups());}};
 
         auditClient.createDocumentAudit(docData);
+        auditClient.flush();
         verify(producerTemplate, times(1)).sendBodyAndHeaders(eq(auditQueue), any(), headerCaptor.capture());
         Map headers = headerCaptor.getValue();
 
@@ -84,6 +102,7 @@ public class AuditClientTest {
         DocumentData docData = new DocumentData(caseUUID, DocumentType.ORIGINAL,"a document");
 
         auditClient.createDocumentAudit(docData);
+        auditClient.flush();
         verify(producerTemplate, times(1)).sendBodyAndHeaders(eq(auditQueue), jsonCaptor.capture(), any());
         CreateAuditRequest request = mapper.readValue((String)jsonCaptor.getValue(), CreateAuditRequest.class);
         assertThat(request.getType()).isEqualTo(EventType.DOCUMENT_CREATED.toString());
@@ -99,8 +118,8 @@ public class AuditClientTest {
         UUID caseUUID = UUID.randomUUID();
         DocumentData docData = new DocumentData(caseUUID, DocumentType.ORIGINAL, "a document");
         doThrow(new RuntimeException("An error occurred")).when(producerTemplate).sendBodyAndHeaders(eq(auditQueue), jsonCaptor.capture(), any());
-        assertThatCode(() -> { auditClient.createDocumentAudit(docData);}).doesNotThrowAnyException();
-        verify(producerTemplate, times(1)).sendBodyAndHeaders(eq(auditQueue), jsonCaptor.capture(), any());
+        assertThatCode(() -> { auditClient.createDocumentAudit(docData); auditClient.flush();}).doesNotThrowAnyException();
+        verify(producerTemplate, times(2)).sendBodyAndHeaders(eq(auditQueue), jsonCaptor.capture(), any());
     }
 
     @Test
@@ -108,9 +127,88 @@ public class AuditClientTest {
         UUID caseUUID = UUID.randomUUID();
         DocumentData docData = new DocumentData(caseUUID, DocumentType.ORIGINAL, "a document");
         auditClient.createDocumentAudit(docData);
+        auditClient.flush();
         verify(producerTemplate, times(1)).sendBodyAndHeaders(eq(auditQueue), jsonCaptor.capture(), any());
         CreateAuditRequest request = mapper.readValue((String)jsonCaptor.getValue(), CreateAuditRequest.class);
         assertThat(request.getType()).isEqualTo(EventType.DOCUMENT_CREATED.toString());
         assertThat(request.getCaseUUID()).isEqualTo(docData.getExternalReferenceUUID());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldNotSendUntilFlushed() {
+        DocumentData docData = new DocumentData(UUID.randomUUID(), DocumentType.ORIGINAL, "a document");
+
+        auditClient.createDocumentAudit(docData);
+        auditClient.deleteDocumentAudit(docData);
+        verifyZeroInteractions(producerTemplate);
+
+        auditClient.flush();
+        verify(producerTemplate, times(2)).sendBodyAndHeaders(eq(auditQueue), any(), any());
+    }
+
+    @Test
+    public void shouldPublishBufferedEventsOnShutdown() {
+        DocumentData docData = new DocumentData(UUID.randomUUID(), DocumentType.ORIGINAL, "a document");
+        auditClient.createDocumentAudit(docData);
+
+        auditClient.shutdown();
+
+        verify(producerTemplate, times(1)).sendBodyAndHeaders(eq(auditQueue), any(), any());
+    }
+
+    @Test
+    public void shouldPublishToSqsInBatchesOfTen() {
+        when(sqsClient.getQueueUrl(auditQueue)).thenReturn(new GetQueueUrlResult().withQueueUrl(auditQueueUrl));
+        when(sqsClient.sendMessageBatch(eq(auditQueueUrl), anyList())).thenReturn(new SendMessageBatchResult());
+        AuditClient sqsAuditClient = sqsAuditClient();
+        DocumentData docData = new DocumentData(UUID.randomUUID(), DocumentType.ORIGINAL, "a document");
+        for (int i = 0; i < 12; i++) {
+            sqsAuditClient.createDocumentAudit(docData);
+        }
+
+        sqsAuditClient.flush();
+
+        verify(sqsClient, times(2)).sendMessageBatch(eq(auditQueueUrl), entriesCaptor.capture());
+        assertThat(entriesCaptor.getAllValues()).extracting(List::size).containsExactly(10, 2);
+        SendMessageBatchRequestEntry entry = entriesCaptor.getAllValues().get(0).get(0);
+        assertThat(entry.getMessageAttributes().get("event_type").getStringValue()).isEqualTo(EventType.DOCUMENT_CREATED.toString());
+        assertThat(entry.getMessageAttributes().get(RequestData.USER_ID_HEADER).getStringValue()).isEqualTo("some user id");
+        verifyZeroInteractions(producerTemplate);
+    }
+
+    @Test
+    public void shouldSendFailedBatchEntriesIndividually() {
+        when(sqsClient.getQueueUrl(auditQueue)).thenReturn(new GetQueueUrlResult().withQueueUrl(auditQueueUrl));
+        when(sqsClient.sendMessageBatch(eq(auditQueueUrl), anyList()))
+                .thenReturn(new SendMessageBatchResult().withFailed(new BatchResultErrorEntry().withId("1").withMessage("throttled")));
+        AuditClient sqsAuditClient = sqsAuditClient();
+        DocumentData docData = new DocumentData(UUID.randomUUID(), DocumentType.ORIGINAL, "a document");
+        sqsAuditClient.createDocumentAudit(docData);
+        sqsAuditClient.deleteDocumentAudit(docData);
+
+        sqsAuditClient.flush();
+
+        verify(producerTemplate, times(1)).sendBodyAndHeaders(eq(auditQueue), jsonCaptor.capture(), any());
+        assertThat((String) jsonCaptor.getValue()).contains(EventType.DOCUMENT_DELETED.toString());
+    }
+
+    @Test
+    public void shouldSendBatchIndividuallyWhenRetriesAreExhausted() {
+        when(sqsClient.getQueueUrl(auditQueue)).thenReturn(new GetQueueUrlResult().withQueueUrl(auditQueueUrl));
+        when(sqsClient.sendMessageBatch(eq(auditQueueUrl), anyList())).thenThrow(new AmazonServiceException("unavailable"));
+        AuditClient sqsAuditClient = sqsAuditClient();
+        DocumentData docData = new DocumentData(UUID.randomUUID(), DocumentType.ORIGINAL, "a document");
+        sqsAuditClient.createDocumentAudit(docData);
+        sqsAuditClient.deleteDocumentAudit(docData);
+
+        sqsAuditClient.flush();
+
+        verify(sqsClient, times(3)).sendMessageBatch(eq(auditQueueUrl), anyList());
+        verify(producerTemplate, times(2)).sendBodyAndHeaders(eq(auditQueue), any(), any());
+    }
+
+    private AuditClient sqsAuditClient() {
+        return new AuditClient(producerTemplate, auditQueue, "hocs-docs", "namespace", mapper, requestData, 100, 10, 200,
+                auditQueue, Optional.of(sqsClient), 3, 1, new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,168 @@
+package uk.gov.digital.ho.hocs.document.client.auditclient;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.digital.ho.hocs.document.client.auditclient.dto.CreateAuditRequest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AuditEventBufferTest {
+
+    private final List<List<AuditEventBuffer.AuditEvent>> batches = new CopyOnWriteArrayList<>();
+    private MeterRegistry meterRegistry;
+
+    @Before
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    public void shouldDropAndCountEventsWhenFull() {
+        AuditEventBuffer buffer = new AuditEventBuffer(2, 10, 200, batch -> batches.add(new ArrayList<>(batch)), meterRegistry);
+
+        assertThat(buffer.offer(event())).isTrue();
+        assertThat(buffer.offer(event())).isTrue();
+        assertThat(buffer.offer(event())).isFalse();
+
+        assertThat(meterRegistry.get("audit.events.dropped").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("audit.buffer.size").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldFlushInBatchesOfBatchSize() {
+        AuditEventBuffer buffer = new AuditEventBuffer(100, 10, 200, batch -> batches.add(new ArrayList<>(batch)), meterRegistry);
+        for (int i = 0; i < 25; i++) {
+            buffer.offer(event());
+        }
+
+        buffer.flush();
+
+        assertThat(batches).extracting(List::size).containsExactly(10, 10, 5);
+    }
+
+    @Test
+    public void shouldPublishPartialBatchAfterFlushInterval() throws InterruptedException {
+        AuditEventBuffer buffer = new AuditEventBuffer(100, 10, 50, batch -> batches.add(new ArrayList<>(batch)), meterRegistry);
+        buffer.start();
+        try {
+            buffer.offer(event());
+            buffer.offer(event());
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (batches.isEmpty() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+        } finally {
+            buffer.stop();
+        }
+
+        assertThat(batches.stream().mapToInt(List::size).sum()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldPublishRemainingEventsOnStop() {
+        AuditEventBuffer buffer = new AuditEventBuffer(100, 10, 60000, batch -> batches.add(new ArrayList<>(batch)), meterRegistry);
+        buffer.offer(event());
+        buffer.offer(event());
+
+        buffer.stop();
+
+        assertThat(batches).extracting(List::size).containsExactly(2);
+    }
+
+    @Test
+    public void shouldLetInFlightPublishFinishOnStop() throws InterruptedException {
+        CountDownLatch publishing = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        AuditEventBuffer buffer = new AuditEventBuffer(100, 10, 10, batch -> {
+            publishing.countDown();
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+                throw new IllegalStateException(e);
+            }
+            batches.add(new ArrayList<>(batch));
+        }, meterRegistry);
+        buffer.start();
+        buffer.offer(event());
+        assertThat(publishing.await(5, TimeUnit.SECONDS)).isTrue();
+        buffer.offer(event());
+
+        buffer.stop();
+
+        assertThat(interrupted).isFalse();
+        assertThat(batches.stream().mapToInt(List::size).sum()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldLeaveFinalDrainToBusyFlusher() throws InterruptedException {
+        CountDownLatch publishing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger active = new AtomicInteger();
+        AtomicBoolean overlapped = new AtomicBoolean();
+        List<String> publishers = new CopyOnWriteArrayList<>();
+        AuditEventBuffer buffer = new AuditEventBuffer(100, 1, 10, 50, batch -> {
+            if (active.incrementAndGet() > 1) {
+                overlapped.set(true);
+            }
+            publishers.add(Thread.currentThread().getName());
+            publishing.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            batches.add(new ArrayList<>(batch));
+            active.decrementAndGet();
+        }, meterRegistry);
+        buffer.start();
+        buffer.offer(event());
+        assertThat(publishing.await(5, TimeUnit.SECONDS)).isTrue();
+        buffer.offer(event());
+        buffer.offer(event());
+
+        buffer.stop();
+        assertThat(batches).isEmpty();
+        release.countDown();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (batches.size() < 3 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(batches).hasSize(3);
+        assertThat(overlapped).isFalse();
+        assertThat(publishers).containsOnly("audit-flusher");
+    }
+
+    @Test
+    public void shouldStopIdleFlusherPromptly() {
+        AuditEventBuffer buffer = new AuditEventBuffer(100, 10, 60000, batch -> batches.add(new ArrayList<>(batch)), meterRegistry);
+        buffer.start();
+        long started = System.nanoTime();
+
+        buffer.stop();
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)).isLessThan(5000);
+        assertThat(batches).isEmpty();
+    }
+
+    private static AuditEventBuffer.AuditEvent event() {
+        CreateAuditRequest request = new CreateAuditRequest("correlationId", UUID.randomUUID(), "hocs-docs", "{}", "namespace",
+                LocalDateTime.now(), EventType.DOCUMENT_CREATED.toString(), "userId");
+        return new AuditEventBuffer.AuditEvent(UUID.randomUUID(), request, Collections.emptyMap());
+    }
+}
@@ -0,0 +1,146 @@
+package uk.gov.digital.ho.hocs.document.client.documentclient;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
+import com.amazonaws.services.sqs.model.GetQueueUrlResult;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.camel.CamelExecutionException;
+import org.apache.camel.ProducerTemplate;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.digital.ho.hocs.document.application.SpringConfiguration;
+import uk.gov.digital.ho.hocs.document.client.documentclient.dto.ProcessDocumentRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static java.util.UUID.randomUUID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DocumentClientTest {
+
+    @Mock
+    ProducerTemplate producerTemplate;
+
+    @Mock
+    AmazonSQS sqsClient;
+
+    @Captor
+    ArgumentCaptor<List<SendMessageBatchRequestEntry>> entriesCaptor;
+
+    private ObjectMapper mapper;
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private String documentQueue = "document-queue";
+    private String queueUrl = "http://localhost:4576/queue/document-queue";
+
+    @Before
+    public void setUp() {
+        mapper = SpringConfiguration.initialiseObjectMapper();
+    }
+
+    @Test
+    public void shouldSendProcessRequestsInBatchesOfTen() {
+        when(sqsClient.getQueueUrl(documentQueue)).thenReturn(new GetQueueUrlResult().withQueueUrl(queueUrl));
+        when(sqsClient.sendMessageBatch(eq(queueUrl), anyList())).thenReturn(new SendMessageBatchResult());
+        DocumentClient documentClient = documentClient(Optional.of(sqsClient));
+
+        documentClient.processDocuments(processRequests(25));
+
+        verify(sqsClient, times(3)).sendMessageBatch(eq(queueUrl), entriesCaptor.capture());
+        assertThat(entriesCaptor.getAllValues()).extracting(List::size).containsExactly(10, 10, 5);
+        verify(sqsClient, times(1)).getQueueUrl(documentQueue);
+        verifyZeroInteractions(producerTemplate);
+    }
+
+    @Test
+    public void shouldResendFailedBatchEntriesIndividually() {
+        when(sqsClient.getQueueUrl(documentQueue)).thenReturn(new GetQueueUrlResult().withQueueUrl(queueUrl));
+        when(sqsClient.sendMessageBatch(eq(queueUrl), anyList()))
+                .thenReturn(new SendMessageBatchResult().withFailed(new BatchResultErrorEntry().withId("1").withMessage("throttled")));
+        DocumentClient documentClient = documentClient(Optional.of(sqsClient));
+
+        documentClient.processDocuments(processRequests(2));
+
+        verify(producerTemplate, times(1)).sendBody(eq(documentQueue), any(String.class));
+    }
+
+    @Test
+    public void shouldRetryBatchAndCarryOnWithLaterBatches() {
+        when(sqsClient.getQueueUrl(documentQueue)).thenReturn(new GetQueueUrlResult().withQueueUrl(queueUrl));
+        when(sqsClient.sendMessageBatch(eq(queueUrl), anyList()))
+                .thenThrow(new AmazonServiceException("unavailable"))
+                .thenReturn(new SendMessageBatchResult());
+        DocumentClient documentClient = documentClient(Optional.of(sqsClient));
+
+        documentClient.processDocuments(processRequests(25));
+
+        verify(sqsClient, times(4)).sendMessageBatch(eq(queueUrl), entriesCaptor.capture());
+        assertThat(entriesCaptor.getAllValues()).extracting(List::size).containsExactly(10, 10, 10, 5);
+        verifyZeroInteractions(producerTemplate);
+    }
+
+    @Test
+    public void shouldResendBatchIndividuallyWhenRetriesAreExhausted() {
+        when(sqsClient.getQueueUrl(documentQueue)).thenReturn(new GetQueueUrlResult().withQueueUrl(queueUrl));
+        when(sqsClient.sendMessageBatch(eq(queueUrl), anyList()))
+                .thenThrow(new AmazonServiceException("unavailable"))
+                .thenThrow(new AmazonServiceException("unavailable"))
+                .thenThrow(new AmazonServiceException("unavailable"))
+                .thenReturn(new SendMessageBatchResult());
+        DocumentClient documentClient = documentClient(Optional.of(sqsClient));
+
+        documentClient.processDocuments(processRequests(15));
+
+        verify(sqsClient, times(4)).sendMessageBatch(eq(queueUrl), anyList());
+        verify(producerTemplate, times(10)).sendBody(eq(documentQueue), any(String.class));
+        assertThat(meterRegistry.get("documents.dispatch.failed").counter().count()).isZero();
+    }
+
+    @Test
+    public void shouldCountDocumentsThatCannotBeQueued() {
+        doThrow(new CamelExecutionException("unavailable", null)).when(producerTemplate).sendBody(eq(documentQueue), any(String.class));
+        DocumentClient documentClient = documentClient(Optional.empty());
+
+        documentClient.processDocuments(processRequests(2));
+
+        verify(producerTemplate, times(6)).sendBody(eq(documentQueue), any(String.class));
+        assertThat(meterRegistry.get("documents.dispatch.failed").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldSendProcessRequestsIndividuallyWithoutSqs() {
+        DocumentClient documentClient = documentClient(Optional.empty());
+
+        documentClient.processDocuments(processRequests(3));
+
+        verify(producerTemplate, times(3)).sendBody(eq(documentQueue), any(String.class));
+        verifyZeroInteractions(sqsClient);
+    }
+
+    private DocumentClient documentClient(Optional<AmazonSQS> sqsClient) {
+        return new DocumentClient(producerTemplate, documentQueue, documentQueue, mapper, sqsClient, 3, 1, meterRegistry);
+    }
+
+    private static List<ProcessDocumentRequest> processRequests(int count) {
+        List<ProcessDocumentRequest> requests = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            requests.add(new ProcessDocumentRequest(randomUUID(), "fileLink" + i));
+        }
+        return requests;
+    }
+}
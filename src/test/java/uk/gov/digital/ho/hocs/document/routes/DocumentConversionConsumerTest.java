@@ -1,20 +1,31 @@
 package uk.gov.digital.ho.hocs.document.routes;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.camel.CamelContext;
 import org.apache.camel.Exchange;
 import org.apache.camel.builder.RouteBuilder;
 import org.apache.camel.component.mock.MockEndpoint;
+import org.apache.camel.converter.stream.CachedOutputStream;
+import org.apache.camel.util.IOHelper;
 import org.apache.camel.test.junit4.CamelTestSupport;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.internal.verification.NoMoreInteractions;
 import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.digital.ho.hocs.document.DocumentConversionResultService;
+import uk.gov.digital.ho.hocs.document.application.LogEvent;
 import uk.gov.digital.ho.hocs.document.aws.S3DocumentService;
 import uk.gov.digital.ho.hocs.document.dto.camel.DocumentConversionRequest;
 import uk.gov.digital.ho.hocs.document.dto.camel.S3Document;
+import uk.gov.digital.ho.hocs.document.dto.camel.UploadDocument;
+import uk.gov.digital.ho.hocs.document.exception.ApplicationExceptions;
 import uk.gov.digital.ho.hocs.document.model.DocumentStatus;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
@@ -31,6 +42,9 @@ public class DocumentConversionConsumerTest extends CamelTestSupport {
     @Mock
     S3DocumentService s3BucketService;
 
+    @Mock
+    DocumentConversionResultService documentConversionResultService;
+
     private final String endpoint = "direct:convertdocument";
     private final String dlq = "mock:cs-dev-document-sqs-dlq";
     private final String toEndpoint = "mock:updaterecord";
@@ -40,14 +54,28 @@ public class DocumentConversionConsumerTest extends CamelTestSupport {
 
     @Override
     protected RouteBuilder createRouteBuilder() throws Exception {
-      return new DocumentConversionConsumer(s3BucketService, conversionService, dlq, 0,0,0,toEndpoint);
+      return new DocumentConversionConsumer(s3BucketService, documentConversionResultService, conversionService, dlq, 0,0,0,toEndpoint, 1, 10, 1, 10, new SimpleMeterRegistry());
+    }
+
+    @Override
+    protected CamelContext createCamelContext() throws Exception {
+        // as camel.springboot.streamCachingEnabled does for the service
+        CamelContext context = super.createCamelContext();
+        context.setStreamCaching(true);
+        return context;
     }
 
 
+    @Before
+    public void enableLookup() {
+        // the lookup off path only reads metadata, covered by its own test
+        lenient().when(documentConversionResultService.isEnabled()).thenReturn(true);
+    }
+
     @Test
     public void shouldAddDocumentToDocumentServiceQueueOnSuccess() throws Exception {
         MockEndpoint mockConversionService = mockConversionService();
-        when(s3BucketService.getFileFromTrustedS3(any())).thenReturn(getTestDocument());
+        when(s3BucketService.getFileDigestFromTrustedS3(any(), any())).thenReturn(getTestDocument());
         when(s3BucketService.uploadFile(any())).thenReturn(getTestDocument());
         MockEndpoint mockEndpoint = getMockEndpoint(toEndpoint);
         mockEndpoint.expectedMessageCount(1);
@@ -59,7 +87,7 @@ public class DocumentConversionConsumerTest extends CamelTestSupport {
     @Test
     public void shouldSetStatusToConvertedOnSuccess() throws Exception {
         MockEndpoint mockConversionService = mockConversionService();
-        when(s3BucketService.getFileFromTrustedS3(any())).thenReturn(getTestDocument());
+        when(s3BucketService.getFileDigestFromTrustedS3(any(), any())).thenReturn(getTestDocument());
         when(s3BucketService.uploadFile(any())).thenReturn(getTestDocument());
         MockEndpoint mockEndpoint = getMockEndpoint(toEndpoint);
         mockEndpoint.expectedMessageCount(1);
@@ -70,10 +98,30 @@ public class DocumentConversionConsumerTest extends CamelTestSupport {
         verify(s3BucketService).uploadFile(any());
     }
 
+    @Test
+    public void shouldUploadConvertedDocumentAsStreamWithLength() throws Exception {
+        MockEndpoint mockConversionService = mockConversionService();
+        when(s3BucketService.getFileDigestFromTrustedS3(any(), any())).thenReturn(getTestDocument());
+        byte[][] uploaded = new byte[1][];
+        long[] uploadedLength = new long[1];
+        when(s3BucketService.uploadFile(any())).thenAnswer(invocation -> {
+            UploadDocument document = invocation.getArgument(0);
+            uploaded[0] = readAll(document.getData());
+            uploadedLength[0] = document.getContentLength();
+            return getTestDocument();
+        });
+
+        template.sendBody(endpoint,request);
+
+        mockConversionService.assertIsSatisfied();
+        assertArrayEquals(getPDFDocument(), uploaded[0]);
+        assertEquals(getPDFDocument().length, uploadedLength[0]);
+    }
+
     @Test
     public void shouldSetStatusToFailedOnConversionError() throws Exception {
         MockEndpoint mockConversionService = mockFailedConversionService();
-        when(s3BucketService.getFileFromTrustedS3(any())).thenReturn(getTestDocument());
+        when(s3BucketService.getFileDigestFromTrustedS3(any(), any())).thenReturn(getTestDocument());
         MockEndpoint mockEndpoint = getMockEndpoint(toEndpoint);
         mockEndpoint.expectedMessageCount(1);
         mockEndpoint.expectedPropertyReceived("status", DocumentStatus.FAILED_CONVERSION.toString());
@@ -87,7 +135,7 @@ public class DocumentConversionConsumerTest extends CamelTestSupport {
     public void shouldAddMessageToDLQAndNotCallConversionServiceOnS3Error() throws Exception {
 
         MockEndpoint mockConversionService = mockConversionService();
-        when(s3BucketService.getFileFromTrustedS3(any())).thenThrow(new IOException());
+        when(s3BucketService.getFileDigestFromTrustedS3(any(), any())).thenThrow(new IOException());
         getMockEndpoint(dlq).expectedMessageCount(1);
         template.sendBody(endpoint,request);
         getMockEndpoint(dlq).assertIsSatisfied();
@@ -96,7 +144,7 @@ public class DocumentConversionConsumerTest extends CamelTestSupport {
 
     @Test
     public void shouldAddMessagetoDLQWhenConversionServiceFails() throws Exception {
-        when(s3BucketService.getFileFromTrustedS3(any())).thenReturn(getTestDocument());
+        when(s3BucketService.getFileDigestFromTrustedS3(any(), any())).thenReturn(getTestDocument());
         MockEndpoint mockConversionService = mockFailedConversionService();
         getMockEndpoint(dlq).expectedMessageCount(1);
         template.sendBody(endpoint,request);
@@ -106,19 +154,96 @@ public class DocumentConversionConsumerTest extends CamelTestSupport {
 
     @Test
     public void shouldAddPropertiesToExchange() throws Exception {
-        when(s3BucketService.getFileFromTrustedS3(any())).thenReturn(getTestDocument());
+        when(s3BucketService.getFileDigestFromTrustedS3(any(), any())).thenReturn(getTestDocument());
         MockEndpoint mockEndpoint = getMockEndpoint(toEndpoint);
         mockEndpoint.expectedPropertyReceived("externalReferenceUUID", "externalReferenceUUID");
         template.sendBody(endpoint,request);
         mockEndpoint.assertIsSatisfied();
     }
 
+    @Test
+    public void shouldRecordConversionResultOnSuccess() throws Exception {
+        MockEndpoint mockConversionService = mockConversionService();
+        when(s3BucketService.getFileDigestFromTrustedS3(any(), any())).thenReturn(getTestDocument("contentHash"));
+        when(s3BucketService.uploadFile(any())).thenReturn(getTestDocument());
+        getMockEndpoint(toEndpoint).expectedMessageCount(1);
+
+        template.sendBody(endpoint,request);
+
+        getMockEndpoint(toEndpoint).assertIsSatisfied();
+        mockConversionService.assertIsSatisfied();
+        verify(documentConversionResultService).recordConversion("contentHash", "someexternalReferenceUUID/UUID.pdf");
+    }
+
+    @Test
+    public void shouldReusePreviousConversionAndNotCallConversionService() throws Exception {
+        when(s3BucketService.getFileDigestFromTrustedS3(any(), any())).thenReturn(getTestDocument("contentHash"));
+        when(documentConversionResultService.getPdfLink("contentHash")).thenReturn("otherReference/UUID.pdf");
+        when(s3BucketService.copyConvertedDocument("otherReference/UUID.pdf", "externalReferenceUUID", "sample.docx"))
+                .thenReturn(new S3Document("externalReferenceUUID/copy.pdf", "sample.docx", null, "pdf", "application/pdf", null));
+        MockEndpoint mockConversionService = getMockEndpoint("mock:conversion-service?throwExceptionOnFailure=false&useSystemProperties=true");
+        mockConversionService.expectedMessageCount(0);
+        MockEndpoint mockEndpoint = getMockEndpoint(toEndpoint);
+        mockEndpoint.expectedMessageCount(1);
+        mockEndpoint.expectedPropertyReceived("status", DocumentStatus.UPLOADED.toString());
+        mockEndpoint.expectedPropertyReceived("pdfFilename", "externalReferenceUUID/copy.pdf");
+
+        template.sendBody(endpoint,request);
+
+        mockEndpoint.assertIsSatisfied();
+        mockConversionService.assertIsSatisfied();
+        verify(s3BucketService, never()).uploadFile(any());
+    }
+
+    @Test
+    public void shouldForgetPreviousConversionWhenConvertedFileIsMissing() throws Exception {
+        when(s3BucketService.getFileDigestFromTrustedS3(any(), any())).thenReturn(getTestDocument("contentHash"));
+        when(documentConversionResultService.getPdfLink("contentHash")).thenReturn("otherReference/UUID.pdf");
+        when(s3BucketService.copyConvertedDocument(any(), any(), any()))
+                .thenThrow(new ApplicationExceptions.S3Exception("File not found in S3 bucket", LogEvent.S3_FILE_NOT_FOUND, null));
+        getMockEndpoint(dlq).expectedMessageCount(1);
+
+        template.sendBody(endpoint,request);
+
+        getMockEndpoint(dlq).assertIsSatisfied();
+        verify(documentConversionResultService, atLeastOnce()).forgetConversion("contentHash");
+    }
+
+    @Test
+    public void shouldReadOnlyMetadataWhenConversionLookupIsOff() throws Exception {
+        when(documentConversionResultService.isEnabled()).thenReturn(false);
+        MockEndpoint mockConversionService = mockConversionService();
+        when(s3BucketService.getFileDetailsFromTrustedS3(any())).thenReturn(getTestDocument());
+        when(s3BucketService.uploadFile(any())).thenReturn(getTestDocument());
+        template.sendBody(endpoint, request);
+        mockConversionService.assertIsSatisfied();
+        verify(s3BucketService, never()).getFileDigestFromTrustedS3(any(), any());
+    }
+
+    @Test
+    public void shouldEvictScratchCopyOfManagedDocumentWithoutConverting() throws Exception {
+        MockEndpoint mockEndpoint = getMockEndpoint(toEndpoint);
+        mockEndpoint.expectedMessageCount(1);
+        template.send(endpoint, exchange -> {
+            exchange.setProperty("documentType", "TEMPLATE");
+            exchange.getIn().setBody(request);
+        });
+        mockEndpoint.assertIsSatisfied();
+        verify(s3BucketService).evictScratchCopy(request.getDocumentUUID());
+        verify(s3BucketService, never()).getFileDigestFromTrustedS3(any(), any());
+        verify(s3BucketService, never()).getFileDetailsFromTrustedS3(any());
+    }
+
     private MockEndpoint mockConversionService() {
         MockEndpoint mock = getMockEndpoint("mock:conversion-service?throwExceptionOnFailure=false&useSystemProperties=true");
         mock.expectedMessageCount(1);
         mock.whenAnyExchangeReceived(exchange -> {
             exchange.getIn().setHeader(Exchange.HTTP_RESPONSE_CODE, 200);
-            exchange.getIn().setBody(getPDFDocument());
+            // http4 copies the response into a CachedOutputStream and returns its wrapped input stream, which stream
+            // caching then turns into a StreamCache before the route's next processor
+            CachedOutputStream response = new CachedOutputStream(exchange);
+            response.write(getPDFDocument());
+            exchange.getIn().setBody(response.getWrappedInputStream());
         });
         return mock;
     }
@@ -134,8 +259,18 @@ public class DocumentConversionConsumerTest extends CamelTestSupport {
     }
 
     private S3Document getTestDocument() throws URISyntaxException, IOException {
+        return getTestDocument(null);
+    }
+
+    private S3Document getTestDocument(String contentHash) throws URISyntaxException, IOException {
         byte[] data = Files.readAllBytes(Paths.get(this.getClass().getClassLoader().getResource("testdata/sample.docx").toURI()));
-        return new S3Document("someexternalReferenceUUID/UUID.pdf", "sample.docx", data, "docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document");
+        return new S3Document("someexternalReferenceUUID/UUID.pdf", "sample.docx", data, "docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document", contentHash);
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        IOHelper.copy(in, out);
+        return out.toByteArray();
     }
 
     private byte[] getPDFDocument() throws URISyntaxException, IOException {
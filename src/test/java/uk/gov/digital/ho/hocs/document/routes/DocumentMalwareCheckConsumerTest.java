@@ -1,16 +1,19 @@
 package uk.gov.digital.ho.hocs.document.routes;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.apache.camel.Exchange;
 import org.apache.camel.ExchangeProperties;
 import org.apache.camel.Properties;
 import org.apache.camel.builder.RouteBuilder;
 import org.apache.camel.component.mock.MockEndpoint;
 import org.apache.camel.test.junit4.CamelTestSupport;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import uk.gov.digital.ho.hocs.document.DocumentDataService;
+import uk.gov.digital.ho.hocs.document.MalwareScanResultService;
 import uk.gov.digital.ho.hocs.document.aws.S3DocumentService;
 import uk.gov.digital.ho.hocs.document.dto.camel.DocumentConversionRequest;
 import uk.gov.digital.ho.hocs.document.dto.camel.DocumentCopyRequest;
@@ -32,32 +35,43 @@ public class DocumentMalwareCheckConsumerTest extends CamelTestSupport {
     @Mock
     S3DocumentService s3BucketService;
 
+    @Mock
+    MalwareScanResultService malwareScanResultService;
+
     private final String endpoint = "direct:malwarecheck";
     private final String dlq = "mock:cs-dev-document-sqs-dlq";
     private final String toEndpoint = "mock:document-conversion";
     private final String documentService = "mock:updaterecord";
     private final String calmAVService = "mock:malware-service";
 
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     private DocumentMalwareRequest request = new DocumentMalwareRequest(UUID.randomUUID(),"someuuid", UUID.randomUUID());
 
 
     @Override
     protected RouteBuilder createRouteBuilder() {
-      return new MalwareCheckConsumer(s3BucketService, calmAVService, dlq, 0,0,0,toEndpoint, documentService);
+      return new MalwareCheckConsumer(s3BucketService, malwareScanResultService, calmAVService, dlq, 0,0,0,toEndpoint, documentService, 1, 10, 1, 10, 1, 10, meterRegistry);
+
+    }
 
+    @Before
+    public void enableLookup() {
+        // the lookup off path only reads metadata, covered by its own test
+        lenient().when(malwareScanResultService.isEnabled()).thenReturn(true);
     }
 
     @Test
     public void shouldCallS3GetDocument() throws Exception {
-        when(s3BucketService.getFileFromUntrustedS3(any())).thenReturn(getTestDocument());
+        when(s3BucketService.getFileDigestFromUntrustedS3(any(), any())).thenReturn(getTestDocument());
         template.sendBody(endpoint, request);
-        verify(s3BucketService, times(1)).getFileFromUntrustedS3("someuuid");
+        verify(s3BucketService, times(1)).getFileDigestFromUntrustedS3("someuuid", request.getDocumentUUID());
     }
 
     @Test
     public void shouldCallS3CopyDocumentAfterSuccessfulMalwareScan() throws Exception {
         S3Document document = getTestDocument();
-        when(s3BucketService.getFileFromUntrustedS3(any())).thenReturn(document);
+        when(s3BucketService.getFileDigestFromUntrustedS3(any(), any())).thenReturn(document);
         when(s3BucketService.copyToTrustedBucket(any())).thenReturn(getCopiedS3Document());
         MockEndpoint mockMalwareService = mockMalwareService();
         template.sendBody(endpoint, request);
@@ -68,7 +82,7 @@ public class DocumentMalwareCheckConsumerTest extends CamelTestSupport {
     @Test
     public void shouldAddPropertiesToExchange() throws Exception {
         S3Document document = getTestDocument();
-        when(s3BucketService.getFileFromUntrustedS3(any())).thenReturn(document);
+        when(s3BucketService.getFileDigestFromUntrustedS3(any(), any())).thenReturn(document);
         MockEndpoint mockEndpoint = getMockEndpoint(toEndpoint);
         mockEndpoint.expectedPropertyReceived("externalReferenceUUID", "someExternalReferenceUUID");
         mockEndpoint.expectedPropertyReceived("fileType", "docx");
@@ -83,7 +97,7 @@ public class DocumentMalwareCheckConsumerTest extends CamelTestSupport {
     @Test
     public void shouldAddDocumentToConversionQueueOnSuccess() throws Exception {
         S3Document document = getTestDocument();
-        when(s3BucketService.getFileFromUntrustedS3(any())).thenReturn(document);
+        when(s3BucketService.getFileDigestFromUntrustedS3(any(), any())).thenReturn(document);
         when(s3BucketService.copyToTrustedBucket(any())).thenReturn(getCopiedS3Document());
         MockEndpoint mockMalwareService = mockMalwareService();
         getMockEndpoint(dlq).expectedMessageCount(0);
@@ -99,7 +113,7 @@ public class DocumentMalwareCheckConsumerTest extends CamelTestSupport {
 
     @Test
     public void shouldAddMessagetoDLQAndNotCallMalwareServiceOnGetS3FileError() throws Exception {
-        when(s3BucketService.getFileFromUntrustedS3(any())).thenThrow(new IOException());
+        when(s3BucketService.getFileDigestFromUntrustedS3(any(), any())).thenThrow(new IOException());
         MockEndpoint mockMalwareService = mockMalwareService();
         getMockEndpoint(dlq).expectedMessageCount(1);
         template.sendBody(endpoint,request);
@@ -110,7 +124,7 @@ public class DocumentMalwareCheckConsumerTest extends CamelTestSupport {
     @Test
     public void shouldAddMessagetoDLQAndNotCallMalwareServiceOnCopyS3FileError() throws Exception {
         S3Document document = getTestDocument();
-        when(s3BucketService.getFileFromUntrustedS3(any())).thenReturn(document);
+        when(s3BucketService.getFileDigestFromUntrustedS3(any(), any())).thenReturn(document);
         when(s3BucketService.copyToTrustedBucket(any())).thenThrow(new IOException());
         MockEndpoint mockMalwareService = mockMalwareService();
         getMockEndpoint(dlq).expectedMessageCount(1);
@@ -122,7 +136,7 @@ public class DocumentMalwareCheckConsumerTest extends CamelTestSupport {
     @Test
     public void shouldAddMessagetoDLQWhenMalwareServiceFails() throws Exception {
         S3Document document = getTestDocument();
-        when(s3BucketService.getFileFromUntrustedS3(any())).thenReturn(document);
+        when(s3BucketService.getFileDigestFromUntrustedS3(any(), any())).thenReturn(document);
 
         MockEndpoint mockMalwareService = mockErrorMalwareService();
         getMockEndpoint(toEndpoint).expectedMessageCount(0);
@@ -140,7 +154,7 @@ public class DocumentMalwareCheckConsumerTest extends CamelTestSupport {
     @Test
     public void shouldAddToUpdateRecordQueueWhenMalwareCheckFails() throws Exception {
         S3Document document = getTestDocument();
-        when(s3BucketService.getFileFromUntrustedS3(any())).thenReturn(document);
+        when(s3BucketService.getFileDigestFromUntrustedS3(any(), any())).thenReturn(document);
 
         MockEndpoint mockMalwareService = mockCheckFailedMalwareService();
         getMockEndpoint(documentService).expectedMessageCount(1);
@@ -152,6 +166,56 @@ public class DocumentMalwareCheckConsumerTest extends CamelTestSupport {
     }
 
 
+    @Test
+    public void shouldRecordCleanContentHashAfterSuccessfulMalwareScan() throws Exception {
+        S3Document document = getTestDocument();
+        when(s3BucketService.getFileDigestFromUntrustedS3(any(), any())).thenReturn(document);
+        when(s3BucketService.copyToTrustedBucket(any())).thenReturn(getCopiedS3Document());
+        MockEndpoint mockMalwareService = mockMalwareService();
+
+        template.sendBody(endpoint, request);
+
+        mockMalwareService.assertIsSatisfied();
+        verify(malwareScanResultService, times(1)).recordClean("contentHash");
+    }
+
+    @Test
+    public void shouldSkipMalwareServiceForKnownCleanContent() throws Exception {
+        S3Document document = getTestDocument();
+        when(s3BucketService.getFileDigestFromUntrustedS3(any(), any())).thenReturn(document);
+        when(s3BucketService.copyToTrustedBucket(any())).thenReturn(getCopiedS3Document());
+        when(malwareScanResultService.isKnownClean("contentHash")).thenReturn(true);
+        MockEndpoint mockMalwareService = getMockEndpoint("mock:malware-service?throwExceptionOnFailure=false&useSystemProperties=true");
+        mockMalwareService.expectedMessageCount(0);
+        getMockEndpoint(toEndpoint).expectedMessageCount(1);
+
+        template.sendBody(endpoint, request);
+
+        mockMalwareService.assertIsSatisfied();
+        getMockEndpoint(toEndpoint).assertIsSatisfied();
+        verify(s3BucketService, times(1)).copyToTrustedBucket(any(DocumentCopyRequest.class));
+        verify(malwareScanResultService, never()).recordClean(any());
+    }
+
+    @Test
+    public void shouldExposeMalwareCheckQueueDepth() {
+        assertNotNull(meterRegistry.find("executor.queued").tag("name", "malware-check").gauge());
+        assertNotNull(meterRegistry.find("executor.queued").tag("name", "malware-scan").gauge());
+        assertNotNull(meterRegistry.find("executor.queued").tag("name", "trusted-copy").gauge());
+    }
+
+    @Test
+    public void shouldReadOnlyMetadataWhenScanResultLookupIsOff() throws Exception {
+        when(malwareScanResultService.isEnabled()).thenReturn(false);
+        when(s3BucketService.getFileDetailsFromUntrustedS3(any())).thenReturn(getTestDocument());
+        when(s3BucketService.copyToTrustedBucket(any())).thenReturn(getCopiedS3Document());
+        MockEndpoint mockMalwareService = mockMalwareService();
+        template.sendBody(endpoint, request);
+        mockMalwareService.assertIsSatisfied();
+        verify(s3BucketService).getFileDetailsFromUntrustedS3("someuuid");
+        verify(s3BucketService, never()).getFileDigestFromUntrustedS3(any(), any());
+    }
+
     private MockEndpoint mockMalwareService() throws IOException, URISyntaxException {
         MockEndpoint mock = getMockEndpoint("mock:malware-service?throwExceptionOnFailure=false&useSystemProperties=true");
         mock.expectedMessageCount(1);
@@ -183,13 +247,13 @@ public class DocumentMalwareCheckConsumerTest extends CamelTestSupport {
     }
 
     private S3Document getCopiedS3Document() {
-        return new S3Document("externalReferenceUUID/UUID", "sample.docx",null, "docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document");
+        return new S3Document("externalReferenceUUID/UUID", "sample.docx",null, "docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document", null);
     }
 
 
     private S3Document getTestDocument() throws URISyntaxException, IOException {
         byte[] data = Files.readAllBytes(Paths.get(this.getClass().getClassLoader().getResource("testdata/sample.docx").toURI()));
-        return new S3Document("UUID", "sample.docx", data, "docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document");
+        return new S3Document("UUID", "sample.docx", data, "docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document", "contentHash");
     }
 
 }
\ No newline at end of file
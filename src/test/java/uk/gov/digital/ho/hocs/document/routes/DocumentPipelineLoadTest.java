@@ -0,0 +1,447 @@
+package uk.gov.digital.ho.hocs.document.routes;
+
+import com.adobe.testing.s3mock.S3MockApplication;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.common.FileSource;
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.extension.ResponseDefinitionTransformer;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+import org.apache.camel.CamelContext;
+import org.apache.camel.Exchange;
+import org.apache.camel.ProducerTemplate;
+import org.apache.camel.management.event.ExchangeSendingEvent;
+import org.apache.camel.management.event.ExchangeSentEvent;
+import org.apache.camel.support.EventNotifierSupport;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.rules.SpringClassRule;
+import org.springframework.test.context.junit4.rules.SpringMethodRule;
+import uk.gov.digital.ho.hocs.document.dto.camel.ProcessDocumentRequest;
+import uk.gov.digital.ho.hocs.document.dto.camel.UpdateDocumentRequest;
+import uk.gov.digital.ho.hocs.document.model.DocumentData;
+import uk.gov.digital.ho.hocs.document.model.DocumentStatus;
+import uk.gov.digital.ho.hocs.document.model.DocumentType;
+import uk.gov.digital.ho.hocs.document.repository.DocumentRepository;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EventObject;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Throughput suite for the whole document pipeline: ProcessDocumentRequests go onto a seda docs.queue and run through
+ * malware check, trusted copy, conversion and status update against S3Mock and WireMock stand-ins for Clam AV and
+ * hocs-converter. Each scenario reports documents/sec, p50/p99 latency from enqueue to final status, the heap
+ * high-water mark and the dead letter count.
+ *
+ * Not part of the test task; run with ./gradlew loadTest. Scale with -Dload.documents (default 1000) and
+ * -Dload.consumers, or replace the scenario table with a single one using -Dload.scanLatencyMillis,
+ * -Dload.convertLatencyMillis, -Dload.scanFailureRate and -Dload.convertFailureRate.
+ */
+@RunWith(Parameterized.class)
+@ActiveProfiles("test")
+@SpringBootTest(properties = {
+        "docs.queue=seda://load-test-documents?concurrentConsumers=${load.consumers:${docs.queue.concurrentConsumers}}",
+        // nothing consumes these in the test profile, so keep them from piling up on the heap being measured
+        "docs.queue.dlq=log:load-test-dlq?level=OFF",
+        "audit.sns=log:load-test-audit?level=OFF"
+})
+public class DocumentPipelineLoadTest {
+
+    private static final Logger log = LoggerFactory.getLogger(DocumentPipelineLoadTest.class);
+
+    private static final String SENT_AT = "loadTestSentAt";
+    private static final String DOCUMENT_UUID = "loadTestDocumentUUID";
+    private static final int LOCAL_S3_PORT = 9001;
+    private static final int STAND_IN_PORT = 9002;
+    private static final int DOCUMENTS = Integer.getInteger("load.documents", 1000);
+    private static final long TIMEOUT_SECONDS = Long.getLong("load.timeoutSeconds", 600);
+
+    @ClassRule
+    public static final SpringClassRule SPRING_CLASS_RULE = new SpringClassRule();
+
+    @Rule
+    public final SpringMethodRule springMethodRule = new SpringMethodRule();
+
+    private static final FailureInjector failureInjector = new FailureInjector();
+    private static final WireMockServer standIns = new WireMockServer(wireMockConfig()
+            .port(STAND_IN_PORT)
+            .containerThreads(50)
+            .extensions(failureInjector));
+    private static S3MockApplication s3Mock;
+
+    @Autowired
+    private ProducerTemplate template;
+
+    @Autowired
+    private CamelContext camelContext;
+
+    @Autowired
+    private DocumentRepository documentRepository;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Autowired
+    private PipelineRecorder recorder;
+
+    @Autowired
+    @Qualifier("UnTrusted")
+    private AmazonS3 untrustedClient;
+
+    @Value("${docs.queue}") private String documentQueue;
+    @Value("${docs.queue.dlq}") private String dlq;
+    @Value("${documentServiceQueueName}") private String documentServiceQueueName;
+    @Value("${docs.untrustedS3bucketName}") private String untrustedBucketName;
+    @Value("${docs.trustedS3bucketName}") private String trustedBucketName;
+
+    private final Scenario scenario;
+
+    public DocumentPipelineLoadTest(Scenario scenario) {
+        this.scenario = scenario;
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Scenario> scenarios() {
+        if (System.getProperty("load.scanLatencyMillis") != null) {
+            return Arrays.asList(new Scenario("custom",
+                    Integer.getInteger("load.scanLatencyMillis", 0),
+                    Integer.getInteger("load.convertLatencyMillis", 0),
+                    Double.parseDouble(System.getProperty("load.scanFailureRate", "0")),
+                    Double.parseDouble(System.getProperty("load.convertFailureRate", "0"))));
+        }
+        return Arrays.asList(
+                new Scenario("fast stand-ins", 0, 0, 0, 0),
+                new Scenario("slow stand-ins", 50, 250, 0, 0),
+                new Scenario("flaky stand-ins", 20, 100, 0.05, 0.05));
+    }
+
+    @BeforeClass
+    public static void startStandIns() {
+        standIns.start();
+    }
+
+    @AfterClass
+    public static void stopStandIns() {
+        standIns.stop();
+        if (s3Mock != null) {
+            s3Mock.stop();
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        if (s3Mock == null) {
+            startMockS3Service();
+        }
+        byte[] pdf = getTestData("testdata/sample.pdf");
+        standIns.resetAll();
+        standIns.stubFor(post(urlEqualTo("/scan"))
+                .willReturn(aResponse().withStatus(200).withHeader("Content-Type", "application/json")
+                        .withBody("Everything ok : true").withFixedDelay(scenario.scanLatencyMillis)));
+        standIns.stubFor(post(urlEqualTo("/convert"))
+                .willReturn(aResponse().withStatus(200).withHeader("Content-Type", "application/pdf")
+                        .withBody(pdf).withFixedDelay(scenario.convertLatencyMillis)));
+        failureInjector.setFailureRate("/scan", scenario.scanFailureRate);
+        failureInjector.setFailureRate("/convert", scenario.convertFailureRate);
+    }
+
+    @Test
+    public void shouldProcessDocumentsThroughPipeline() throws Exception {
+        List<ProcessDocumentRequest> requests = createDocuments();
+        recorder.begin(DOCUMENTS, camelContext.getEndpoint(documentServiceQueueName).getEndpointUri(),
+                camelContext.getEndpoint(dlq).getEndpointUri());
+        resetHeapPeak();
+
+        long start = System.nanoTime();
+        for (ProcessDocumentRequest request : requests) {
+            String body = mapper.writeValueAsString(request);
+            template.send(documentQueue, exchange -> {
+                exchange.getIn().setBody(body);
+                exchange.setProperty(DOCUMENT_UUID, request.getUuid());
+                exchange.setProperty(SENT_AT, System.nanoTime());
+            });
+        }
+        boolean finished = recorder.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        long elapsedNanos = recorder.lastFinishedNanos() - start;
+
+        long[] latencies = recorder.latenciesMillis();
+        log.info("Load test [{}]: {} of {} documents in {} ms, {} documents/sec, latency p50 {} ms p99 {} ms, heap high-water {} MB, dead lettered {}, outcomes {}",
+                scenario,
+                latencies.length,
+                DOCUMENTS,
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                String.format("%.1f", latencies.length / (elapsedNanos / 1e9)),
+                percentile(latencies, 50),
+                percentile(latencies, 99),
+                heapPeakBytes() / (1024 * 1024),
+                recorder.deadLettered(),
+                recorder.outcomes());
+
+        assertThat(finished).as("all documents reached a final status within %d seconds", TIMEOUT_SECONDS).isTrue();
+        if (scenario.scanFailureRate == 0 && scenario.convertFailureRate == 0) {
+            assertThat(recorder.outcomes()).containsOnlyKeys(DocumentStatus.UPLOADED);
+        }
+    }
+
+    private List<ProcessDocumentRequest> createDocuments() throws Exception {
+        byte[] document = getTestData("testdata/sample.docx");
+        UUID externalReferenceUUID = UUID.randomUUID();
+        List<DocumentData> documents = new ArrayList<>(DOCUMENTS);
+        List<ProcessDocumentRequest> requests = new ArrayList<>(DOCUMENTS);
+        for (int i = 0; i < DOCUMENTS; i++) {
+            DocumentData documentData = new DocumentData(externalReferenceUUID, DocumentType.ORIGINAL, String.format("load test %d", i));
+            String fileLink = String.format("%s/%s.docx", externalReferenceUUID, documentData.getUuid());
+            uploadUntrustedFile(fileLink, uniqueContent(document));
+            documents.add(documentData);
+            requests.add(new ProcessDocumentRequest(documentData.getUuid().toString(), fileLink));
+        }
+        // saved directly so DocumentClient does not queue the documents before the clock starts
+        documentRepository.saveAll(documents);
+        return requests;
+    }
+
+    /**
+     * Gives every document its own content hash, otherwise the known clean and known conversion lookups would skip
+     * the stand-ins after the first document.
+     */
+    private static byte[] uniqueContent(byte[] document) {
+        byte[] content = Arrays.copyOf(document, document.length + 16);
+        byte[] suffix = new byte[16];
+        ThreadLocalRandom.current().nextBytes(suffix);
+        System.arraycopy(suffix, 0, content, document.length, suffix.length);
+        return content;
+    }
+
+    private void uploadUntrustedFile(String key, byte[] content) {
+        ObjectMetadata metaData = new ObjectMetadata();
+        metaData.setContentType("application/docx");
+        metaData.setContentLength(content.length);
+        metaData.addUserMetadata("originalName", "sample.docx");
+        metaData.addUserMetadata("filename", key);
+        untrustedClient.putObject(new PutObjectRequest(untrustedBucketName, key, new ByteArrayInputStream(content), metaData));
+    }
+
+    private void startMockS3Service() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(S3MockApplication.PROP_HTTP_PORT, LOCAL_S3_PORT);
+        properties.put(S3MockApplication.PROP_SECURE_CONNECTION, false);
+        properties.put(S3MockApplication.PROP_SILENT, true);
+        properties.put(S3MockApplication.PROP_INITIAL_BUCKETS, trustedBucketName + ", " + untrustedBucketName);
+        s3Mock = S3MockApplication.start(properties);
+    }
+
+    private byte[] getTestData(String name) throws Exception {
+        return Files.readAllBytes(Paths.get(this.getClass().getClassLoader().getResource(name).toURI()));
+    }
+
+    private static void resetHeapPeak() {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            pool.resetPeakUsage();
+        }
+    }
+
+    private static long heapPeakBytes() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .mapToLong(pool -> pool.getPeakUsage().getUsed())
+                .sum();
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(index, 0)];
+    }
+
+    @TestConfiguration
+    static class LoadTestConfiguration {
+
+        @Bean
+        public PipelineRecorder pipelineRecorder() {
+            return new PipelineRecorder();
+        }
+    }
+
+    static class Scenario {
+
+        private final String name;
+        private final int scanLatencyMillis;
+        private final int convertLatencyMillis;
+        private final double scanFailureRate;
+        private final double convertFailureRate;
+
+        Scenario(String name, int scanLatencyMillis, int convertLatencyMillis, double scanFailureRate, double convertFailureRate) {
+            this.name = name;
+            this.scanLatencyMillis = scanLatencyMillis;
+            this.convertLatencyMillis = convertLatencyMillis;
+            this.scanFailureRate = scanFailureRate;
+            this.convertFailureRate = convertFailureRate;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: scan %d ms/%.0f%% failing, convert %d ms/%.0f%% failing", name,
+                    scanLatencyMillis, scanFailureRate * 100, convertLatencyMillis, convertFailureRate * 100);
+        }
+    }
+
+    /**
+     * Records when each document first reaches a final state: its status update being sent, or its message being
+     * dead lettered without one. Camel picks it up as an event notifier bean.
+     */
+    static class PipelineRecorder extends EventNotifierSupport {
+
+        private final Map<String, Boolean> finished = new ConcurrentHashMap<>();
+        private final ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        private final Map<DocumentStatus, AtomicInteger> outcomes = new ConcurrentHashMap<>();
+        private final AtomicInteger deadLettered = new AtomicInteger();
+        private final AtomicLong lastFinishedNanos = new AtomicLong();
+        private volatile CountDownLatch remaining = new CountDownLatch(0);
+        private volatile String updateEndpointUri;
+        private volatile String deadLetterEndpointUri;
+
+        void begin(int documents, String updateEndpointUri, String deadLetterEndpointUri) {
+            this.updateEndpointUri = updateEndpointUri;
+            this.deadLetterEndpointUri = deadLetterEndpointUri;
+            finished.clear();
+            latencies.clear();
+            outcomes.clear();
+            deadLettered.set(0);
+            remaining = new CountDownLatch(documents);
+        }
+
+        boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+            return remaining.await(timeout, unit);
+        }
+
+        long lastFinishedNanos() {
+            return lastFinishedNanos.get();
+        }
+
+        long[] latenciesMillis() {
+            return latencies.stream().mapToLong(TimeUnit.NANOSECONDS::toMillis).sorted().toArray();
+        }
+
+        int deadLettered() {
+            return deadLettered.get();
+        }
+
+        Map<DocumentStatus, Integer> outcomes() {
+            Map<DocumentStatus, Integer> counts = new EnumMap<>(DocumentStatus.class);
+            outcomes.forEach((status, count) -> counts.put(status, count.get()));
+            return counts;
+        }
+
+        @Override
+        public boolean isEnabled(EventObject event) {
+            // Camel only raises the sent event when a notifier has taken the matching sending event
+            return event instanceof ExchangeSendingEvent || event instanceof ExchangeSentEvent;
+        }
+
+        @Override
+        public void notify(EventObject event) {
+            if (!(event instanceof ExchangeSentEvent)) {
+                return;
+            }
+            ExchangeSentEvent sent = (ExchangeSentEvent) event;
+            Exchange exchange = sent.getExchange();
+            String endpointUri = sent.getEndpoint().getEndpointUri();
+            if (endpointUri.equals(updateEndpointUri)) {
+                UpdateDocumentRequest update = exchange.getIn().getBody(UpdateDocumentRequest.class);
+                if (update != null) {
+                    outcomes.computeIfAbsent(update.getStatus(), status -> new AtomicInteger()).incrementAndGet();
+                }
+                finish(exchange);
+            } else if (endpointUri.equals(deadLetterEndpointUri)) {
+                deadLettered.incrementAndGet();
+                finish(exchange);
+            }
+        }
+
+        private void finish(Exchange exchange) {
+            String documentUUID = exchange.getProperty(DOCUMENT_UUID, String.class);
+            Long sentAt = exchange.getProperty(SENT_AT, Long.class);
+            if (documentUUID != null && sentAt != null && finished.putIfAbsent(documentUUID, Boolean.TRUE) == null) {
+                long now = System.nanoTime();
+                latencies.add(now - sentAt);
+                lastFinishedNanos.accumulateAndGet(now, Math::max);
+                remaining.countDown();
+            }
+        }
+    }
+
+    /**
+     * Turns a share of stand-in responses into 500s, keeping the stubbed delay so failures cost as much as successes.
+     */
+    static class FailureInjector extends ResponseDefinitionTransformer {
+
+        private final Map<String, Double> failureRates = new ConcurrentHashMap<>();
+
+        void setFailureRate(String url, double failureRate) {
+            failureRates.put(url, failureRate);
+        }
+
+        @Override
+        public ResponseDefinition transform(Request request, ResponseDefinition responseDefinition, FileSource files, Parameters parameters) {
+            double failureRate = failureRates.getOrDefault(request.getUrl(), 0.0);
+            if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+                return ResponseDefinitionBuilder.like(responseDefinition).withStatus(500).withBody("").build();
+            }
+            return responseDefinition;
+        }
+
+        @Override
+        public String getName() {
+            return "failure-injector";
+        }
+    }
+}
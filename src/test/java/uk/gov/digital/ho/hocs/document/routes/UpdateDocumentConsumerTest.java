@@ -1,5 +1,7 @@
 package uk.gov.digital.ho.hocs.document.routes;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.apache.camel.builder.RouteBuilder;
 import org.apache.camel.test.junit4.CamelTestSupport;
 import org.junit.Test;
@@ -24,13 +26,14 @@ public class UpdateDocumentConsumerTest extends CamelTestSupport {
     private final String endpoint = "direct:updaterecord";
     private final String dlq = "mock:cs-dev-document-sqs-dlq";
     private UUID documentUUID = UUID.randomUUID();
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
 
     private UpdateDocumentRequest request = new UpdateDocumentRequest(documentUUID, DocumentStatus.UPLOADED, "oldfile.docx", "some.pdf");
 
     @Override
     protected RouteBuilder createRouteBuilder() throws Exception {
 
-        return new UpdateDocumentConsumer(documentDataService, dlq, 0,0,0);
+        return new UpdateDocumentConsumer(documentDataService, dlq, 0,0,0, meterRegistry);
     }
 
 
@@ -54,5 +57,12 @@ public class UpdateDocumentConsumerTest extends CamelTestSupport {
         getMockEndpoint(dlq).assertIsSatisfied();
     }
 
+    @Test
+    public void shouldCountResultingDocumentStatus() throws Exception {
+        template.sendBody(endpoint,request);
+
+        assertEquals(1.0, meterRegistry.get("documents.status").tag("status", "UPLOADED").counter().count(), 0.0);
+    }
+
 
 }
\ No newline at end of file